@@ -0,0 +1,477 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * This class implements the same SkipList as SkipList, but without a node
+ * object per pair. Every node is a slot number, its key and pair are kept in
+ * two large arrays indexed by the slot, and its tower of next pointers is a
+ * run of ints in one shared links array. A descent therefore reads ints that
+ * lie next to each other instead of following a SkipNode, its forward array
+ * and its KVPair for every step, and the garbage collector only sees a handful
+ * of large arrays instead of three objects per pair.
+ *
+ * Slot 0 is the head, which no node links to, so a link of 0 means the end of
+ * the level. Removed slots and towers are put on free lists and reused by the
+ * next inserts, there is one list of free towers for every height. Like
+ * SkipList, duplicate keys are allowed and a new pair is placed in front of
+ * any pairs that already have the same key.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ * @param <K>
+ *            Key
+ * @param <V>
+ *            Value
+ */
+public class ArenaSkipList<K extends Comparable<? super K>, V>
+    implements SkipListADT<K, V> {
+
+    // the highest level a tower can reach, the head is always this tall
+    static final int MAX_LEVEL = 31;
+    // the slot of the head, also the end of every level
+    private static final int HEAD = 0;
+
+    // keys[s] and pairs[s] belong to slot s, the key is kept apart so that a
+    // descent does not have to go through the KVPair
+    private Object[] keys;
+    private Object[] pairs;
+    // towers[s] is where the tower of slot s starts in links, for a free
+    // slot it is the next free slot instead
+    private int[] towers;
+    // the level of every slot, its tower has level + 1 links
+    private byte[] levels;
+    // the towers of all slots, links[towers[s] + i] is the next slot on level i
+    private int[] links;
+
+    private int slotsUsed; // slots handed out so far, free or not
+    private int linksUsed; // links handed out so far, free or not
+    private int freeSlot; // first free slot, HEAD when there is none
+    // freeTowers[l] is the first free tower with l + 1 links, 0 when there is
+    // none (the head tower at 0 is never freed)
+    private final int[] freeTowers;
+
+    private int size; // number of entries in the Skip List
+    private int level; // highest level used so far
+    private final Random random;
+
+    /**
+     * Initializes an empty list with room for 16 pairs.
+     */
+    public ArenaSkipList() {
+        this(16);
+    }
+
+
+    /**
+     * Initializes an empty list with room for the given number of pairs
+     * before any array has to grow.
+     *
+     * @param capacity
+     *            the number of pairs to make room for
+     */
+    public ArenaSkipList(int capacity) {
+        capacity = Math.max(capacity, 1) + 1;
+        keys = new Object[capacity];
+        pairs = new Object[capacity];
+        towers = new int[capacity];
+        levels = new byte[capacity];
+        // on average a tower has two links
+        links = new int[Math.max(2 * capacity, MAX_LEVEL + 1)];
+        freeTowers = new int[MAX_LEVEL + 1];
+        random = new Random();
+
+        // The head is slot 0 with a full tower at the start of links
+        slotsUsed = 1;
+        linksUsed = MAX_LEVEL + 1;
+        levels[HEAD] = MAX_LEVEL;
+        freeSlot = HEAD;
+    }
+
+
+    /**
+     * Returns a random level number which is used as the depth of a node. It
+     * follows the same distribution as SkipList.randomLevel.
+     *
+     * @return a random level number
+     */
+    int randomLevel() {
+        int lev;
+        for (lev = 0; lev < MAX_LEVEL && random.nextBoolean(); lev++) {
+            // Do nothing
+        }
+        return lev; // returns a random level
+    }
+
+
+    /**
+     * Searches for the KVPair using the key which is a Comparable object.
+     *
+     * @param key
+     *            key to be searched for
+     * @return An ArrayList of KVPair(s) associated with the given key if found,
+     *         otherwise an empty ArrayList is returned
+     */
+    @Override
+    public ArrayList<KVPair<K, V>> search(K key) {
+        ArrayList<KVPair<K, V>> foundPairs = new ArrayList<>();
+        // Add every pair of the run of equal keys
+        int current = next(before(key), 0);
+        while (current != HEAD && key(current).compareTo(key) == 0) {
+            foundPairs.add(pair(current));
+            current = next(current, 0);
+        }
+        return foundPairs;
+    }
+
+
+    /**
+     * @return the size of the SkipList
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Inserts the KVPair in the SkipList at its appropriate spot as designated
+     * by its lexicoragraphical order.
+     *
+     * @param it
+     *            the KVPair to be inserted
+     */
+    @Override
+    public void insert(KVPair<K, V> it) {
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            level = newLevel;
+        }
+        K key = it.getKey();
+
+        // Find the last slot before the key on every level
+        int[] path = findPath(key);
+
+        // Take a slot and a tower, they may move the arrays
+        int slot = allocateSlot(newLevel);
+        keys[slot] = key;
+        pairs[slot] = it;
+
+        // Put the new slot in front of the first key that is not smaller
+        int tower = towers[slot];
+        for (int i = 0; i <= newLevel; i++) {
+            int link = towers[path[i]] + i;
+            links[tower + i] = links[link];
+            links[link] = slot;
+        }
+        size++;
+    }
+
+
+    /**
+     * Removes the first KVPair with the given key.
+     *
+     * @param key
+     *            the key of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    @Override
+    public KVPair<K, V> remove(K key) {
+        int[] path = findPath(key);
+        int slot = next(path[0], 0);
+        if (slot == HEAD || key(slot).compareTo(key) != 0) {
+            return null;
+        }
+        return unlink(path, slot);
+    }
+
+
+    /**
+     * Removes a KVPair with the specified value. If several pairs hold an
+     * equal value the first one in the list is removed, and exactly that slot
+     * is unlinked even if other slots share its key. There is no value index,
+     * the bottom level is scanned, but it is a scan over ints.
+     *
+     * @param val
+     *            the value of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    @Override
+    public KVPair<K, V> removeByValue(V val) {
+        if (val == null) {
+            return null;
+        }
+        for (int slot = next(HEAD, 0); slot != HEAD; slot = next(slot, 0)) {
+            if (val.equals(pair(slot).getValue())) {
+                return unlink(findPath(key(slot)), slot);
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Writes the SkipList in the same format as SkipList.dump.
+     *
+     * @param out
+     *            the sink to write to
+     */
+    @Override
+    public void dump(OutputSink out) {
+        out.print("SkipList dump:").println();
+        out.print("Node has depth ").print(level).print(", Value ");
+        SkipList.printPair(out, null);
+        out.println();
+        for (int slot = next(HEAD, 0); slot != HEAD; slot = next(slot, 0)) {
+            out.print("Node has depth ").print(levels[slot]).print(", Value ");
+            SkipList.printPair(out, pair(slot));
+            out.println();
+        }
+        out.print("SkipList size is: ").print(size).println();
+    }
+
+
+    /**
+     * Returns a lazy iterator over the pairs whose key is at least fromKey and
+     * smaller than toKey, starting with a descent to fromKey.
+     *
+     * @param fromKey
+     *            the smallest key to return (inclusive)
+     * @param toKey
+     *            the key to stop at (exclusive)
+     * @return an iterator over the pairs in the range
+     */
+    @Override
+    public Iterator<KVPair<K, V>> range(K fromKey, K toKey) {
+        return new ArenaIterator(next(before(fromKey), 0), toKey);
+    }
+
+
+    /**
+     * @return an iterator over all pairs in list order
+     */
+    @Override
+    public Iterator<KVPair<K, V>> iterator() {
+        return new ArenaIterator(next(HEAD, 0), null);
+    }
+
+
+    /**
+     * @return how many slots the arrays currently have room for, including
+     *         the head and free slots
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+
+    /**
+     * Finds the last slot with a key smaller than the given one.
+     *
+     * @param key
+     *            the key to search for
+     * @return the slot, HEAD if there is none
+     */
+    private int before(K key) {
+        int current = HEAD;
+        for (int i = level; i >= 0; i--) {
+            int next = links[towers[current] + i];
+            while (next != HEAD && key(next).compareTo(key) < 0) {
+                current = next;
+                next = links[towers[current] + i];
+            }
+        }
+        return current;
+    }
+
+
+    /**
+     * Finds the last slot with a key smaller than the given one on every
+     * level.
+     *
+     * @param key
+     *            the key to search for
+     * @return the slot for every level up to the level of the list
+     */
+    private int[] findPath(K key) {
+        int[] path = new int[level + 1];
+        int current = HEAD;
+        for (int i = level; i >= 0; i--) {
+            int next = links[towers[current] + i];
+            while (next != HEAD && key(next).compareTo(key) < 0) {
+                current = next;
+                next = links[towers[current] + i];
+            }
+            path[i] = current;
+        }
+        return path;
+    }
+
+
+    /**
+     * Unlinks the slot from every level and puts it on the free lists.
+     *
+     * @param path
+     *            the last slot before the key of the slot on every level
+     * @param slot
+     *            the slot to unlink, one of the slots with that key
+     * @return the pair the slot held
+     */
+    private KVPair<K, V> unlink(int[] path, int slot) {
+        int tower = towers[slot];
+        for (int i = 0; i <= levels[slot]; i++) {
+            // The slot may come after other slots with the same key
+            int current = path[i];
+            while (next(current, i) != slot) {
+                current = next(current, i);
+            }
+            links[towers[current] + i] = links[tower + i];
+        }
+        KVPair<K, V> removed = pair(slot);
+        freeSlot(slot);
+        size--;
+        // Drop empty levels so that descents start lower
+        while (level > 0 && next(HEAD, level) == HEAD) {
+            level--;
+        }
+        return removed;
+    }
+
+
+    /**
+     * Takes a free slot with a tower of the given level, growing the arrays
+     * when there is none.
+     *
+     * @param lev
+     *            the level of the new slot
+     * @return the slot
+     */
+    private int allocateSlot(int lev) {
+        int slot;
+        if (freeSlot != HEAD) {
+            slot = freeSlot;
+            freeSlot = towers[slot];
+        }
+        else {
+            if (slotsUsed == keys.length) {
+                int capacity = keys.length * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                pairs = Arrays.copyOf(pairs, capacity);
+                towers = Arrays.copyOf(towers, capacity);
+                levels = Arrays.copyOf(levels, capacity);
+            }
+            slot = slotsUsed++;
+        }
+
+        // Reuse a free tower of the same height or cut a new one off the end
+        int tower = freeTowers[lev];
+        if (tower != 0) {
+            freeTowers[lev] = links[tower];
+        }
+        else {
+            if (linksUsed + lev + 1 > links.length) {
+                links = Arrays.copyOf(links, Math.max(links.length * 2,
+                    linksUsed + lev + 1));
+            }
+            tower = linksUsed;
+            linksUsed += lev + 1;
+        }
+        towers[slot] = tower;
+        levels[slot] = (byte)lev;
+        return slot;
+    }
+
+
+    /**
+     * Puts the slot and its tower on the free lists.
+     *
+     * @param slot
+     *            the slot that was unlinked
+     */
+    private void freeSlot(int slot) {
+        int tower = towers[slot];
+        links[tower] = freeTowers[levels[slot]];
+        freeTowers[levels[slot]] = tower;
+        // Let go of the pair so it can be collected
+        keys[slot] = null;
+        pairs[slot] = null;
+        towers[slot] = freeSlot;
+        freeSlot = slot;
+    }
+
+
+    /**
+     * @param slot
+     *            a slot in the list
+     * @param lev
+     *            a level of its tower
+     * @return the next slot on that level, HEAD at the end
+     */
+    private int next(int slot, int lev) {
+        return links[towers[slot] + lev];
+    }
+
+
+    /**
+     * @param slot
+     *            a slot holding a pair
+     * @return the key of the slot
+     */
+    @SuppressWarnings("unchecked")
+    private K key(int slot) {
+        return (K)keys[slot];
+    }
+
+
+    /**
+     * @param slot
+     *            a slot holding a pair
+     * @return the pair of the slot
+     */
+    @SuppressWarnings("unchecked")
+    private KVPair<K, V> pair(int slot) {
+        return (KVPair<K, V>)pairs[slot];
+    }
+
+
+    /**
+     * An iterator along the bottom level from a slot up to an optional key.
+     */
+    private class ArenaIterator implements Iterator<KVPair<K, V>> {
+        private int current;
+        private final K toKey;
+
+        /**
+         * @param first
+         *            the first slot to return, HEAD for none
+         * @param toKeyIn
+         *            the key to stop at (exclusive), null to go to the end
+         */
+        ArenaIterator(int first, K toKeyIn) {
+            current = first;
+            toKey = toKeyIn;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return current != HEAD && (toKey == null || key(current).compareTo(
+                toKey) < 0);
+        }
+
+
+        @Override
+        public KVPair<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            KVPair<K, V> pair = pair(current);
+            current = ArenaSkipList.this.next(current, 0);
+            return pair;
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArenaSkipListTest {
+    ArenaSkipList<String, Rectangle> skipListObject;
+    @BeforeEach
+    public void setUp() {
+        skipListObject = new ArenaSkipList<>();
+    }
+
+    @Test
+    //the arena list should behave exactly like SkipList, duplicates included
+    void testSameContractAsSkipList() {
+        SkipListTest.assertSameContract(skipListObject);
+    }
+
+    @Test
+    //a random mix of operations leaves the same pairs in the same order as SkipList
+    void testRandomOperations() {
+        SkipListTest.assertSameAsSkipList(skipListObject, 11, 500, 500);
+    }
+
+    @Test
+    //removed slots are reused, so a stable size does not grow the arrays
+    void testFreeListReuse() {
+        for (int i = 0; i < 1000; i++) {
+            skipListObject.insert(new KVPair<>("r" + i, new Rectangle(i, i, 1, 1)));
+        }
+        int capacity = skipListObject.capacity();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 1000; i++) {
+                assertNotNull(skipListObject.remove("r" + i));
+                skipListObject.insert(new KVPair<>("r" + i, new Rectangle(i, i, 1, 1)));
+            }
+        }
+        assertEquals(1000, skipListObject.size());
+        assertEquals(capacity, skipListObject.capacity());
+    }
+
+    @Test
+    //the database prints the same with the arena list as with SkipList, apart from the random depths
+    void testDatabaseOnArenaList() {
+        assertEquals(SkipListTest.runDatabase(new SkipList<>(true)), SkipListTest.runDatabase(skipListObject));
+    }
+
+}
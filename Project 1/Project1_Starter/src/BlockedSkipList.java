@@ -0,0 +1,537 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * This class implements a blocked SkipList (a "B-skiplist"). Instead of one
+ * tower per pair, every node is a block holding a sorted array of up to
+ * blockSize pairs, and the towers only link the blocks. The levels are ordered
+ * by the first key of every block, so a descent finds the block and a binary
+ * search finds the pair inside it. Iterating walks along an array and only
+ * follows a pointer once per block, and there is one tower for many pairs.
+ *
+ * A full block is split in two halves. A block that shrinks below a quarter
+ * of blockSize takes over all pairs of the next block when they fit in half
+ * a block and evens out with it otherwise, so every block but the last one
+ * stays between a quarter and completely full. Like
+ * SkipList, duplicate keys are allowed (a run of equal keys may cross blocks)
+ * and a new pair is placed in front of any pairs that already have the same
+ * key.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ * @param <K>
+ *            Key
+ * @param <V>
+ *            Value
+ */
+public class BlockedSkipList<K extends Comparable<? super K>, V>
+    implements SkipListADT<K, V> {
+
+    // the highest level a tower can reach, the head is always this tall
+    static final int MAX_LEVEL = 31;
+    // the number of pairs a block holds when none is given
+    static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private final Block head; // sentinel block without pairs
+    private final int blockSize; // the most pairs a block can hold
+    private int size; // number of entries in the Skip List
+    private int level; // highest level used so far
+    private int blocks; // number of blocks, without the head
+    private final Random random;
+
+    /**
+     * Initializes an empty list with blocks of 64 pairs.
+     */
+    public BlockedSkipList() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+
+    /**
+     * Initializes an empty list with blocks of the given size.
+     *
+     * @param blockSizeIn
+     *            the most pairs a block can hold, at least 4
+     */
+    public BlockedSkipList(int blockSizeIn) {
+        if (blockSizeIn < 4) {
+            throw new IllegalArgumentException("Block size " + blockSizeIn
+                + " is smaller than 4");
+        }
+        blockSize = blockSizeIn;
+        head = new Block(0, MAX_LEVEL);
+        random = new Random();
+    }
+
+
+    /**
+     * Returns a random level number which is used as the depth of a block. It
+     * follows the same distribution as SkipList.randomLevel.
+     *
+     * @return a random level number
+     */
+    int randomLevel() {
+        int lev;
+        for (lev = 0; lev < MAX_LEVEL && random.nextBoolean(); lev++) {
+            // Do nothing
+        }
+        return lev; // returns a random level
+    }
+
+
+    /**
+     * Searches for the KVPair using the key which is a Comparable object.
+     *
+     * @param key
+     *            key to be searched for
+     * @return An ArrayList of KVPair(s) associated with the given key if found,
+     *         otherwise an empty ArrayList is returned
+     */
+    @Override
+    public ArrayList<KVPair<K, V>> search(K key) {
+        ArrayList<KVPair<K, V>> foundPairs = new ArrayList<>();
+        Block block = findPath(key, null);
+        int index = lowerBound(block, key);
+        // The run of equal keys may go on in the next blocks
+        while (block != null) {
+            for (; index < block.count; index++) {
+                KVPair<K, V> pair = pair(block, index);
+                if (pair.getKey().compareTo(key) != 0) {
+                    return foundPairs;
+                }
+                foundPairs.add(pair);
+            }
+            block = block.forward[0];
+            index = 0;
+        }
+        return foundPairs;
+    }
+
+
+    /**
+     * @return the size of the SkipList
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @return the number of blocks holding the pairs
+     */
+    int blocks() {
+        return blocks;
+    }
+
+
+    /**
+     * Inserts the KVPair in the SkipList at its appropriate spot as designated
+     * by its lexicoragraphical order.
+     *
+     * @param it
+     *            the KVPair to be inserted
+     */
+    @Override
+    public void insert(KVPair<K, V> it) {
+        Block[] path = new Block[MAX_LEVEL + 1];
+        Block block = findPath(it.getKey(), path);
+        if (block == head) {
+            // Smaller than every key, goes to the front of the first block
+            block = head.forward[0];
+            if (block == null) {
+                block = new Block(blockSize, 0);
+                head.forward[0] = block;
+                blocks++;
+            }
+        }
+        int index = lowerBound(block, it.getKey());
+
+        // Split a full block and continue in the half the pair belongs to
+        if (block.count == blockSize) {
+            Block upper = split(block, path);
+            if (index > block.count) {
+                index -= block.count;
+                block = upper;
+            }
+        }
+        System.arraycopy(block.entries, index, block.entries, index + 1,
+            block.count - index);
+        block.entries[index] = it;
+        block.count++;
+        size++;
+    }
+
+
+    /**
+     * Removes the first KVPair with the given key.
+     *
+     * @param key
+     *            the key of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    @Override
+    public KVPair<K, V> remove(K key) {
+        Block block = findPath(key, null);
+        int index = lowerBound(block, key);
+        if (index == block.count) {
+            // Every pair of the block is smaller, look at the next one
+            block = block.forward[0];
+            index = 0;
+        }
+        if (block == null || block.count == 0 || pair(block, index).getKey()
+            .compareTo(key) != 0) {
+            return null;
+        }
+        return removeAt(block, index);
+    }
+
+
+    /**
+     * Removes a KVPair with the specified value. If several pairs hold an
+     * equal value the first one in the list is removed.
+     *
+     * @param val
+     *            the value of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    @Override
+    public KVPair<K, V> removeByValue(V val) {
+        if (val == null) {
+            return null;
+        }
+        for (Block block = head.forward[0]; block != null;
+            block = block.forward[0]) {
+            for (int i = 0; i < block.count; i++) {
+                if (val.equals(pair(block, i).getValue())) {
+                    return removeAt(block, i);
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Writes the SkipList in the same format as SkipList.dump. There is one
+     * line per pair, the depth of a pair is the depth of its block.
+     *
+     * @param out
+     *            the sink to write to
+     */
+    @Override
+    public void dump(OutputSink out) {
+        out.print("SkipList dump:").println();
+        out.print("Node has depth ").print(level).print(", Value ");
+        SkipList.printPair(out, null);
+        out.println();
+        for (Block block = head.forward[0]; block != null;
+            block = block.forward[0]) {
+            for (int i = 0; i < block.count; i++) {
+                out.print("Node has depth ").print(block.level).print(
+                    ", Value ");
+                SkipList.printPair(out, pair(block, i));
+                out.println();
+            }
+        }
+        out.print("SkipList size is: ").print(size).println();
+    }
+
+
+    /**
+     * Returns a lazy iterator over the pairs whose key is at least fromKey and
+     * smaller than toKey, starting with a descent to fromKey.
+     *
+     * @param fromKey
+     *            the smallest key to return (inclusive)
+     * @param toKey
+     *            the key to stop at (exclusive)
+     * @return an iterator over the pairs in the range
+     */
+    @Override
+    public Iterator<KVPair<K, V>> range(K fromKey, K toKey) {
+        Block block = findPath(fromKey, null);
+        return new BlockIterator(block, lowerBound(block, fromKey), toKey);
+    }
+
+
+    /**
+     * @return an iterator over all pairs in list order
+     */
+    @Override
+    public Iterator<KVPair<K, V>> iterator() {
+        return new BlockIterator(head, 0, null);
+    }
+
+
+    /**
+     * Finds the last block whose first key is smaller than the given key,
+     * which is where a pair with the key belongs (or at the start of the
+     * block after it).
+     *
+     * @param key
+     *            the key to search for
+     * @param path
+     *            if not null, gets the last such block on every level
+     * @return the block, the head if there is none
+     */
+    private Block findPath(K key, Block[] path) {
+        Block current = head;
+        for (int i = level; i >= 0; i--) {
+            while (current.forward[i] != null && first(current.forward[i])
+                .compareTo(key) < 0) {
+                current = current.forward[i];
+            }
+            if (path != null) {
+                path[i] = current;
+            }
+        }
+        return current;
+    }
+
+
+    /**
+     * Moves the upper half of a full block into a new block after it.
+     *
+     * @param block
+     *            the full block
+     * @param path
+     *            the last block before the key of the insert on every level
+     * @return the new block
+     */
+    private Block split(Block block, Block[] path) {
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level + 1; i <= newLevel; i++) {
+                path[i] = head;
+            }
+            level = newLevel;
+        }
+        Block upper = new Block(blockSize, newLevel);
+        int half = block.count / 2;
+        upper.count = block.count - half;
+        System.arraycopy(block.entries, half, upper.entries, 0, upper.count);
+        Arrays.fill(block.entries, half, block.count, null);
+        block.count = half;
+
+        // The new block goes right after the full one, which is the block in
+        // front of it on every level the full block has
+        for (int i = 0; i <= newLevel; i++) {
+            Block before = i <= block.level ? block : path[i];
+            upper.forward[i] = before.forward[i];
+            before.forward[i] = upper;
+        }
+        blocks++;
+        return upper;
+    }
+
+
+    /**
+     * Removes one pair from a block, then unlinks the block when it is empty
+     * or refills it from the next block when it is small.
+     *
+     * @param block
+     *            the block holding the pair
+     * @param index
+     *            the position of the pair in the block
+     * @return the removed pair
+     */
+    private KVPair<K, V> removeAt(Block block, int index) {
+        KVPair<K, V> removed = pair(block, index);
+        // The block is found by its first key, so unlink it while it still
+        // has its last pair
+        if (block.count == 1) {
+            unlink(block, first(block));
+        }
+        System.arraycopy(block.entries, index + 1, block.entries, index,
+            block.count - index - 1);
+        block.entries[--block.count] = null;
+        size--;
+
+        if (block.count > 0 && block.count < blockSize / 4) {
+            Block next = block.forward[0];
+            if (next != null && block.count + next.count <= blockSize / 2) {
+                K nextFirst = first(next);
+                System.arraycopy(next.entries, 0, block.entries, block.count,
+                    next.count);
+                block.count += next.count;
+                unlink(next, nextFirst);
+            }
+            else if (next != null) {
+                // Too many to merge, take pairs from the front of the next
+                // block until both hold the same number. Its first key only
+                // gets larger, so the levels stay in order.
+                int moved = (next.count - block.count) / 2;
+                System.arraycopy(next.entries, 0, block.entries, block.count,
+                    moved);
+                block.count += moved;
+                System.arraycopy(next.entries, moved, next.entries, 0,
+                    next.count - moved);
+                Arrays.fill(next.entries, next.count - moved,
+                    next.count, null);
+                next.count -= moved;
+            }
+        }
+        return removed;
+    }
+
+
+    /**
+     * Unlinks a block from every level it is on.
+     *
+     * @param block
+     *            the block to unlink, it must still hold its pairs
+     * @param first
+     *            the first key of the block, so it can be found
+     */
+    private void unlink(Block block, K first) {
+        Block[] path = new Block[MAX_LEVEL + 1];
+        findPath(first, path);
+        for (int i = 0; i <= block.level; i++) {
+            // Blocks starting with the same key may come first
+            Block current = path[i];
+            while (current.forward[i] != block) {
+                current = current.forward[i];
+            }
+            current.forward[i] = block.forward[i];
+        }
+        blocks--;
+        // Drop empty levels so that descents start lower
+        while (level > 0 && head.forward[level] == null) {
+            level--;
+        }
+    }
+
+
+    /**
+     * Finds the first position in the block whose key is not smaller than
+     * the given key.
+     *
+     * @param block
+     *            the block to search
+     * @param key
+     *            the key to search for
+     * @return the position, block.count if every key is smaller
+     */
+    private int lowerBound(Block block, K key) {
+        int low = 0;
+        int high = block.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pair(block, mid).getKey().compareTo(key) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * @param block
+     *            a block holding at least one pair
+     * @return the key of its first pair
+     */
+    private K first(Block block) {
+        return pair(block, 0).getKey();
+    }
+
+
+    /**
+     * @param block
+     *            a block
+     * @param index
+     *            a position below block.count
+     * @return the pair at the position
+     */
+    @SuppressWarnings("unchecked")
+    private KVPair<K, V> pair(Block block, int index) {
+        return (KVPair<K, V>)block.entries[index];
+    }
+
+
+    /**
+     * A node of the list, a sorted run of pairs with one tower.
+     */
+    private static class Block {
+        // the pairs, sorted by key, in entries[0] to entries[count - 1]
+        private final Object[] entries;
+        private int count;
+        // the next block on every level of the tower
+        private final Block[] forward;
+        private final int level;
+
+        /**
+         * @param capacity
+         *            the most pairs the block can hold
+         * @param levelIn
+         *            the level of the tower
+         */
+        Block(int capacity, int levelIn) {
+            entries = new Object[capacity];
+            forward = new Block[levelIn + 1];
+            level = levelIn;
+        }
+    }
+
+
+    /**
+     * An iterator along the blocks from a position up to an optional key.
+     */
+    private class BlockIterator implements Iterator<KVPair<K, V>> {
+        private Block block;
+        private int index;
+        private final K toKey;
+
+        /**
+         * @param blockIn
+         *            the block to start in
+         * @param indexIn
+         *            the position to start at
+         * @param toKeyIn
+         *            the key to stop at (exclusive), null to go to the end
+         */
+        BlockIterator(Block blockIn, int indexIn, K toKeyIn) {
+            block = blockIn;
+            index = indexIn;
+            toKey = toKeyIn;
+            skipEmpty();
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return block != null && (toKey == null || pair(block, index)
+                .getKey().compareTo(toKey) < 0);
+        }
+
+
+        @Override
+        public KVPair<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            KVPair<K, V> pair = pair(block, index++);
+            skipEmpty();
+            return pair;
+        }
+
+
+        /**
+         * Moves on to the next block when the current one is used up.
+         */
+        private void skipEmpty() {
+            while (block != null && index == block.count) {
+                block = block.forward[0];
+                index = 0;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockedSkipListTest {
+    BlockedSkipList<String, Rectangle> skipListObject;
+    @BeforeEach
+    public void setUp() {
+        skipListObject = new BlockedSkipList<>();
+    }
+
+    @Test
+    //the blocked list should behave exactly like SkipList, duplicates included
+    void testSameContractAsSkipList() {
+        SkipListTest.assertSameContract(skipListObject);
+        assertEquals(0, skipListObject.blocks());
+    }
+
+    @Test
+    //splits and merges keep the same pairs in the same order as SkipList, also for long runs of equal keys
+    void testRandomOperations() {
+        for (int blockSize : new int[] {4, 8, 64}) {
+            // Few keys in the first phase make runs of equal keys longer than a block
+            SkipListTest.assertSameAsSkipList(new BlockedSkipList<>(blockSize), blockSize, 20, 500);
+        }
+    }
+
+    @Test
+    //blocks stay reasonably full while the list grows and shrinks
+    void testBlocksStayFull() {
+        for (int i = 0; i < 10000; i++) {
+            skipListObject.insert(new KVPair<>("r" + i, new Rectangle(i, i, 1, 1)));
+        }
+        // A split leaves two half full blocks
+        assertTrue(skipListObject.blocks() <= 10000 / 32 + 1);
+        for (int i = 0; i < 10000; i += 2) {
+            assertNotNull(skipListObject.remove("r" + i));
+        }
+        // Every block but the last holds at least a quarter of a block
+        assertTrue(skipListObject.blocks() <= 5000 / 16 + 1);
+        Random random = new Random(5);
+        for (int i = 1; i < 10000; i += 2) {
+            if (random.nextInt(10) > 0) {
+                assertNotNull(skipListObject.remove("r" + i));
+            }
+        }
+        assertTrue(skipListObject.blocks() <= skipListObject.size() / 16 + 1);
+    }
+
+    @Test
+    //the database prints the same with the blocked list as with SkipList, apart from the random depths
+    void testDatabaseOnBlockedList() {
+        assertEquals(SkipListTest.runDatabase(new SkipList<>(true)), SkipListTest.runDatabase(skipListObject));
+    }
+
+}
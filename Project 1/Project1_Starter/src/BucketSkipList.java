@@ -0,0 +1,463 @@
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * This class implements a SkipList that keeps one node per distinct key. All
+ * pairs with the same key share the node and its tower, they are kept in a
+ * compact array in the node (the bucket). Many pairs with the same key
+ * therefore neither make the list taller nor cost a tower each, and search
+ * returns a read-only view of the bucket without copying it.
+ *
+ * The pairs of a bucket come out in the same order as SkipList returns equal
+ * keys: the pair inserted last comes first, and remove(K) removes it. The
+ * bucket stores them the other way around, so both are done at the end of
+ * the array. remove(K, V) removes one given (key, value) entry by descending
+ * to the key in O(log n) and then looking through its bucket only.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ * @param <K>
+ *            Key
+ * @param <V>
+ *            Value
+ */
+public class BucketSkipList<K extends Comparable<? super K>, V>
+    implements SkipListADT<K, V> {
+
+    // the highest level a tower can reach, the head is always this tall
+    static final int MAX_LEVEL = 31;
+
+    private final BucketNode head; // sentinel in front of every level
+    private int size; // number of entries in the Skip List
+    private int keys; // number of nodes, that is distinct keys
+    private int level; // highest level used so far
+    private final Random random;
+
+    /**
+     * Initializes the fields head, size and level
+     */
+    public BucketSkipList() {
+        head = new BucketNode(null, MAX_LEVEL);
+        random = new Random();
+    }
+
+
+    /**
+     * Returns a random level number which is used as the depth of a node. It
+     * follows the same distribution as SkipList.randomLevel.
+     *
+     * @return a random level number
+     */
+    int randomLevel() {
+        int lev;
+        for (lev = 0; lev < MAX_LEVEL && random.nextBoolean(); lev++) {
+            // Do nothing
+        }
+        return lev; // returns a random level
+    }
+
+
+    /**
+     * Inserts the KVPair into the bucket of its key, in front of the pairs
+     * already there. A node is only made for a new key.
+     *
+     * @param it
+     *            the KVPair to be inserted
+     */
+    @Override
+    public void insert(KVPair<K, V> it) {
+        BucketNode[] path = findPath(it.getKey());
+        BucketNode node = path[0].forward[0];
+        if (node == null || node.key.compareTo(it.getKey()) != 0) {
+            int newLevel = randomLevel();
+            if (newLevel > level) {
+                for (int i = level + 1; i <= newLevel; i++) {
+                    path[i] = head;
+                }
+                level = newLevel;
+            }
+            node = new BucketNode(it.getKey(), newLevel);
+            for (int i = 0; i <= newLevel; i++) {
+                node.forward[i] = path[i].forward[i];
+                path[i].forward[i] = node;
+            }
+            keys++;
+        }
+        node.add(it);
+        size++;
+    }
+
+
+    /**
+     * Searches for the KVPair(s) using the key.
+     *
+     * @param key
+     *            key to be searched for
+     * @return a read-only view of the bucket of the key, empty if the key is
+     *         not in the list. The view shows later changes to the bucket
+     *         until the key leaves the list.
+     */
+    @Override
+    public List<KVPair<K, V>> search(K key) {
+        BucketNode node = find(key);
+        return node == null ? Collections.emptyList() : node.view();
+    }
+
+
+    /**
+     * Removes the first KVPair with the given key, that is the one inserted
+     * last.
+     *
+     * @param key
+     *            the key of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    @Override
+    public KVPair<K, V> remove(K key) {
+        BucketNode[] path = findPath(key);
+        BucketNode node = path[0].forward[0];
+        if (node == null || node.key.compareTo(key) != 0) {
+            return null;
+        }
+        return removeAt(path, node, node.count - 1);
+    }
+
+
+    /**
+     * Removes the first KVPair that has both the key and the value. Finding
+     * the key takes O(log n), after that only the bucket of the key is looked
+     * through.
+     *
+     * @param key
+     *            the key of the KVPair to be removed
+     * @param val
+     *            the value of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    public KVPair<K, V> remove(K key, V val) {
+        if (val == null) {
+            return null;
+        }
+        BucketNode[] path = findPath(key);
+        BucketNode node = path[0].forward[0];
+        if (node == null || node.key.compareTo(key) != 0) {
+            return null;
+        }
+        // The end of the array is the front of the bucket
+        for (int i = node.count - 1; i >= 0; i--) {
+            if (val.equals(node.pair(i).getValue())) {
+                return removeAt(path, node, i);
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Removes the first KVPair in the list with the specified value.
+     *
+     * @param val
+     *            the value of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    @Override
+    public KVPair<K, V> removeByValue(V val) {
+        if (val == null) {
+            return null;
+        }
+        for (BucketNode node = head.forward[0]; node != null;
+            node = node.forward[0]) {
+            for (int i = node.count - 1; i >= 0; i--) {
+                if (val.equals(node.pair(i).getValue())) {
+                    return removeAt(findPath(node.key), node, i);
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * @return the size of the SkipList
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @return the number of distinct keys, which is the number of nodes
+     */
+    int keys() {
+        return keys;
+    }
+
+
+    /**
+     * Writes the SkipList in the same format as SkipList.dump. There is one
+     * line per pair, the depth of a pair is the depth of the node of its key.
+     *
+     * @param out
+     *            the sink to write to
+     */
+    @Override
+    public void dump(OutputSink out) {
+        out.print("SkipList dump:").println();
+        out.print("Node has depth ").print(level).print(", Value ");
+        SkipList.printPair(out, null);
+        out.println();
+        for (BucketNode node = head.forward[0]; node != null;
+            node = node.forward[0]) {
+            for (int i = node.count - 1; i >= 0; i--) {
+                out.print("Node has depth ").print(node.forward.length - 1)
+                    .print(", Value ");
+                SkipList.printPair(out, node.pair(i));
+                out.println();
+            }
+        }
+        out.print("SkipList size is: ").print(size).println();
+    }
+
+
+    /**
+     * Returns a lazy iterator over the pairs whose key is at least fromKey and
+     * smaller than toKey, starting with a descent to fromKey.
+     *
+     * @param fromKey
+     *            the smallest key to return (inclusive)
+     * @param toKey
+     *            the key to stop at (exclusive)
+     * @return an iterator over the pairs in the range
+     */
+    @Override
+    public Iterator<KVPair<K, V>> range(K fromKey, K toKey) {
+        return new BucketIterator(findPath(fromKey)[0].forward[0], toKey);
+    }
+
+
+    /**
+     * @return an iterator over all pairs in list order
+     */
+    @Override
+    public Iterator<KVPair<K, V>> iterator() {
+        return new BucketIterator(head.forward[0], null);
+    }
+
+
+    /**
+     * @param key
+     *            the key to search for
+     * @return the node of the key, null if the key is not in the list
+     */
+    private BucketNode find(K key) {
+        BucketNode node = findPath(key)[0].forward[0];
+        return node != null && node.key.compareTo(key) == 0 ? node : null;
+    }
+
+
+    /**
+     * Finds the last node with a key smaller than the given one on every
+     * level.
+     *
+     * @param key
+     *            the key to search for
+     * @return the node for every level, the head above the level of the list
+     */
+    @SuppressWarnings("unchecked")
+    private BucketNode[] findPath(K key) {
+        BucketNode[] path = (BucketNode[])Array.newInstance(BucketNode.class,
+            MAX_LEVEL + 1);
+        BucketNode current = head;
+        for (int i = level; i >= 0; i--) {
+            while (current.forward[i] != null && current.forward[i].key
+                .compareTo(key) < 0) {
+                current = current.forward[i];
+            }
+            path[i] = current;
+        }
+        return path;
+    }
+
+
+    /**
+     * Removes one pair from a bucket and unlinks the node when the bucket is
+     * empty.
+     *
+     * @param path
+     *            the last node before the key on every level
+     * @param node
+     *            the node of the key
+     * @param index
+     *            the position of the pair in the bucket array
+     * @return the removed pair
+     */
+    private KVPair<K, V> removeAt(BucketNode[] path, BucketNode node,
+        int index) {
+        KVPair<K, V> removed = node.removeAt(index);
+        size--;
+        if (node.count == 0) {
+            for (int i = 0; i < node.forward.length; i++) {
+                path[i].forward[i] = node.forward[i];
+            }
+            keys--;
+            // Drop empty levels so that descents start lower
+            while (level > 0 && head.forward[level] == null) {
+                level--;
+            }
+        }
+        return removed;
+    }
+
+
+    /**
+     * A node holding one key and the bucket of all pairs with that key.
+     */
+    private class BucketNode {
+        private final K key;
+        // the pairs, oldest first, in pairs[0] to pairs[count - 1]
+        private Object[] pairs;
+        private int count;
+        private final BucketNode[] forward;
+        // the read-only view search returns, made when first asked for
+        private List<KVPair<K, V>> view;
+
+        /**
+         * @param keyIn
+         *            the key, null for the head
+         * @param levelIn
+         *            the level of the tower
+         */
+        @SuppressWarnings("unchecked")
+        BucketNode(K keyIn, int levelIn) {
+            key = keyIn;
+            pairs = new Object[1];
+            forward = (BucketNode[])Array.newInstance(BucketNode.class,
+                levelIn + 1);
+        }
+
+
+        /**
+         * @return a read-only list of the bucket in list order
+         */
+        List<KVPair<K, V>> view() {
+            if (view == null) {
+                view = new AbstractList<KVPair<K, V>>() {
+                    @Override
+                    public KVPair<K, V> get(int index) {
+                        if (index < 0 || index >= count) {
+                            throw new IndexOutOfBoundsException("Index "
+                                + index + " out of bounds for length "
+                                + count);
+                        }
+                        // The newest pair is at the end of the array
+                        return pair(count - 1 - index);
+                    }
+
+
+                    @Override
+                    public int size() {
+                        return count;
+                    }
+                };
+            }
+            return view;
+        }
+
+
+        /**
+         * @param index
+         *            a position in the bucket array
+         * @return the pair at the position
+         */
+        @SuppressWarnings("unchecked")
+        KVPair<K, V> pair(int index) {
+            return (KVPair<K, V>)pairs[index];
+        }
+
+
+        /**
+         * Puts the pair at the front of the bucket.
+         *
+         * @param pair
+         *            the pair to add
+         */
+        void add(KVPair<K, V> pair) {
+            if (count == pairs.length) {
+                pairs = Arrays.copyOf(pairs, count * 2);
+            }
+            pairs[count++] = pair;
+        }
+
+
+        /**
+         * Takes a pair out of the bucket array, keeping the others in order.
+         *
+         * @param index
+         *            the position in the bucket array
+         * @return the pair
+         */
+        KVPair<K, V> removeAt(int index) {
+            KVPair<K, V> removed = pair(index);
+            System.arraycopy(pairs, index + 1, pairs, index, count - index
+                - 1);
+            pairs[--count] = null;
+            return removed;
+        }
+    }
+
+
+    /**
+     * An iterator over the buckets from a node up to an optional key.
+     */
+    private class BucketIterator implements Iterator<KVPair<K, V>> {
+        private BucketNode node;
+        private int index;
+        private final K toKey;
+
+        /**
+         * @param first
+         *            the first node to return, null for none
+         * @param toKeyIn
+         *            the key to stop at (exclusive), null to go to the end
+         */
+        BucketIterator(BucketNode first, K toKeyIn) {
+            node = first;
+            toKey = toKeyIn;
+            if (node != null) {
+                index = node.count - 1;
+            }
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return node != null && (toKey == null || node.key.compareTo(
+                toKey) < 0);
+        }
+
+
+        @Override
+        public KVPair<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            KVPair<K, V> pair = node.pair(index--);
+            if (index < 0) {
+                node = node.forward[0];
+                if (node != null) {
+                    index = node.count - 1;
+                }
+            }
+            return pair;
+        }
+    }
+
+}
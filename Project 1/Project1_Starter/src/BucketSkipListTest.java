@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BucketSkipListTest {
+    BucketSkipList<String, Rectangle> skipListObject;
+    @BeforeEach
+    public void setUp() {
+        skipListObject = new BucketSkipList<>();
+    }
+
+    @Test
+    //the bucket list should behave exactly like SkipList, duplicates included
+    void testSameContractAsSkipList() {
+        SkipListTest.assertSameContract(skipListObject);
+        assertEquals(0, skipListObject.keys());
+        // one bucket for the two pairs with the same name
+        skipListObject.insert(new KVPair<>("b", new Rectangle(1, 2, 3, 4)));
+        skipListObject.insert(new KVPair<>("a", new Rectangle(6, 6, 2, 2)));
+        skipListObject.insert(new KVPair<>("b", new Rectangle(7, 7, 4, 4)));
+        assertEquals(2, skipListObject.keys());
+    }
+
+    @Test
+    //search returns a read-only view of the bucket that follows later changes
+    void testSearchView() {
+        KVPair<String, Rectangle> first = new KVPair<>("r", new Rectangle(1, 1, 1, 1));
+        KVPair<String, Rectangle> second = new KVPair<>("r", new Rectangle(2, 2, 2, 2));
+        skipListObject.insert(first);
+        List<KVPair<String, Rectangle>> bucket = skipListObject.search("r");
+        skipListObject.insert(second);
+        assertEquals(2, bucket.size());
+        assertSame(second, bucket.get(0));
+        assertSame(first, bucket.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> bucket.remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> bucket.get(2));
+
+        // remove(K, V) takes exactly the entry with the value, not the first one
+        assertSame(first, skipListObject.remove("r", new Rectangle(1, 1, 1, 1)));
+        assertNull(skipListObject.remove("r", new Rectangle(1, 1, 1, 1)));
+        assertNull(skipListObject.remove("q", new Rectangle(2, 2, 2, 2)));
+        assertEquals(1, bucket.size());
+        assertSame(second, bucket.get(0));
+    }
+
+    @Test
+    //a random mix of operations with heavy name reuse leaves the same pairs in the same order as SkipList
+    void testRandomOperations() {
+        SkipListTest.assertSameAsSkipList(skipListObject, 19, 30, 30);
+        assertTrue(skipListObject.keys() <= 30);
+    }
+
+    @Test
+    //the database prints the same with the bucket list as with SkipList, apart from the random depths
+    void testDatabaseOnBucketList() {
+        assertEquals(SkipListTest.runDatabase(new SkipList<>(true)), SkipListTest.runDatabase(skipListObject));
+    }
+
+}
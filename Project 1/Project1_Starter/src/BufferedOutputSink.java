@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+
+/**
+ * This class is the default OutputSink. It encodes the output into one large
+ * byte buffer and only writes to the underlying stream when the buffer is full
+ * or flush is called. Ints are turned into digits by hand, so there is no
+ * format string parsing and no locking for every line like with
+ * System.out.printf. ASCII text is copied byte by byte, other text is encoded
+ * with the default charset just like System.out would.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class BufferedOutputSink implements OutputSink {
+
+    // the default size of the buffer
+    static final int DEFAULT_SIZE = 1 << 16;
+    // the bytes of the line separator
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes();
+
+    // the stream to write to, null means whatever System.out is at the time
+    private final OutputStream out;
+    // the output collected so far
+    private final byte[] buffer;
+    // the number of bytes used in the buffer
+    private int count;
+    // run before any bytes are written to the stream, null for nothing
+    private Runnable beforeWrite;
+
+    /**
+     * Creates a sink that writes to System.out. The stream is looked up every
+     * time the buffer is written, so System.setOut works like it does for
+     * System.out.printf.
+     */
+    public BufferedOutputSink() {
+        this(null, DEFAULT_SIZE);
+    }
+
+
+    /**
+     * Creates a sink that writes to the given stream.
+     *
+     * @param outIn
+     *            the stream to write to
+     */
+    public BufferedOutputSink(OutputStream outIn) {
+        this(outIn, DEFAULT_SIZE);
+    }
+
+
+    /**
+     * Creates a sink that writes to the given stream with a buffer of the
+     * given size.
+     *
+     * @param outIn
+     *            the stream to write to, or null for System.out
+     * @param size
+     *            the size of the buffer in bytes, at least 16
+     */
+    public BufferedOutputSink(OutputStream outIn, int size) {
+        out = outIn;
+        buffer = new byte[Math.max(16, size)];
+    }
+
+
+    /**
+     * Runs the hook every time before bytes are written to the stream, also
+     * when the buffer fills up and is written without a call to flush. A
+     * Database with a log writes the log here, so output never reaches the
+     * stream before the changes it reports are in the log.
+     *
+     * @param hook
+     *            what to run, null for nothing
+     */
+    void beforeWrite(Runnable hook) {
+        beforeWrite = hook;
+    }
+
+
+    @Override
+    public OutputSink print(String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Let the charset deal with the rest of the text
+                write(text.substring(i).getBytes(Charset.defaultCharset()));
+                return this;
+            }
+            if (count == buffer.length) {
+                drain();
+            }
+            buffer[count++] = (byte)c;
+        }
+        return this;
+    }
+
+
+    @Override
+    public OutputSink print(char c) {
+        if (c >= 0x80) {
+            return print(String.valueOf(c));
+        }
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte)c;
+        return this;
+    }
+
+
+    @Override
+    public OutputSink print(int number) {
+        // An int has at most 11 characters
+        if (buffer.length - count < 11) {
+            drain();
+        }
+        if (number < 0) {
+            buffer[count++] = '-';
+        }
+        // Work with the negative value so that Integer.MIN_VALUE fits
+        int negative = number < 0 ? number : -number;
+        int digits = 1;
+        for (int rest = negative / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int position = count + digits;
+        count = position;
+        do {
+            buffer[--position] = (byte)('0' - negative % 10);
+            negative /= 10;
+        } while (negative != 0);
+        return this;
+    }
+
+
+    @Override
+    public OutputSink println() {
+        write(NEWLINE);
+        return this;
+    }
+
+
+    @Override
+    public void flush() {
+        drain();
+        try {
+            stream().flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Appends raw bytes to the buffer.
+     *
+     * @param bytes
+     *            the bytes to append
+     */
+    private void write(byte[] bytes) {
+        if (bytes.length > buffer.length - count) {
+            drain();
+        }
+        if (bytes.length > buffer.length) {
+            writeOut(bytes, bytes.length);
+            return;
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+
+    /**
+     * Writes the buffer to the stream and empties it.
+     */
+    private void drain() {
+        if (count > 0) {
+            writeOut(buffer, count);
+            count = 0;
+        }
+    }
+
+
+    /**
+     * @param bytes
+     *            the bytes to write
+     * @param length
+     *            the number of bytes to write
+     */
+    private void writeOut(byte[] bytes, int length) {
+        if (beforeWrite != null) {
+            beforeWrite.run();
+        }
+        try {
+            stream().write(bytes, 0, length);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * @return the stream to write to
+     */
+    private OutputStream stream() {
+        return out != null ? out : System.out;
+    }
+
+}
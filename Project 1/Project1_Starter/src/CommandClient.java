@@ -0,0 +1,156 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+
+/**
+ * This class is a client of a CommandServer. Commands are collected by send
+ * and go out together on flush, then receive reads the answers one by one in
+ * the order the commands were sent. To pipeline, send many commands before
+ * receiving their answers. One thread may send while another receives, but
+ * a client that sends a lot without anyone receiving can fill up the socket
+ * in both directions and wait forever.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class CommandClient implements AutoCloseable {
+
+    // the connection to the server
+    private final SocketChannel channel;
+    // the commands that are not sent yet
+    private ByteBuffer output;
+    // the bytes that are read but not received yet, between position and
+    // limit
+    private ByteBuffer input;
+
+    /**
+     * Connects to a server.
+     *
+     * @param address
+     *            the address of the server, see CommandServer.address
+     * @throws IOException
+     *             if the server can not be reached
+     */
+    public CommandClient(SocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        if (address instanceof InetSocketAddress) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        output = ByteBuffer.allocate(CommandServer.BUFFER_SIZE);
+        input = ByteBuffer.allocate(CommandServer.BUFFER_SIZE).flip();
+    }
+
+
+    /**
+     * Adds a command to the ones flush sends. It must not be empty, empty
+     * lines get no answer.
+     *
+     * @param line
+     *            the command
+     * @throws IOException
+     *             if the collected commands had to be sent and could not
+     */
+    public void send(String line) throws IOException {
+        byte[] bytes = (line + "\n").getBytes(Charset.defaultCharset());
+        if (bytes.length > output.remaining()) {
+            flush();
+            if (bytes.length > output.capacity()) {
+                output = ByteBuffer.allocate(bytes.length);
+            }
+        }
+        output.put(bytes);
+    }
+
+
+    /**
+     * Sends the commands collected by send.
+     *
+     * @throws IOException
+     *             if they can not be sent
+     */
+    public void flush() throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+
+
+    /**
+     * Waits for the answer to the oldest command that has none yet.
+     *
+     * @return the output of the command, every line ends with the line
+     *         separator
+     * @throws IOException
+     *             if the connection ends before the whole answer is there
+     */
+    public String receive() throws IOException {
+        StringBuilder answer = new StringBuilder();
+        while (true) {
+            int end = input.position();
+            while (end < input.limit() && input.get(end) != '\n') {
+                end++;
+            }
+            if (end == input.limit()) {
+                fill();
+                continue;
+            }
+            // Drop a "\r" the line separator may have
+            int lineEnd = end > input.position() && input.get(end - 1) == '\r'
+                ? end - 1
+                : end;
+            if (lineEnd == input.position()) {
+                input.position(end + 1);
+                return answer.toString();
+            }
+            byte[] bytes = new byte[lineEnd - input.position()];
+            input.get(bytes);
+            input.position(end + 1);
+            answer.append(new String(bytes, Charset.defaultCharset()))
+                .append(System.lineSeparator());
+        }
+    }
+
+
+    /**
+     * Closes the connection, the server stops once it has answered
+     * everything it has read.
+     *
+     * @throws IOException
+     *             if the connection can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+
+    /**
+     * Reads more bytes after the ones not received yet, in a larger buffer
+     * if they already fill it.
+     *
+     * @throws IOException
+     *             if the connection has ended or can not be read
+     */
+    private void fill() throws IOException {
+        if (input.position() == 0 && input.limit() == input.capacity()) {
+            input = ByteBuffer.allocate(input.capacity() * 2).put(input)
+                .flip();
+        }
+        input.compact();
+        int read = channel.read(input);
+        input.flip();
+        if (read < 0) {
+            throw new EOFException("Connection closed in the middle of an"
+                + " answer");
+        }
+    }
+
+}
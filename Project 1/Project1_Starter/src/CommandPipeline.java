@@ -0,0 +1,608 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class replays a command file on three threads at once instead of
+ * reading, running and printing every line in turn on one thread. The first
+ * stage reads the file with a MappedCommandReader and splits every line into
+ * words, the second runs the commands on the Database, and the third formats
+ * their output and writes it. So reading the file and writing the output
+ * overlap with the commands themselves, and the output is the same, byte for
+ * byte.
+ *
+ * The stages hand the lines on through one ring of slots that is allocated
+ * up front and used over and over. Every slot holds the characters and the
+ * words of a line and the output of its command. Every stage counts the
+ * slots it is done with. A stage only takes a slot the stage before it is
+ * done with, and the reader only reuses a slot once its output is written,
+ * so no slot is ever used by two stages at once. A stage that has to wait
+ * parks until the stage it waits for moves on.
+ *
+ * The output of a command is recorded as the pieces the Database prints, the
+ * third stage turns ints into digits and encodes the text. A command that
+ * fails with an exception stops the reader. The output before it is written,
+ * then replay throws the exception, like a run on one thread would.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class CommandPipeline {
+
+    // the default number of slots in the ring
+    static final int DEFAULT_SIZE = 1 << 12;
+    // how often a stage checks again before it parks
+    private static final int SPINS = 64;
+
+    // the database the commands run on
+    private final Database data;
+    // the slots, a power of two of them
+    private final Slot[] ring;
+    // the stages in order
+    private final Stage reading;
+    private final Stage executing;
+    private final Stage emitting;
+    // how long the last replay took in nanoseconds
+    private long elapsed;
+
+    /**
+     * Creates a pipeline with a ring of 4096 slots.
+     *
+     * @param dataIn
+     *            the database to run the commands on, its output is where the
+     *            output of the commands goes
+     */
+    public CommandPipeline(Database dataIn) {
+        this(dataIn, DEFAULT_SIZE);
+    }
+
+
+    /**
+     * Creates a pipeline with a ring of the given size.
+     *
+     * @param dataIn
+     *            the database to run the commands on, its output is where the
+     *            output of the commands goes
+     * @param size
+     *            the number of slots, rounded up to a power of two
+     */
+    public CommandPipeline(Database dataIn, int size) {
+        data = dataIn;
+        ring = new Slot[Integer.highestOneBit(Math.max(1, size - 1)) << 1];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Slot();
+        }
+        reading = new Stage("read");
+        executing = new Stage("execute");
+        emitting = new Stage("emit");
+    }
+
+
+    /**
+     * Runs every line of the file and writes the output to the output of the
+     * database, which is flushed at the end. Reading runs on the calling
+     * thread, the commands and the output on two new ones.
+     *
+     * @param file
+     *            the command file
+     * @throws IOException
+     *             if the file can not be read, after the output of the lines
+     *             before is written
+     */
+    public void replay(File file) throws IOException {
+        for (Stage stage : new Stage[] {reading, executing, emitting}) {
+            stage.reset();
+        }
+        long begin = System.nanoTime();
+        OutputSink out = data.redirect(null);
+        Thread execute = executing.start(this::execute);
+        Thread emit = emitting.start(() -> emit(out));
+        IOException failed = null;
+        try {
+            new MappedCommandReader().process(file, new Reader());
+        }
+        catch (IOException e) {
+            failed = e;
+        }
+        catch (Stopped e) {
+            // A command failed, replay throws its exception below
+        }
+        finally {
+            reading.time = System.nanoTime() - begin;
+            reading.close();
+            join(execute);
+            join(emit);
+            data.redirect(out);
+            elapsed = System.nanoTime() - begin;
+        }
+        for (Slot slot : ring) {
+            slot.output.clear();
+        }
+        rethrow(emitting.failure);
+        rethrow(executing.failure);
+        if (failed != null) {
+            throw failed;
+        }
+    }
+
+
+    /**
+     * Prints how busy every stage was during the last replay, that is the
+     * part of the time it was not waiting for another stage. The stage that
+     * is busy nearly all the time is the one holding the others back.
+     *
+     * @param report
+     *            where to print the report
+     */
+    public void report(PrintStream report) {
+        report.printf("%-8s %10s %10s %6s%n", "stage", "lines", "busy ms",
+            "busy");
+        for (Stage stage : new Stage[] {reading, executing, emitting}) {
+            long busy = Math.max(0, stage.time - stage.waited);
+            report.printf("%-8s %10d %10.1f %5.1f%%%n", stage.name, stage.done,
+                busy / 1e6, elapsed == 0 ? 0 : busy * 100.0 / elapsed);
+        }
+        report.printf("total %.1f ms%n", elapsed / 1e6);
+    }
+
+
+    /**
+     * The second stage: runs the command of every slot the reader is done
+     * with, with its output recorded in the slot.
+     */
+    private void execute() {
+        CommandProcessor processor = new CommandProcessor(data);
+        long next = 0;
+        long available;
+        try {
+            while ((available = executing.await(reading, next + 1)) > next) {
+                for (; next < available; next++) {
+                    Slot slot = ring[(int)next & (ring.length - 1)];
+                    data.redirect(slot.output);
+                    processor.processor(slot.words, slot, 0, slot.length);
+                    executing.advance(next + 1);
+                }
+            }
+            // Nothing is reported before it is in the log
+            data.flushLog();
+        }
+        catch (RuntimeException | Error e) {
+            // The slot keeps what the command printed before it failed, it
+            // is written too unless the log failed after the last slot
+            executing.fail(e, Math.min(next + 1, reading.done));
+        }
+    }
+
+
+    /**
+     * The third stage: writes the recorded output of every slot that has run
+     * to the sink, in order, and flushes it at the end.
+     *
+     * @param out
+     *            where the output goes
+     */
+    private void emit(OutputSink out) {
+        long next = 0;
+        long available;
+        try {
+            while ((available = emitting.await(executing, next + 1)) > next) {
+                for (; next < available; next++) {
+                    ring[(int)next & (ring.length - 1)].output.replay(out);
+                    emitting.advance(next + 1);
+                }
+            }
+            out.flush();
+        }
+        catch (RuntimeException | Error e) {
+            emitting.fail(e, next);
+        }
+    }
+
+
+    /**
+     * @param failure
+     *            the exception a stage stopped with, or null
+     */
+    private static void rethrow(Throwable failure) {
+        if (failure instanceof Error) {
+            throw (Error)failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException)failure;
+        }
+    }
+
+
+    /**
+     * @param thread
+     *            a stage that has to finish
+     */
+    private static void join(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * The first stage: the MappedCommandReader hands it every trimmed line,
+     * it copies the line into the next slot and splits it into words.
+     */
+    private class Reader extends CommandProcessor {
+
+        /**
+         * Creates the reader, it never runs a command itself.
+         */
+        Reader() {
+            super(data);
+        }
+
+
+        @Override
+        public void processor(CharSequence text, int start, int end) {
+            long next = reading.done;
+            // The slot is free once its output is written
+            if (reading.await(emitting, next + 1 - ring.length) < next + 1
+                - ring.length) {
+                throw new Stopped();
+            }
+            Slot slot = ring[(int)next & (ring.length - 1)];
+            slot.set(text, start, end);
+            slot.words.reset(slot, 0, slot.length);
+            reading.advance(next + 1);
+        }
+
+
+        @Override
+        public void flush() {
+            // The output is written by the last stage
+        }
+    }
+
+
+    /**
+     * Ends the reader when a later stage has stopped early.
+     */
+    private static class Stopped extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates the exception without a stack trace, nobody sees it.
+         */
+        Stopped() {
+            super(null, null, false, false);
+        }
+    }
+
+
+    /**
+     * One stage: the number of slots it is done with, whether it has ended,
+     * and the thread that waits for it to move on, if any. Every stage is
+     * waited for by exactly one other.
+     */
+    private static class Stage {
+        // the name in the report
+        private final String name;
+        // the number of slots the stage is done with
+        private volatile long done;
+        // true once the stage does not take any more slots
+        private volatile boolean closed;
+        // the thread parked until this stage moves on
+        private volatile Thread waiter;
+        // the exception the stage stopped with, a RuntimeException or an
+        // Error
+        private volatile Throwable failure;
+        // how long the stage ran and how much of that it waited, in
+        // nanoseconds
+        private long time;
+        private long waited;
+
+        /**
+         * @param nameIn
+         *            the name in the report
+         */
+        Stage(String nameIn) {
+            name = nameIn;
+        }
+
+
+        /**
+         * Gets ready for a new replay.
+         */
+        void reset() {
+            done = 0;
+            closed = false;
+            failure = null;
+            time = 0;
+            waited = 0;
+        }
+
+
+        /**
+         * Runs the stage on a new thread and times it.
+         *
+         * @param work
+         *            the loop of the stage
+         * @return the thread
+         */
+        Thread start(Runnable work) {
+            Thread thread = new Thread(() -> {
+                long begin = System.nanoTime();
+                try {
+                    work.run();
+                }
+                finally {
+                    time = System.nanoTime() - begin;
+                    close();
+                }
+            }, "CommandPipeline-" + name);
+            thread.start();
+            return thread;
+        }
+
+
+        /**
+         * Marks more slots as done and wakes the stage waiting for them.
+         *
+         * @param count
+         *            the number of slots done now
+         */
+        void advance(long count) {
+            done = count;
+            Thread thread = waiter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+
+        /**
+         * Takes no more slots, the stage waiting for this one goes on with
+         * what is done.
+         */
+        void close() {
+            closed = true;
+            Thread thread = waiter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+
+        /**
+         * Stops the stage because of an exception.
+         *
+         * @param e
+         *            the exception
+         * @param count
+         *            the slots that are done, with the failed one if its
+         *            output has to be written
+         */
+        void fail(Throwable e, long count) {
+            failure = e;
+            done = count;
+            close();
+        }
+
+
+        /**
+         * Waits until the other stage is done with the given number of
+         * slots or has closed. The time spent parked is counted for this
+         * stage.
+         *
+         * @param other
+         *            the stage to wait for
+         * @param needed
+         *            the number of slots it has to be done with
+         * @return the number of slots it is done with, less than needed if it
+         *         has closed before
+         */
+        long await(Stage other, long needed) {
+            long count = other.done;
+            for (int spin = 0; count < needed && spin < SPINS; spin++) {
+                if (other.closed) {
+                    return other.done;
+                }
+                Thread.onSpinWait();
+                count = other.done;
+            }
+            if (count >= needed) {
+                return count;
+            }
+            long begin = System.nanoTime();
+            other.waiter = Thread.currentThread();
+            try {
+                // The waiter is set before done is read again, so a stage
+                // that moves on after this read sees the waiter and wakes it
+                while ((count = other.done) < needed && !other.closed) {
+                    LockSupport.park(this);
+                }
+                return other.done;
+            }
+            finally {
+                other.waiter = null;
+                waited += System.nanoTime() - begin;
+            }
+        }
+    }
+
+
+    /**
+     * One line on its way through the pipeline. The slot is the text of its
+     * line, so the words can be read from it in place.
+     */
+    private static class Slot implements CharSequence {
+        // the characters of the line
+        private char[] chars = new char[64];
+        // the number of characters in the line
+        private int length;
+        // the words of the line
+        private final CommandTokenizer words = new CommandTokenizer();
+        // the output of the command
+        private final RecordedOutput output = new RecordedOutput();
+
+        /**
+         * Copies a line into the slot.
+         *
+         * @param text
+         *            the text holding the line
+         * @param start
+         *            the index of the first character of the line
+         * @param end
+         *            the index after the last character of the line
+         */
+        void set(CharSequence text, int start, int end) {
+            length = end - start;
+            if (length > chars.length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                chars[i] = text.charAt(start + i);
+            }
+        }
+
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+
+
+    /**
+     * Keeps the pieces a command prints in the order they come, so they can
+     * be printed to the real sink later on another thread. The arrays grow
+     * to what the largest output needs and are kept for the next command.
+     */
+    private static class RecordedOutput implements OutputSink {
+        // the kinds of pieces
+        private static final byte TEXT = 0;
+        private static final byte CHAR = 1;
+        private static final byte INT = 2;
+        private static final byte LINE = 3;
+
+        // the kind of every piece
+        private byte[] kinds = new byte[16];
+        // the char or int of every piece, if it has one
+        private int[] numbers = new int[16];
+        // the text of every piece, if it has one
+        private String[] texts = new String[16];
+        // the number of pieces
+        private int size;
+
+        @Override
+        public OutputSink print(String text) {
+            add(TEXT, 0).texts[size - 1] = text;
+            return this;
+        }
+
+
+        @Override
+        public OutputSink print(char c) {
+            return add(CHAR, c);
+        }
+
+
+        @Override
+        public OutputSink print(int number) {
+            return add(INT, number);
+        }
+
+
+        @Override
+        public OutputSink println() {
+            return add(LINE, 0);
+        }
+
+
+        @Override
+        public void flush() {
+            // The pieces are written when the command is done
+        }
+
+
+        /**
+         * Prints the pieces to the sink and forgets them.
+         *
+         * @param out
+         *            the sink to print to
+         */
+        void replay(OutputSink out) {
+            for (int i = 0; i < size; i++) {
+                switch (kinds[i]) {
+                    case TEXT:
+                        out.print(texts[i]);
+                        texts[i] = null;
+                        break;
+                    case CHAR:
+                        out.print((char)numbers[i]);
+                        break;
+                    case INT:
+                        out.print(numbers[i]);
+                        break;
+                    default:
+                        out.println();
+                }
+            }
+            size = 0;
+        }
+
+
+        /**
+         * Forgets the pieces without printing them.
+         */
+        void clear() {
+            java.util.Arrays.fill(texts, 0, size, null);
+            size = 0;
+        }
+
+
+        /**
+         * @param kind
+         *            the kind of the piece
+         * @param number
+         *            its char or int
+         * @return this output
+         */
+        private RecordedOutput add(byte kind, int number) {
+            if (size == kinds.length) {
+                kinds = java.util.Arrays.copyOf(kinds, size * 2);
+                numbers = java.util.Arrays.copyOf(numbers, size * 2);
+                texts = java.util.Arrays.copyOf(texts, size * 2);
+            }
+            kinds[size] = kind;
+            numbers[size++] = number;
+            return this;
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandPipelineTest {
+
+    @Test
+    //the pipeline prints byte for byte what one thread prints, also with a tiny ring
+    void testSameOutputAsSequential() throws IOException {
+        File file = File.createTempFile("commands", ".txt");
+        file.deleteOnExit();
+        StringBuilder commands = new StringBuilder("insert caf\u00e9 1 1 1 1\r\n\n   \n");
+        Random random = new Random(61);
+        for (int i = 0; i < 3000; i++) {
+            commands.append(DatabaseServiceTest.command(random, "r")).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Files.write(file.toPath(), commands.toString().getBytes(StandardCharsets.UTF_8));
+        String expected = SkipListTest.printed(() -> Rectangle1.main(new String[] {file.getPath()})).replaceAll("depth \\d+", "depth N");
+        assertTrue(expected.contains("Rectangle rejected: (caf"));
+
+        for (int size : new int[] {1, 4, 100, CommandPipeline.DEFAULT_SIZE}) {
+            String printed = SkipListTest.printed(() -> {
+                Database data = new Database();
+                try {
+                    new CommandPipeline(data, size).replay(file);
+                }
+                catch (IOException e) {
+                    fail(e);
+                }
+            });
+            assertEquals(expected, printed.replaceAll("depth \\d+", "depth N"), "size " + size);
+        }
+    }
+
+    @Test
+    //the sample command files print the golden output, the report goes to System.err
+    void testSameAsPrintf() throws IOException {
+        for (int test = 1; test <= 2; test++) {
+            String file = "Data/P1test" + test + ".txt";
+            String golden = new String(Files.readAllBytes(Paths.get("Data/P1test" + test + "Golden.txt")));
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            PrintStream old = System.err;
+            System.setErr(new PrintStream(err, true));
+            try {
+                String printed = SkipListTest.printed(() -> Rectangle1.main(new String[] {"-pipeline", file}));
+                assertEquals(golden, printed.replaceAll("depth \\d+", "depth N"), file);
+            }
+            finally {
+                System.setErr(old);
+            }
+            String report = err.toString();
+            for (String stage : new String[] {"read", "execute", "emit"}) {
+                assertTrue(report.contains(stage + " "), report);
+            }
+        }
+    }
+
+    @Test
+    //a failing command stops the pipeline after the output of the commands before it
+    void testFailedCommand() throws IOException {
+        File file = File.createTempFile("commands", ".txt");
+        file.deleteOnExit();
+        StringBuilder commands = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            commands.append("insert r").append(i).append(" 1 2 3 4\n");
+        }
+        commands.append("insert bad x 2 3 4\n");
+        for (int i = 0; i < 10000; i++) {
+            commands.append("search r").append(i).append('\n');
+        }
+        Files.write(file.toPath(), commands.toString().getBytes(StandardCharsets.US_ASCII));
+
+        String expected = SkipListTest.printed(() -> {
+            assertThrows(NumberFormatException.class, () -> Rectangle1.main(new String[] {file.getPath()}));
+        });
+        assertTrue(expected.endsWith("Rectangle inserted: (r499, 1, 2, 3, 4)" + System.lineSeparator()));
+        for (int size : new int[] {2, 64}) {
+            Database data = new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink());
+            CommandPipeline pipeline = new CommandPipeline(data, size);
+            assertEquals(expected, SkipListTest.printed(() -> {
+                assertThrows(NumberFormatException.class, () -> pipeline.replay(file));
+            }), "size " + size);
+            // The database writes to its own sink again
+            assertNotNull(data.output());
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            pipeline.report(new PrintStream(err, true));
+            assertTrue(err.toString().contains("execute"));
+        }
+    }
+
+}
@@ -14,17 +14,38 @@ public class CommandProcessor {
     // commands that the command processor
     // feeds to it
     private Database data;
+    
+    // splits every line into words, reused for all lines
+    private CommandTokenizer words;
 
     /**
-     * The constructor for the command processor requires a database instance to
-     * exist, so the only constructor takes a database class object to feed
-     * commands to.
+     * The constructor for the command processor makes a new, empty database
+     * to feed commands to.
+     */
+    public CommandProcessor() {
+        this(new Database());
+    }
+
+
+    /**
+     * This constructor takes an existing database class object to feed
+     * commands to, for example one writing its output somewhere else.
      * 
      * @param dataIn
      *            the database object to manipulate
      */
-    public CommandProcessor() {
-        data = new Database();
+    public CommandProcessor(Database dataIn) {
+        data = dataIn;
+        words = new CommandTokenizer();
+    }
+
+
+    /**
+     * Writes out all output of the commands processed so far. The output is
+     * buffered, so this has to be called after the last command.
+     */
+    public void flush() {
+        data.flush();
     }
 
 
@@ -33,7 +54,7 @@ public class CommandProcessor {
      * database as required. Each line command will be specified by one of the
      * keywords to perform the actions within the database required. These
      * actions are performed on specified objects and include insert, remove,
-     * regionsearch, search, intersections, and dump. If the command in the file line is not
+     * regionsearch, rangesearch, search, intersections, dump, save, load and checkpoint. If the command in the file line is not
      * one of these, an appropriate message will be written in the console. This
      * processor method is called for each line in the file. Note that the
      * methods called will themselves write to the console, this method does
@@ -43,68 +64,131 @@ public class CommandProcessor {
      *            a single line from the text file
      */
     public void processor(String line) {
+        processor(line, 0, line.length());
+    }
+
+
+    /**
+     * Processes the line made of the characters of text between start and
+     * end, exactly like processor(String) would process that line. The words
+     * are found by the CommandTokenizer and read in place, so no String is
+     * made except for rectangle names (and the line itself when it is
+     * invalid).
+     * 
+     * @param text
+     *            the text holding the line, for example a whole file
+     * @param start
+     *            the index of the first character of the line
+     * @param end
+     *            the index after the last character of the line
+     */
+    public void processor(CharSequence text, int start, int end) {
         // Split the command into individual words
-        String[] words = line.split("\\s+");
+        words.reset(text, start, end);
+        processor(words, text, start, end);
+    }
+
+
+    /**
+     * Processes a line that a tokenizer has split into words already, for
+     * example on another thread, exactly like processor(text, start, end)
+     * would process it.
+     * 
+     * @param tokens
+     *            the tokenizer that split the line, reset on text
+     * @param text
+     *            the text holding the line
+     * @param start
+     *            the index of the first character of the line
+     * @param end
+     *            the index after the last character of the line
+     */
+    public void processor(CommandTokenizer tokens, CharSequence text, int start, int end) {
+        int count = tokens.count();
         
-        // Perform an action based on the first word of the command
-        switch (words[0]) {
+        // A line starting with whitespace has an empty first word, which is
+        // not a command
+        if (count == 0 || tokens.start(0) != start) {
+            invalid(text, start, end);
+            return;
+        }
         
-        	// Insert a new rectangle into the data structure
-            case "insert":
-                String name = words[1];
-                // Casting string to int
-                int x = Integer.parseInt(words[2]);
-                int y = Integer.parseInt(words[3]);
-                int w = Integer.parseInt(words[4]);
-                int h = Integer.parseInt(words[5]);
-                // Creating rectangle with the given value
-                Rectangle rect = new Rectangle(x, y, w, h);
-                // Creating pair with the name and rectangle
-                KVPair<String, Rectangle> newPair = new KVPair<String, Rectangle>(name,rect);
-                data.insert(newPair);
-                break;
-                
-            // Remove a rectangle from the data structure
-            case "remove":
-                // Remove by name (1 for 'remove' and other for 'name')
-                if (words.length == 2) {
-                    data.remove(words[1]);
-                }
-                // Remove by value (1 for remove and others for x ,y ,width and height)
-                else if (words.length == 5) {
-                    data.remove(Integer.parseInt(words[1]), Integer.parseInt(words[2]), Integer.parseInt(words[3]), Integer.parseInt(words[4]));
-                }
-                break;
-                
+        // Perform an action based on the first word of the command
+        if (tokens.matches(0, "insert")) {
+            // Insert a new rectangle into the data structure
+            String name = tokens.stringAt(1);
+            // Parsing the words to int
+            int x = tokens.intAt(2);
+            int y = tokens.intAt(3);
+            int w = tokens.intAt(4);
+            int h = tokens.intAt(5);
+            // Creating rectangle with the given value
+            Rectangle rect = new Rectangle(x, y, w, h);
+            // Creating pair with the name and rectangle
+            KVPair<String, Rectangle> newPair = new KVPair<String, Rectangle>(name,rect);
+            data.insert(newPair);
+        }
+        else if (tokens.matches(0, "remove")) {
+            // Remove by name (1 for 'remove' and other for 'name')
+            if (count == 2) {
+                data.remove(tokens.stringAt(1));
+            }
+            // Remove by value (1 for remove and others for x ,y ,width and height)
+            else if (count == 5) {
+                data.remove(tokens.intAt(1), tokens.intAt(2), tokens.intAt(3), tokens.intAt(4));
+            }
+        }
+        else if (tokens.matches(0, "search")) {
             // Search for rectangles with the given name
-            case "search":
-                data.search(words[1]);
-                break;
-                
+            data.search(tokens.stringAt(1));
+        }
+        else if (tokens.matches(0, "regionsearch")) {
             // Search for rectangles that intersect with the given region
-            case "regionsearch":
-            	// Casting string to int
-                int xx = Integer.parseInt(words[1]);
-                int yy = Integer.parseInt(words[2]);
-                int ww = Integer.parseInt(words[3]);
-                int hh = Integer.parseInt(words[4]);
-                data.regionsearch(xx, yy, ww, hh);
-                break;
-                
+            data.regionsearch(tokens.intAt(1), tokens.intAt(2), tokens.intAt(3), tokens.intAt(4));
+        }
+        else if (tokens.matches(0, "rangesearch")) {
+            // Search for rectangles whose name is in the given range
+            data.rangesearch(tokens.stringAt(1), tokens.stringAt(2));
+        }
+        else if (tokens.matches(0, "intersections")) {
             // Print all pairs of rectangles that intersect
-            case "intersections":
-                data.intersections();
-                break;
-                
+            data.intersections();
+        }
+        else if (tokens.matches(0, "dump")) {
             // Dump the data structure
-            case "dump":
-                data.dump();
-                break;
-                
+            data.dump();
+        }
+        else if (tokens.matches(0, "save") && count == 2) {
+            // Write all rectangles to a snapshot file
+            data.save(tokens.stringAt(1));
+        }
+        else if (tokens.matches(0, "load") && count == 2) {
+            // Replace all rectangles with the ones in a snapshot file
+            data.load(tokens.stringAt(1));
+        }
+        else if (tokens.matches(0, "checkpoint") && count == 1) {
+            // Write a snapshot next to the log and empty the log
+            data.checkpoint();
+        }
+        else {
             // Handle invalid commands
-            default:
-                System.out.println("Invalid command: " + line);
+            invalid(text, start, end);
         }
     }
 
+
+    /**
+     * Prints the message for a line that is not a command.
+     * 
+     * @param text
+     *            the text holding the line
+     * @param start
+     *            the index of the first character of the line
+     * @param end
+     *            the index after the last character of the line
+     */
+    private void invalid(CharSequence text, int start, int end) {
+        data.output().print("Invalid command: ").print(text.subSequence(start, end).toString()).println();
+    }
+
 }
@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class serves the command language of the command files over a socket,
+ * a TCP port on the loopback address or a Unix domain socket, so other
+ * programs can query a running Database. Every connection gets a thread and
+ * a Session of a DatabaseService, so reads of different connections run side
+ * by side.
+ *
+ * A client sends command lines exactly like the lines of a command file and
+ * gets the output of every command back, in order, followed by an empty
+ * line. No command prints an empty line, so it marks the end of the answer.
+ * Empty lines get no answer. Clients may send many commands without waiting
+ * for the answers: the server reads as many bytes as are there, runs all
+ * complete lines in them and only then writes all their answers, so a full
+ * pipeline is answered with a few large writes instead of one write per
+ * command.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class CommandServer implements Runnable, AutoCloseable {
+
+    // the size of the buffers a connection reads into and writes from
+    static final int BUFFER_SIZE = 1 << 16;
+    // the longest line a client may send
+    static final int MAX_LINE = 1 << 20;
+    // written after the output of every command
+    private static final String END = System.lineSeparator();
+
+    // runs the commands of all connections
+    private final DatabaseService service;
+    // the socket the connections come in on
+    private final ServerSocketChannel server;
+    // the connections that are open
+    private final Set<SocketChannel> connections;
+
+    /**
+     * Opens the socket, connections are accepted by run.
+     *
+     * @param serviceIn
+     *            the service that runs the commands
+     * @param address
+     *            a TCP address or a UnixDomainSocketAddress, see address
+     * @throws IOException
+     *             if the socket can not be opened, for example because the
+     *             port is taken or the path exists
+     */
+    public CommandServer(DatabaseService serviceIn, SocketAddress address)
+        throws IOException {
+        service = serviceIn;
+        server = address instanceof UnixDomainSocketAddress
+            ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+            : ServerSocketChannel.open();
+        try {
+            server.bind(address);
+        }
+        catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        connections = ConcurrentHashMap.newKeySet();
+    }
+
+
+    /**
+     * @param text
+     *            a port number, 0 for any free one, or the path of a Unix
+     *            domain socket
+     * @return the port on the loopback address, or the socket at the path
+     */
+    public static SocketAddress address(String text) {
+        if (!text.isEmpty() && text.chars().allMatch(Character::isDigit)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(text));
+        }
+        return UnixDomainSocketAddress.of(text);
+    }
+
+
+    /**
+     * @return the address clients connect to, with the actual port when
+     *         port 0 was asked for
+     * @throws IOException
+     *             if the server is closed
+     */
+    public SocketAddress address() throws IOException {
+        return server.getLocalAddress();
+    }
+
+
+    /**
+     * Accepts connections until the server is closed. Every connection is
+     * served on a new daemon thread.
+     */
+    @Override
+    public void run() {
+        int count = 0;
+        while (server.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            }
+            catch (IOException e) {
+                // Closing the server ends the accept with an exception
+                if (server.isOpen()) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+            connections.add(channel);
+            Thread thread = new Thread(() -> serve(channel),
+                "CommandServer-" + ++count);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+
+    /**
+     * Closes the socket and every connection. The commands that are already
+     * running finish, their answers are lost. A Unix domain socket file is
+     * deleted.
+     *
+     * @throws IOException
+     *             if the socket file can not be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        SocketAddress address = server.isOpen() ? server.getLocalAddress()
+            : null;
+        server.close();
+        for (SocketChannel channel : connections) {
+            channel.close();
+        }
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress)address).getPath());
+        }
+    }
+
+
+    /**
+     * Serves one connection until the client closes it. A command that fails
+     * with an exception closes the connection.
+     *
+     * @param channel
+     *            the connection
+     */
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            try {
+                commands(channel);
+            }
+            catch (RuntimeException e) {
+                // A command failed, like it would end a run over a file. The
+                // client hears of it when the connection is closed
+                if (!(e instanceof UncheckedIOException)) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        catch (IOException e) {
+            // The client went away or the server was closed
+        }
+        finally {
+            connections.remove(channel);
+        }
+    }
+
+
+    /**
+     * Runs the commands of one connection until the client closes it.
+     *
+     * @param channel
+     *            the connection
+     * @throws IOException
+     *             if the connection can not be read
+     */
+    private void commands(SocketChannel channel) throws IOException {
+        if (channel.getLocalAddress() instanceof InetSocketAddress) {
+            // The answers are batched already, send them right away
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        // Only this thread reads and writes the channel
+        DatabaseService.Session session = service.open(new BufferedOutputSink(
+            Channels.newOutputStream(channel), BUFFER_SIZE), END);
+        ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+        while (channel.read(input) >= 0) {
+            int complete = MappedCommandReader.lastLineEnd(input, input
+                .position());
+            if (complete == 0) {
+                if (!input.hasRemaining()) {
+                    input = grow(input);
+                }
+                continue;
+            }
+            // All complete lines that are here run before any answer goes
+            // out, so their answers leave in one write
+            MappedCommandReader.processLines(input, complete, session);
+            session.flush();
+            // Keep the start of the next line
+            input.limit(input.position()).position(complete);
+            input.compact();
+        }
+        // The last line may have no line terminator
+        MappedCommandReader.processLines(input, input.position(), session);
+        session.flush();
+    }
+
+
+    /**
+     * @param input
+     *            a full buffer holding part of one line
+     * @return a buffer twice as large holding the same bytes
+     * @throws IOException
+     *             if the line is longer than MAX_LINE
+     */
+    private static ByteBuffer grow(ByteBuffer input) throws IOException {
+        if (input.capacity() >= MAX_LINE) {
+            throw new IOException("Line longer than " + MAX_LINE + " bytes");
+        }
+        ByteBuffer larger = ByteBuffer.allocate(input.capacity() * 2);
+        input.flip();
+        return larger.put(input);
+    }
+
+}
@@ -0,0 +1,202 @@
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandServerTest {
+
+    @Test
+    //every pipelined command gets its own answer, the one a CommandProcessor prints
+    void testPipelinedAnswers() throws Exception {
+        ArrayList<String> commands = new ArrayList<>();
+        ArrayList<String> expected = new ArrayList<>();
+        Random random = new Random(59);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CommandProcessor serial = new CommandProcessor(new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink(bytes)));
+        for (int i = 0; i < 3000; i++) {
+            String line = DatabaseServiceTest.command(random, "r");
+            commands.add(line);
+            serial.processor(line.trim());
+            serial.flush();
+            expected.add(bytes.toString().replaceAll("depth \\d+", "depth N"));
+            bytes.reset();
+        }
+
+        try (DatabaseService service = new DatabaseService(new Database(), 2);
+            CommandServer server = start(service, CommandServer.address("0"));
+            CommandClient client = new CommandClient(server.address())) {
+            // The commands go out while the answers come in
+            Thread sender = new Thread(() -> {
+                try {
+                    for (String line : commands) {
+                        client.send(line);
+                        if (random.nextInt(100) == 0) {
+                            client.flush();
+                        }
+                    }
+                    client.flush();
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            sender.start();
+            for (int i = 0; i < commands.size(); i++) {
+                assertEquals(expected.get(i), client.receive().replaceAll("depth \\d+", "depth N"), commands.get(i));
+            }
+            sender.join();
+        }
+    }
+
+    @Test
+    //clients on a Unix domain socket each get the answers they would get alone
+    void testUnixSocketClients() throws Exception {
+        File dir = Files.createTempDirectory("server").toFile();
+        dir.deleteOnExit();
+        File socket = new File(dir, "db.sock");
+        int clients = 4;
+        ArrayList<ArrayList<String>> scripts = new ArrayList<>();
+        ArrayList<String> expected = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Random random = new Random(c);
+            ArrayList<String> script = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                String line = DatabaseServiceTest.command(random, "c" + c + "n");
+                // these see the rectangles of other clients
+                if (!line.startsWith("regionsearch") && !line.startsWith("intersections") && !line.startsWith("dump")) {
+                    script.add(line);
+                }
+            }
+            scripts.add(script);
+            ByteArrayOutputStream alone = new ByteArrayOutputStream();
+            CommandProcessor processor = new CommandProcessor(new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink(alone)));
+            script.forEach(line -> processor.processor(line.trim()));
+            processor.flush();
+            expected.add(alone.toString());
+        }
+
+        String[] printed = new String[clients];
+        Throwable[] failure = new Throwable[1];
+        try (DatabaseService service = new DatabaseService(new Database(), 3);
+            CommandServer server = start(service, CommandServer.address(socket.getPath()))) {
+            assertEquals(UnixDomainSocketAddress.of(socket.getPath()), server.address());
+            Thread[] threads = new Thread[clients];
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                threads[c] = new Thread(() -> {
+                    StringBuilder answers = new StringBuilder();
+                    try (CommandClient connection = new CommandClient(server.address())) {
+                        // windows of 20 commands in flight
+                        ArrayList<String> script = scripts.get(client);
+                        for (int i = 0; i < script.size(); i += 20) {
+                            int end = Math.min(script.size(), i + 20);
+                            for (String line : script.subList(i, end)) {
+                                connection.send(line);
+                            }
+                            connection.flush();
+                            for (int j = i; j < end; j++) {
+                                answers.append(connection.receive());
+                            }
+                        }
+                        printed[client] = answers.toString();
+                    }
+                    catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                });
+                threads[c].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure[0] != null) {
+                fail(failure[0]);
+            }
+            for (int c = 0; c < clients; c++) {
+                assertEquals(expected.get(c), printed[c], "client " + c);
+            }
+        }
+        assertFalse(socket.exists());
+    }
+
+    @Test
+    //lines split over many writes, "\r\n" and a last line without terminator are all answered
+    void testPartialLines() throws Exception {
+        try (DatabaseService service = new DatabaseService(new Database(), 1);
+            CommandServer server = start(service, CommandServer.address("0"))) {
+            SocketAddress address = server.address();
+            try (SocketChannel raw = SocketChannel.open(address); CommandClient client = new CommandClient(address)) {
+                String text = "insert a 1 2 3 4\r\n\n  search a  \nsearch b\nremove a";
+                for (int i = 0; i < text.length(); i++) {
+                    raw.write(ByteBuffer.wrap(new byte[] {(byte)text.charAt(i)}));
+                    if (i % 7 == 0) {
+                        Thread.sleep(1);
+                    }
+                }
+                raw.shutdownOutput();
+                ByteBuffer answers = ByteBuffer.allocate(1024);
+                while (raw.read(answers) >= 0) {
+                    assertTrue(answers.hasRemaining());
+                }
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                CommandProcessor serial = new CommandProcessor(new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink(bytes)));
+                StringBuilder expected = new StringBuilder();
+                for (String line : new String[] {"insert a 1 2 3 4", "search a", "search b", "remove a"}) {
+                    serial.processor(line);
+                    serial.flush();
+                    expected.append(bytes).append(System.lineSeparator());
+                    bytes.reset();
+                }
+                assertEquals(expected.toString(),
+                    new String(answers.array(), 0, answers.position()));
+
+                // A command that fails ends only its own connection
+                ByteArrayOutputStream err = new ByteArrayOutputStream();
+                java.io.PrintStream old = System.err;
+                System.setErr(new java.io.PrintStream(err));
+                try {
+                    client.send("insert b x 2 3 4");
+                    client.flush();
+                    assertThrows(EOFException.class, client::receive);
+                }
+                finally {
+                    System.setErr(old);
+                }
+                assertTrue(err.toString().contains("NumberFormatException"));
+                try (CommandClient other = new CommandClient(address)) {
+                    other.send("search a");
+                    other.flush();
+                    assertTrue(other.receive().startsWith("Rectangle not found: a"));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param service
+     *            the service to run the commands
+     * @param address
+     *            where to listen
+     * @return a server accepting connections on another thread
+     * @throws IOException
+     *             if the server can not be opened
+     */
+    static CommandServer start(DatabaseService service, SocketAddress address) throws IOException {
+        CommandServer server = new CommandServer(service, address);
+        Thread thread = new Thread(server);
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+}
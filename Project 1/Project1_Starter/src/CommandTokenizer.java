@@ -0,0 +1,200 @@
+/**
+ * This class splits one command line into its words without creating any
+ * objects. It only records where every word starts and ends in the text, the
+ * words can then be compared with keywords or parsed as ints in place. Only
+ * words that are really needed as text, like the name of a rectangle, are
+ * turned into a String. One tokenizer is reused for every line.
+ *
+ * Words are separated by the same whitespace characters as the regular
+ * expression \s+ (space, tab, line feed, vertical tab, form feed and carriage
+ * return), so a line splits into the same words as line.split("\\s+").
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class CommandTokenizer {
+
+    // the line being split
+    private CharSequence text;
+    // where every word starts and ends (exclusive) in the text
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    // the number of words in the line
+    private int count;
+
+    /**
+     * Splits the characters of text between start and end into words.
+     *
+     * @param textIn
+     *            the text holding the line
+     * @param start
+     *            the index of the first character of the line
+     * @param end
+     *            the index after the last character of the line
+     * @return the number of words
+     */
+    public int reset(CharSequence textIn, int start, int end) {
+        text = textIn;
+        count = 0;
+        int i = start;
+        while (i < end) {
+            // Skip the whitespace in front of the next word
+            while (i < end && isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i == end) {
+                break;
+            }
+            if (count == starts.length) {
+                starts = java.util.Arrays.copyOf(starts, count * 2);
+                ends = java.util.Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = i;
+            while (i < end && !isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            ends[count++] = i;
+        }
+        return count;
+    }
+
+
+    /**
+     * @return the number of words in the line
+     */
+    public int count() {
+        return count;
+    }
+
+
+    /**
+     * @param index
+     *            the number of the word
+     * @return the index in the text where the word starts
+     */
+    public int start(int index) {
+        check(index);
+        return starts[index];
+    }
+
+
+    /**
+     * Compares a word with a keyword without creating a String.
+     *
+     * @param index
+     *            the number of the word
+     * @param word
+     *            the keyword to compare with
+     * @return true if the word is exactly the keyword
+     */
+    public boolean matches(int index, String word) {
+        check(index);
+        int start = starts[index];
+        if (ends[index] - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (text.charAt(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Parses a word as a decimal int straight from the text. It accepts and
+     * rejects exactly what Integer.parseInt does.
+     *
+     * @param index
+     *            the number of the word
+     * @return the value of the word
+     * @throws NumberFormatException
+     *             if the word is not a valid int
+     */
+    public int intAt(int index) {
+        check(index);
+        int i = starts[index];
+        int end = ends[index];
+        boolean negative = false;
+        // Like Integer.parseInt the value is built up as a negative number,
+        // which can also hold Integer.MIN_VALUE
+        int limit = -Integer.MAX_VALUE;
+        char first = text.charAt(i);
+        if (first == '-' || first == '+') {
+            if (first == '-') {
+                negative = true;
+                limit = Integer.MIN_VALUE;
+            }
+            i++;
+            if (i == end) {
+                throw badNumber(index);
+            }
+        }
+        int multmin = limit / 10;
+        int result = 0;
+        while (i < end) {
+            int digit = Character.digit(text.charAt(i++), 10);
+            if (digit < 0 || result < multmin) {
+                throw badNumber(index);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw badNumber(index);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+
+    /**
+     * Copies a word into a new String, for words that have to be kept.
+     *
+     * @param index
+     *            the number of the word
+     * @return the word
+     */
+    public String stringAt(int index) {
+        check(index);
+        return text.subSequence(starts[index], ends[index]).toString();
+    }
+
+
+    /**
+     * @param c
+     *            a character
+     * @return true if \s matches the character
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+            || c == '\f' || c == '\r';
+    }
+
+
+    /**
+     * Fails the same way indexing past the end of line.split would.
+     *
+     * @param index
+     *            the number of the word
+     */
+    private void check(int index) {
+        if (index < 0 || index >= count) {
+            throw new ArrayIndexOutOfBoundsException("Index " + index
+                + " out of bounds for length " + count);
+        }
+    }
+
+
+    /**
+     * @param index
+     *            the number of the word that could not be parsed
+     * @return the exception Integer.parseInt would throw
+     */
+    private NumberFormatException badNumber(int index) {
+        return new NumberFormatException("For input string: \"" + stringAt(
+            index) + "\"");
+    }
+
+}
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandTokenizerTest {
+    CommandTokenizer words;
+    @BeforeEach
+    public void setUp() {
+        words = new CommandTokenizer();
+    }
+
+    @Test
+    //the tokenizer should find the same words as line.split("\\s+")
+    void testSameWordsAsSplit() {
+        String[] lines = {
+            "insert r1 10 10 5 5",
+            "insert inExist_Rec0\t1\t1\t0\t10",
+            "regionsearch   11 11                 0 0",
+            "remove 12 1 7 -6\t",
+            "a\u000Bb\fc\rd",
+            "dump",
+            "one two three four five six seven eight nine ten eleven",
+        };
+        for (String line : lines) {
+            String[] split = line.split("\\s+");
+            assertEquals(split.length, words.reset(line, 0, line.length()), line);
+            for (int i = 0; i < split.length; i++) {
+                assertTrue(words.matches(i, split[i]));
+                assertEquals(split[i], words.stringAt(i));
+            }
+        }
+        assertEquals(0, words.reset("   ", 0, 3));
+        //only the given part of the text is split
+        assertEquals(2, words.reset("xx search r1 yy", 3, 12));
+        assertEquals("r1", words.stringAt(1));
+        assertFalse(words.matches(0, "searc"));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> words.stringAt(2));
+    }
+
+    @Test
+    //intAt should accept and reject the same words as Integer.parseInt
+    void testIntAtLikeParseInt() {
+        String[] numbers = {"0", "7", "-8", "+12", "1024", "00042", "2147483647", "-2147483648",
+            "2147483648", "-2147483649", "99999999999", "-", "+", "1x", "x1", "--1", "1-"};
+        for (String number : numbers) {
+            words.reset(number, 0, number.length());
+            Integer expected;
+            try {
+                expected = Integer.parseInt(number);
+            }
+            catch (NumberFormatException e) {
+                expected = null;
+            }
+            if (expected == null) {
+                assertThrows(NumberFormatException.class, () -> words.intAt(0), number);
+            }
+            else {
+                assertEquals(expected.intValue(), words.intAt(0), number);
+            }
+        }
+    }
+
+    @Test
+    //unknown keywords and lines starting with whitespace are invalid commands
+    void testInvalidCommand() {
+        CommandProcessor processor = new CommandProcessor();
+        assertEquals("Invalid command: hello world\n", SkipListTest.printed(() -> { processor.processor("hello world"); processor.flush(); }));
+        assertEquals("Invalid command:  dump\n", SkipListTest.printed(() -> { processor.processor(" dump"); processor.flush(); }));
+        assertEquals("Invalid command: \n", SkipListTest.printed(() -> { processor.processor(""); processor.flush(); }));
+        assertEquals("Rectangle inserted: (a, 1, 2, 3, 4)\n", SkipListTest.printed(() -> { processor.processor("[insert a 1 2 3 4]", 1, 17); processor.flush(); }));
+    }
+
+}
@@ -0,0 +1,742 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * This class implements a lock-free SkipList that can be shared by many
+ * threads. It offers the same operations as SkipList and can be swapped in
+ * behind the Database. Every tower is linked with compare-and-set on
+ * AtomicMarkableReference links, and a node is deleted by first marking its
+ * links (logical deletion) and then snipping it out (physical deletion), so
+ * readers never block and never see a half-removed node. Like SkipList,
+ * duplicate keys are allowed and a new pair is placed in front of any pairs
+ * that already have the same key.
+ *
+ * Long scans can pin a View, a consistent snapshot of the list as it was
+ * when the View was opened, while inserts and removes go on (multi-version
+ * concurrency control). Every insert and remove takes a version number from
+ * a clock and stamps it on the node, and a View only sees the nodes inserted
+ * at or before its version and not removed by then. A View that meets a
+ * node whose stamp is still being written stamps it itself with a newer
+ * version, so every pass over a View agrees. A removed node is hidden
+ * from everything else at once, but it stays linked until no open View is
+ * older than its removal, then it is marked and snipped out as above.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ * @param <K>
+ *            Key
+ * @param <V>
+ *            Value
+ */
+public class ConcurrentSkipList<K extends Comparable<? super K>, V>
+    implements SkipListADT<K, V> {
+
+    // the highest level a tower can reach, the head is always this tall
+    // so that it never has to be replaced like SkipList.adjustHead does
+    static final int MAX_LEVEL = 31;
+
+    private final SkipNode head; // sentinel in front of every level
+    private final AtomicInteger size; // number of entries in the Skip List
+    private final AtomicInteger level; // highest level used so far
+    // the stamp of the node not yet stamped by its insert or remove
+    private static final long PENDING = Long.MAX_VALUE;
+    // the version of the last insert or remove
+    private final AtomicLong clock;
+    // the open Views, each pinning the nodes it can still see
+    private final Set<View> views;
+    // removed nodes kept linked for an open View, oldest removal first
+    private final ConcurrentLinkedQueue<SkipNode> retired;
+    // held by the one thread snipping out retired nodes
+    private final AtomicBoolean reclaiming;
+
+    /**
+     * Initializes the fields head, size and level and the versioning
+     */
+    public ConcurrentSkipList() {
+        head = new SkipNode(null, MAX_LEVEL);
+        size = new AtomicInteger(0);
+        level = new AtomicInteger(0);
+        clock = new AtomicLong(0);
+        views = ConcurrentHashMap.newKeySet();
+        retired = new ConcurrentLinkedQueue<>();
+        reclaiming = new AtomicBoolean(false);
+    }
+
+
+    /**
+     * Returns a random level number which is used as the depth of the SkipNode.
+     * It follows the same distribution as SkipList.randomLevel but uses a
+     * per-thread random generator so threads do not contend on it.
+     *
+     * @return a random level number
+     */
+    int randomLevel() {
+        int lev;
+        ThreadLocalRandom value = ThreadLocalRandom.current();
+        for (lev = 0; lev < MAX_LEVEL && value.nextBoolean(); lev++) {
+            // Do nothing
+        }
+        return lev; // returns a random level
+    }
+
+
+    /**
+     * Searches for the KVPair using the key which is a Comparable object. This
+     * never modifies the list, marked nodes are simply stepped over.
+     *
+     * @param key
+     *            key to be searched for
+     * @return An ArrayList of KVPair(s) associated with the given key if found,
+     *         otherwise an empty ArrayList is returned
+     */
+    @Override
+    public ArrayList<KVPair<K, V>> search(K key) {
+        // Create an ArrayList to carry all found KVPair objects
+        ArrayList<KVPair<K, V>> foundPairs = new ArrayList<>();
+        boolean[] marked = { false };
+        SkipNode currentNode = head;
+
+        // Starting from the highest level and move downwards
+        for (int i = MAX_LEVEL; i >= 0; i--) {
+            SkipNode next = currentNode.forward[i].getReference();
+            while (next != null) {
+                SkipNode succ = next.forward[i].get(marked);
+                // Step over deleted nodes
+                if (marked[0]) {
+                    next = succ;
+                    continue;
+                }
+                if (next.element().getKey().compareTo(key) >= 0) {
+                    break;
+                }
+                currentNode = next;
+                next = succ;
+            }
+        }
+
+        // Collect every live node with the given key at level 0
+        SkipNode next = currentNode.forward[0].getReference();
+        while (next != null && next.element().getKey().compareTo(key) <= 0) {
+            SkipNode succ = next.forward[0].get(marked);
+            if (!marked[0] && next.removed.get() == 0 && next.element()
+                .getKey().compareTo(key) == 0) {
+                foundPairs.add(next.element());
+            }
+            next = succ;
+        }
+
+        return foundPairs;
+    }
+
+
+    /**
+     * @return the size of the SkipList
+     */
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+
+    /**
+     * Inserts the KVPair in the SkipList at its appropriate spot as designated
+     * by its lexicoragraphical order. The node becomes visible once it is
+     * linked at level 0, and to Views opened after its version is stamped.
+     * The upper levels are linked afterwards.
+     *
+     * @param it
+     *            the KVPair to be inserted
+     */
+    @Override
+    public void insert(KVPair<K, V> it) {
+        // Create random new level for new node
+        int newLevel = randomLevel();
+        K key = it.getKey();
+        SkipNode newNode = new SkipNode(it, newLevel);
+
+        // Positions of the nodes before and after the new node at every level
+        SkipNode[] preds = newPath();
+        SkipNode[] succs = newPath();
+
+        while (true) {
+            find(key, false, preds, succs);
+            for (int i = 0; i <= newLevel; i++) {
+                newNode.forward[i].set(succs[i], false);
+            }
+            // Linking level 0 is what makes the node part of the list
+            if (!preds[0].forward[0].compareAndSet(succs[0], newNode, false,
+                false)) {
+                continue;
+            }
+            break;
+        }
+        settle(newNode.inserted);
+        size.incrementAndGet();
+        raiseLevel(newLevel);
+
+        // Link the rest of the tower, redoing the search when a link changed
+        for (int i = 1; i <= newLevel; i++) {
+            while (true) {
+                if (preds[i].forward[i].compareAndSet(succs[i], newNode, false,
+                    false)) {
+                    break;
+                }
+                find(key, false, preds, succs);
+                // Stop if the node was removed while we were linking it
+                if (newNode.forward[0].isMarked()) {
+                    return;
+                }
+                // Point the tower at the fresh successor before trying again
+                SkipNode succ = newNode.forward[i].getReference();
+                if (succ != succs[i] && !newNode.forward[i].compareAndSet(succ,
+                    succs[i], false, false)) {
+                    return;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Removes the first KVPair with the given key.
+     *
+     * @param key
+     *            the key of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    @Override
+    public KVPair<K, V> remove(K key) {
+        SkipNode[] preds = newPath();
+        SkipNode[] succs = newPath();
+
+        while (true) {
+            find(key, false, preds, succs);
+            SkipNode victim = succs[0];
+            // Step over removed nodes still linked for a View
+            while (victim != null && victim.removed.get() != 0) {
+                victim = victim.forward[0].getReference();
+            }
+            // Checking if found the node needs to remove
+            if (victim == null || victim.element().getKey().compareTo(
+                key) != 0) {
+                return null;
+            }
+            // Another thread may win the race for this node, then try again
+            if (retire(victim)) {
+                return victim.element();
+            }
+        }
+    }
+
+
+    /**
+     * Removes a KVPair with the specified value.
+     *
+     * @param val
+     *            the value of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    @Override
+    public KVPair<K, V> removeByValue(V val) {
+        boolean[] marked = { false };
+        SkipNode currentNode = head.forward[0].getReference();
+
+        // Go for every node one by one
+        while (currentNode != null) {
+            SkipNode succ = currentNode.forward[0].get(marked);
+            V currentNodeValue = currentNode.element().getValue();
+            // Only a thread that marks the node itself gets to remove it
+            if (!marked[0] && currentNode.removed.get() == 0
+                && currentNodeValue != null && currentNodeValue.equals(val)
+                && retire(currentNode)) {
+                return currentNode.element();
+            }
+            currentNode = succ;
+        }
+
+        // Return null if the pair not found
+        return null;
+    }
+
+
+    /**
+     * Writes the SkipList in a human readable format to the sink. It is
+     * written from a View, so it shows the list at one moment even while
+     * other threads are writing.
+     *
+     * @param out
+     *            the sink to write to
+     */
+    @Override
+    public void dump(OutputSink out) {
+        // Print the header for the skip list dump
+        out.print("SkipList dump:").println();
+        out.print("Node has depth ").print(level.get()).print(", Value (null)")
+            .println();
+
+        int count = 0;
+
+        // Loop through each node the View sees at level 0
+        try (View view = snapshot()) {
+            SkipNode currentNode = view.advance(head);
+            while (currentNode != null) {
+                out.print("Node has depth ").print(currentNode.level).print(
+                    ", Value ");
+                SkipList.printPair(out, currentNode.element());
+                out.println();
+                count++;
+                currentNode = view.advance(currentNode);
+            }
+        }
+
+        // Print the size of the skip list
+        out.print("SkipList size is: ").print(count).println();
+    }
+
+
+    /**
+     * Opens a View of the list as it is now. Iterating over the View never
+     * blocks writers and is not disturbed by them. The View has to be closed,
+     * best with try-with-resources, as the nodes removed while it is open
+     * can not be snipped out before that.
+     *
+     * @return a View of the list at this moment
+     */
+    public View snapshot() {
+        return new View();
+    }
+
+
+    /**
+     * @return the number of removed nodes still linked for an open View
+     */
+    int retired() {
+        return retired.size();
+    }
+
+
+    /**
+     * Removes the node if no other thread did. Claiming the node hides it
+     * from everything but the Views older than its removal. It is snipped
+     * out at once if there is no such View, otherwise it waits in the retired
+     * queue until the last of them is closed.
+     *
+     * @param victim
+     *            the node to remove
+     * @return true if this thread removed the node
+     */
+    private boolean retire(SkipNode victim) {
+        if (!victim.removed.compareAndSet(0, PENDING)) {
+            return false;
+        }
+        size.decrementAndGet();
+        long version = settle(victim.removed);
+        // A View that registers after this reads a newer clock
+        if (oldest() >= version) {
+            unlink(victim);
+        }
+        else {
+            retired.add(victim);
+        }
+        reclaim();
+        return true;
+    }
+
+
+    /**
+     * Returns the version in the stamp, giving it the next version first if
+     * it is still PENDING. Both the writer and any View that needs the stamp
+     * before the writer wrote it call this, the first to set it wins.
+     *
+     * @param stamp
+     *            the inserted or removed stamp of a node
+     * @return the version of the stamp
+     */
+    private long settle(AtomicLong stamp) {
+        long version = stamp.get();
+        if (version == PENDING) {
+            stamp.compareAndSet(PENDING, clock.incrementAndGet());
+            version = stamp.get();
+        }
+        return version;
+    }
+
+
+    /**
+     * Snips out the retired nodes that no open View needs anymore. Only one
+     * thread does this at a time, the others leave it to that thread or to
+     * the next remove or close.
+     */
+    private void reclaim() {
+        if (retired.isEmpty() || !reclaiming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // A View opened after this reads at least now, so nodes retired
+            // while this runs are only safe up to now
+            long now = clock.get();
+            long oldest = Math.min(now, oldest());
+            SkipNode node = retired.peek();
+            while (node != null && node.removed.get() <= oldest) {
+                retired.poll();
+                unlink(node);
+                node = retired.peek();
+            }
+        }
+        finally {
+            reclaiming.set(false);
+        }
+    }
+
+
+    /**
+     * @return the version of the oldest open View, 0 while one is still
+     *         reading the clock and Long.MAX_VALUE if there is none
+     */
+    private long oldest() {
+        long oldest = Long.MAX_VALUE;
+        for (View view : views) {
+            oldest = Math.min(oldest, view.version);
+        }
+        return oldest;
+    }
+
+
+    /**
+     * Marks the removed node and snips it out of every level.
+     *
+     * @param victim
+     *            the removed node
+     */
+    private void unlink(SkipNode victim) {
+        markNode(victim);
+        find(victim.element().getKey(), true, newPath(), newPath());
+    }
+
+
+    /**
+     * Searches for the position of the key on every level and snips out any
+     * marked node found on the way. When inclusive is false the search stops
+     * in front of the first node with the key, which is where a new node goes.
+     * When it is true it walks past all nodes with the key, which is used to
+     * clean up after a remove.
+     *
+     * @param key
+     *            the key to look for
+     * @param inclusive
+     *            whether to walk past nodes equal to the key
+     * @param preds
+     *            filled with the last node before the position on each level
+     * @param succs
+     *            filled with the first node after the position on each level
+     */
+    private void find(K key, boolean inclusive, SkipNode[] preds,
+        SkipNode[] succs) {
+        boolean[] marked = { false };
+        retry: while (true) {
+            SkipNode pred = head;
+            for (int i = MAX_LEVEL; i >= 0; i--) {
+                SkipNode curr = pred.forward[i].getReference();
+                while (curr != null) {
+                    SkipNode succ = curr.forward[i].get(marked);
+                    // Snip out deleted nodes, starting over if pred changed
+                    while (marked[0]) {
+                        if (!pred.forward[i].compareAndSet(curr, succ, false,
+                            false)) {
+                            continue retry;
+                        }
+                        curr = succ;
+                        if (curr == null) {
+                            break;
+                        }
+                        succ = curr.forward[i].get(marked);
+                    }
+                    if (curr == null) {
+                        break;
+                    }
+                    int cmp = curr.element().getKey().compareTo(key);
+                    if (cmp < 0 || (inclusive && cmp == 0)) {
+                        pred = curr;
+                        curr = succ;
+                    }
+                    else {
+                        break;
+                    }
+                }
+                preds[i] = pred;
+                succs[i] = curr;
+            }
+            return;
+        }
+    }
+
+
+    /**
+     * Logically deletes the node by marking its links from the top of the
+     * tower down. Marking level 0 is the point where the removal happens.
+     *
+     * @param victim
+     *            the node to delete
+     * @return true if this thread deleted the node, false if another thread
+     *         already did
+     */
+    private boolean markNode(SkipNode victim) {
+        boolean[] marked = { false };
+        for (int i = victim.level; i >= 1; i--) {
+            SkipNode succ = victim.forward[i].get(marked);
+            while (!marked[0]) {
+                victim.forward[i].attemptMark(succ, true);
+                succ = victim.forward[i].get(marked);
+            }
+        }
+        SkipNode succ = victim.forward[0].get(marked);
+        while (true) {
+            if (marked[0]) {
+                return false;
+            }
+            if (victim.forward[0].compareAndSet(succ, succ, false, true)) {
+                return true;
+            }
+            succ = victim.forward[0].get(marked);
+        }
+    }
+
+
+    /**
+     * Records that a tower of the given level exists, only ever growing.
+     *
+     * @param newLevel
+     *            the level of the inserted node
+     */
+    private void raiseLevel(int newLevel) {
+        int current = level.get();
+        while (newLevel > current && !level.compareAndSet(current, newLevel)) {
+            current = level.get();
+        }
+    }
+
+
+    /**
+     * @return an array that can hold one node for every level
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private SkipNode[] newPath() {
+        return (SkipNode[])new ConcurrentSkipList.SkipNode[MAX_LEVEL + 1];
+    }
+
+
+    /**
+     * This class implements a SkipNode for the ConcurrentSkipList. Each forward
+     * link is an AtomicMarkableReference, the mark on a link means the node
+     * owning that link has been deleted. The versions of its insert and
+     * remove decide which Views see it.
+     */
+    private class SkipNode {
+
+        // the KVPair to hold
+        private final KVPair<K, V> pair;
+        // forward[i] is the next node at level i together with the deleted mark
+        private final AtomicMarkableReference<SkipNode>[] forward;
+        // the number of levels
+        private final int level;
+        // the version of the insert, PENDING until it is stamped
+        private final AtomicLong inserted;
+        // the version of the remove, 0 while the node is in the list and
+        // PENDING between claiming the node and stamping it
+        private final AtomicLong removed;
+
+        /**
+         * Initializes the fields with the required KVPair and the number of
+         * levels.
+         *
+         * @param tempPair
+         *            the KVPair to be inserted
+         * @param level
+         *            the number of levels that the SkipNode should have
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public SkipNode(KVPair<K, V> tempPair, int level) {
+            pair = tempPair;
+            forward = new AtomicMarkableReference[level + 1];
+            for (int i = 0; i <= level; i++) {
+                forward[i] = new AtomicMarkableReference<>(null, false);
+            }
+            this.level = level;
+            inserted = new AtomicLong(PENDING);
+            removed = new AtomicLong(0);
+        }
+
+
+        /**
+         * Returns the KVPair stored in the SkipList.
+         *
+         * @return the KVPair
+         */
+        public KVPair<K, V> element() {
+            return pair;
+        }
+
+    }
+
+
+    /**
+     * A consistent snapshot of the list: it sees the pairs that were in the
+     * list when it was opened, in list order, however the list changes
+     * afterwards. It can be iterated any number of times until it is closed.
+     */
+    public class View implements Iterable<KVPair<K, V>>, AutoCloseable {
+        // the last version this View sees, 0 until the clock is read
+        private volatile long version;
+        private volatile boolean closed;
+
+        /**
+         * Registers the View before reading the clock, so a remove that does
+         * not find it registered has a version this View does not see.
+         */
+        private View() {
+            views.add(this);
+            version = clock.get();
+        }
+
+
+        /**
+         * @return the last version of the list this View sees
+         */
+        public long version() {
+            return version;
+        }
+
+
+        /**
+         * @param from
+         *            the node to start after
+         * @return the first node after from that this View sees, or null
+         */
+        private SkipNode advance(SkipNode from) {
+            SkipNode curr = from.forward[0].getReference();
+            while (curr != null) {
+                if (settle(curr.inserted) <= version) {
+                    long removedAt = curr.removed.get();
+                    if (removedAt == 0 || settle(curr.removed) > version) {
+                        return curr;
+                    }
+                }
+                curr = curr.forward[0].getReference();
+            }
+            return null;
+        }
+
+
+        @Override
+        public Iterator<KVPair<K, V>> iterator() {
+            if (closed) {
+                throw new IllegalStateException("View is closed");
+            }
+            return new Iterator<KVPair<K, V>>() {
+                private SkipNode next = advance(head);
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+
+                @Override
+                public KVPair<K, V> next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    // The nodes ahead may be snipped out once it is closed
+                    if (closed) {
+                        throw new IllegalStateException("View is closed");
+                    }
+                    SkipNode current = next;
+                    next = advance(current);
+                    return current.element();
+                }
+            };
+        }
+
+
+        /**
+         * Releases the nodes this View pinned, they are snipped out if no
+         * older View needs them.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                views.remove(this);
+                reclaim();
+            }
+        }
+
+    }
+
+
+    /**
+     * Walks level 0 and skips every node that is removed. It never blocks and
+     * never fails because of concurrent writers, it only sees each live node
+     * at most once, but it is not a snapshot like a View.
+     */
+    private class SkipListIterator implements Iterator<KVPair<K, V>> {
+        private SkipNode next;
+        private final boolean[] marked = { false };
+
+        public SkipListIterator() {
+            next = advance(head);
+        }
+
+
+        /**
+         * @param from
+         *            the node to start after
+         * @return the first live node after from, or null
+         */
+        private SkipNode advance(SkipNode from) {
+            SkipNode curr = from.forward[0].getReference();
+            while (curr != null) {
+                SkipNode succ = curr.forward[0].get(marked);
+                if (!marked[0] && curr.removed.get() == 0) {
+                    return curr;
+                }
+                curr = succ;
+            }
+            return null;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+
+        @Override
+        public KVPair<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            SkipNode current = next;
+            next = advance(current);
+            return current.element();
+        }
+
+    }
+
+    @Override
+    public Iterator<KVPair<K, V>> iterator() {
+        return new SkipListIterator();
+    }
+
+}
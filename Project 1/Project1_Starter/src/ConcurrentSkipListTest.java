@@ -0,0 +1,273 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentSkipListTest {
+    static final int THREADS = 8;
+    static final int PER_THREAD = 2000;
+    ConcurrentSkipList<String, Rectangle> skipListObject;
+    @BeforeEach
+    public void setUp() {
+        skipListObject = new ConcurrentSkipList<>();
+    }
+
+    @Test
+    //single threaded use should behave exactly like SkipList, duplicates included
+    void testSameContractAsSkipList() {
+        SkipListTest.assertSameContract(skipListObject);
+    }
+
+    @Test
+    //every pair inserted by concurrent writers must be found, in sorted order
+    void testConcurrentInsert() throws InterruptedException {
+        runThreads(t -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                skipListObject.insert(new KVPair<>(key(i), new Rectangle(t, i, 1, 1)));
+            }
+        });
+        assertEquals(THREADS * PER_THREAD, skipListObject.size());
+        assertSorted(THREADS * PER_THREAD);
+        //duplicate keys written by different threads are all kept
+        assertEquals(THREADS, skipListObject.search(key(42)).size());
+    }
+
+    @Test
+    //concurrent removes must remove every pair exactly once
+    void testConcurrentRemove() throws InterruptedException {
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < PER_THREAD; i++) {
+                skipListObject.insert(new KVPair<>(key(i), new Rectangle(t, i, 1, 1)));
+            }
+        }
+        ConcurrentHashMap<KVPair<String, Rectangle>, Boolean> seen = new ConcurrentHashMap<>();
+        AtomicInteger removed = new AtomicInteger();
+        runThreads(t -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                //half of the threads remove by key, the other half by value
+                KVPair<String, Rectangle> pair = (t % 2 == 0)
+                    ? skipListObject.remove(key(i))
+                    : skipListObject.removeByValue(new Rectangle(t, i, 1, 1));
+                if (pair != null) {
+                    assertNull(seen.put(pair, true));
+                    removed.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(THREADS * PER_THREAD - removed.get(), skipListObject.size());
+        assertSorted(skipListObject.size());
+    }
+
+    @Test
+    //readers running next to writers never fail and only see sorted keys
+    void testReadersDuringWrites() throws InterruptedException {
+        AtomicInteger errors = new AtomicInteger();
+        runThreads(t -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                if (t % 2 == 0) {
+                    skipListObject.insert(new KVPair<>(key(i), new Rectangle(t, i, 1, 1)));
+                    if (i % 3 == 0) {
+                        skipListObject.remove(key(i));
+                    }
+                }
+                else if (i % 100 == 0) {
+                    String last = "";
+                    Iterator<KVPair<String, Rectangle>> iter = skipListObject.iterator();
+                    while (iter.hasNext()) {
+                        String current = iter.next().getKey();
+                        if (current.compareTo(last) < 0) {
+                            errors.incrementAndGet();
+                        }
+                        last = current;
+                    }
+                }
+                else {
+                    for (KVPair<String, Rectangle> pair : skipListObject.search(key(i))) {
+                        if (!pair.getKey().equals(key(i))) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            }
+        });
+        assertEquals(0, errors.get());
+        assertSorted(skipListObject.size());
+    }
+
+    @Test
+    //the database prints the same with the concurrent list as with SkipList, apart from the random depths
+    void testDatabaseOnConcurrentList() {
+        assertEquals(SkipListTest.runDatabase(new SkipList<>(true)), SkipListTest.runDatabase(skipListObject));
+    }
+
+    @Test
+    //a view keeps showing the list as it was opened, removed nodes are snipped out once it closes
+    void testViewIsSnapshot() {
+        for (int i = 0; i < 100; i++) {
+            skipListObject.insert(new KVPair<>(key(i), new Rectangle(0, i, 1, 1)));
+        }
+        ConcurrentSkipList<String, Rectangle>.View view = skipListObject.snapshot();
+        for (int i = 0; i < 100; i += 2) {
+            assertNotNull(skipListObject.remove(key(i)));
+            skipListObject.insert(new KVPair<>(key(i + 1), new Rectangle(1, i, 1, 1)));
+        }
+        assertNotNull(skipListObject.removeByValue(new Rectangle(0, 1, 1, 1)));
+        //removed nodes are gone for everyone but the view
+        assertEquals(0, skipListObject.search(key(0)).size());
+        assertNull(skipListObject.removeByValue(new Rectangle(0, 0, 1, 1)));
+        assertEquals(99, skipListObject.size());
+        assertEquals(51, skipListObject.retired());
+
+        for (int pass = 0; pass < 2; pass++) {
+            int i = 0;
+            for (KVPair<String, Rectangle> pair : view) {
+                assertEquals(key(i), pair.getKey());
+                assertEquals(new Rectangle(0, i, 1, 1), pair.getValue());
+                i++;
+            }
+            assertEquals(100, i);
+        }
+        Iterator<KVPair<String, Rectangle>> open = view.iterator();
+        view.close();
+        assertEquals(0, skipListObject.retired());
+        assertThrows(IllegalStateException.class, open::next);
+        assertThrows(IllegalStateException.class, view::iterator);
+        assertSorted(99);
+        try (ConcurrentSkipList<String, Rectangle>.View now = skipListObject.snapshot()) {
+            int count = 0;
+            for (KVPair<String, Rectangle> pair : now) {
+                count++;
+            }
+            assertEquals(99, count);
+        }
+    }
+
+    @Test
+    //views opened next to writers each see one moment of every writer
+    void testViewsDuringWrites() throws InterruptedException {
+        int window = 50;
+        AtomicInteger writing = new AtomicInteger(THREADS / 2);
+        AtomicInteger views = new AtomicInteger();
+        runThreads(t -> {
+            if (t % 2 == 0) {
+                //each writer keeps its last rectangles, removing the oldest
+                for (int i = 0; i < PER_THREAD; i++) {
+                    skipListObject.insert(new KVPair<>(key(i), new Rectangle(t, i, 1, 1)));
+                    if (i >= window) {
+                        assertNotNull(skipListObject.removeByValue(new Rectangle(t, i - window, 1, 1)));
+                    }
+                }
+                writing.decrementAndGet();
+                return;
+            }
+            while (writing.get() > 0) {
+                try (ConcurrentSkipList<String, Rectangle>.View view = skipListObject.snapshot()) {
+                    ArrayList<KVPair<String, Rectangle>> first = new ArrayList<>();
+                    view.forEach(first::add);
+                    ArrayList<KVPair<String, Rectangle>> second = new ArrayList<>();
+                    view.forEach(second::add);
+                    assertEquals(first, second);
+                    //the rectangles of a writer are a window without gaps
+                    int[] low = new int[THREADS];
+                    int[] high = new int[THREADS];
+                    int[] count = new int[THREADS];
+                    java.util.Arrays.fill(low, Integer.MAX_VALUE);
+                    java.util.Arrays.fill(high, -1);
+                    for (KVPair<String, Rectangle> pair : first) {
+                        Rectangle rect = pair.getValue();
+                        low[rect.x] = Math.min(low[rect.x], rect.y);
+                        high[rect.x] = Math.max(high[rect.x], rect.y);
+                        count[rect.x]++;
+                    }
+                    for (int w = 0; w < THREADS; w += 2) {
+                        if (count[w] == 0) {
+                            continue;
+                        }
+                        assertEquals(high[w] - low[w] + 1, count[w]);
+                        assertTrue(count[w] <= window + 1);
+                        assertTrue(high[w] < window || count[w] >= window);
+                    }
+                }
+                views.incrementAndGet();
+            }
+        });
+        assertTrue(views.get() > 0);
+        assertEquals(THREADS / 2 * window, skipListObject.size());
+        //the last close may have left the snipping to a remove
+        skipListObject.snapshot().close();
+        assertEquals(0, skipListObject.retired());
+        assertSorted(THREADS / 2 * window);
+    }
+
+    /**
+     * @param i
+     *            a number
+     * @return a zero padded key so that string order equals number order
+     */
+    static String key(int i) {
+        return String.format("r%06d", i);
+    }
+
+    /**
+     * Checks that the list holds the given number of pairs in sorted order.
+     *
+     * @param expected
+     *            the number of pairs the list should hold
+     */
+    private void assertSorted(int expected) {
+        ArrayList<String> keys = new ArrayList<>();
+        for (KVPair<String, Rectangle> pair : skipListObject) {
+            keys.add(pair.getKey());
+        }
+        assertEquals(expected, keys.size());
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(keys.get(i - 1).compareTo(keys.get(i)) <= 0);
+        }
+    }
+
+    /**
+     * Work done by one thread of a stress test.
+     */
+    interface Worker {
+        void run(int thread);
+    }
+
+    /**
+     * Starts THREADS threads at the same moment and waits for all of them,
+     * rethrowing the first failure.
+     *
+     * @param work
+     *            the work each thread does
+     */
+    private void runThreads(Worker work) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    work.run(id);
+                }
+                catch (Throwable e) {
+                    failure[0] = e;
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            fail(failure[0]);
+        }
+    }
+
+}
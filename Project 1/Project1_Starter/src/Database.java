@@ -1,6 +1,19 @@
 import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
 
 /**
  * This class is responsible for interfacing between the command processor and
@@ -21,14 +34,228 @@ public class Database {
     // a string for the name of the rectangle and then
     // a rectangle object, these are stored in a KVPair,
     // see the KVPair class for more information
-	private SkipList<String, Rectangle> list;
+	private SkipListADT<String, Rectangle> list;
+	
+	// when the list is a SkipList, inserts, searches and removes by name go
+	// through this cursor, so names close to the last one are found quickly
+	private SkipList<String, Rectangle>.Cursor cursor;
+	
+	// where all output of the database is written to
+	private OutputSink out;
+	
+	// the names a rectangle may have, compiled once instead of on every insert
+	private static final Pattern NAME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9_]*$");
+	
+	// a uniform grid over the world holding the same pairs as the list,
+	// it lets regionsearch look only at rectangles near the region
+	private SpatialGrid grid;
+	
+	// the intersecting pairs kept up to date by insert and remove, null
+	// until trackIntersections is called
+	private IntersectionSet tracked;
+	
+	// the pool regionsearch and intersections run on, null to run them on
+	// the calling thread
+	private ForkJoinPool pool;
+	
+	// every accepted change is appended to this log after recover was
+	// called, null otherwise
+	private WriteAheadLog wal;
+	
+	// the files of the log and its snapshot are this name with ".wal" and
+	// ".snap" added
+	private String walPrefix;
 
     /**
      * The constructor for this class initializes a SkipList object with String
-     * and Rectangle a its parameters.
+     * and Rectangle a its parameters. The list keeps a value index so that
+     * removing by coordinates does not scan the whole list.
      */
     public Database() {
-        list = new SkipList<String, Rectangle>();
+        this(new SkipList<String, Rectangle>(true));
+    }
+
+
+    /**
+     * This constructor lets the caller choose which SkipList implementation
+     * the database is built on, for example a ConcurrentSkipList when the
+     * database is shared by many threads.
+     * 
+     * @param listIn
+     *            the empty list to store the rectangles in
+     */
+    public Database(SkipListADT<String, Rectangle> listIn) {
+        this(listIn, new BufferedOutputSink());
+    }
+
+
+    /**
+     * This constructor also lets the caller choose where the output goes.
+     * Output is buffered by the sink, call flush to make sure it is written.
+     * 
+     * @param listIn
+     *            the empty list to store the rectangles in
+     * @param outIn
+     *            the sink to write all output to
+     */
+    public Database(SkipListADT<String, Rectangle> listIn, OutputSink outIn) {
+        setList(listIn);
+        grid = new SpatialGrid();
+        out = outIn;
+        logBeforeOutput(out);
+    }
+
+
+    /**
+     * Makes a database that reads the rectangles of shared and writes to its
+     * own sink. It has no cursor and no log, so any number of them can run
+     * search, regionsearch, rangesearch, intersections and dump side by side,
+     * as long as nothing changes shared meanwhile. The fields are copied
+     * when it is made, after a load it has to be made again.
+     * 
+     * @param shared
+     *            the database holding the rectangles
+     * @param outIn
+     *            the sink to write all output to
+     */
+    private Database(Database shared, OutputSink outIn) {
+        list = shared.list;
+        grid = shared.grid;
+        tracked = shared.tracked;
+        pool = shared.pool;
+        out = outIn;
+    }
+
+
+    /**
+     * @param outIn
+     *            the sink the reader writes to
+     * @return a database for read commands only, sharing the rectangles of
+     *         this one
+     */
+    Database reader(OutputSink outIn) {
+        return new Database(this, outIn);
+    }
+
+
+    /**
+     * Writes all output to the sink from now on, nothing is flushed.
+     * 
+     * @param outIn
+     *            the new sink
+     * @return the sink written to before
+     */
+    OutputSink redirect(OutputSink outIn) {
+        OutputSink previous = out;
+        out = outIn;
+        logBeforeOutput(out);
+        return previous;
+    }
+
+
+    /**
+     * Makes a BufferedOutputSink write the log before it writes anything to
+     * its stream. The sink writes by itself once its buffer is full, long
+     * before flush, and the log may still hold those changes in memory.
+     * 
+     * @param sink
+     *            a sink that output of this database goes to
+     */
+    void logBeforeOutput(OutputSink sink) {
+        if (sink instanceof BufferedOutputSink) {
+            ((BufferedOutputSink)sink).beforeWrite(this::flushLog);
+        }
+    }
+
+
+    /**
+     * Stores the rectangles in the list from now on, with a cursor if it is
+     * a SkipList.
+     * 
+     * @param listIn
+     *            the list
+     */
+    private void setList(SkipListADT<String, Rectangle> listIn) {
+        list = listIn;
+        cursor = list instanceof SkipList ? ((SkipList<String, Rectangle>)list).cursor() : null;
+    }
+
+
+    /**
+     * Keeps the intersecting pairs up to date from now on. Every insert and
+     * remove then costs a grid search more, but intersections only has to
+     * print the pairs instead of sweeping over all rectangles. This pays off
+     * when intersections is asked for often between a few changes.
+     */
+    public void trackIntersections() {
+        if (tracked == null) {
+            tracked = new IntersectionSet();
+            // The last pair in the list is added first, so that the earlier
+            // of two pairs with the same name counts as the newer one
+            ArrayList<KVPair<String, Rectangle>> pairs = new ArrayList<>(list.size());
+            for (KVPair<String, Rectangle> pair : list) {
+                pairs.add(pair);
+            }
+            for (int i = pairs.size() - 1; i >= 0; i--) {
+                KVPair<String, Rectangle> pair = pairs.get(i);
+                tracked.add(pair, grid.search(pair.getValue()));
+            }
+        }
+    }
+
+
+    /**
+     * Lets regionsearch and intersections split their work over a number of
+     * threads. The world is cut into parts that are searched in parallel,
+     * and the results are merged back into the same order as on one thread,
+     * so the output does not change. The threads of a ForkJoinPool are
+     * daemon threads, they do not keep the program running.
+     * 
+     * @param threads
+     *            the number of threads, 1 or less to use only the calling
+     *            thread
+     */
+    public void setParallelism(int threads) {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+
+    /**
+     * Writes out all output that the sink is still holding. If there is a
+     * log, the changes are written to it first, so no change is reported
+     * before the log holds it.
+     */
+    public void flush() {
+        // Nothing is reported before it is in the log
+        flushLog();
+        out.flush();
+    }
+
+
+    /**
+     * Writes the changes the log holds to it, if there is a log, without
+     * touching the output.
+     */
+    void flushLog() {
+        if (wal != null) {
+            try {
+                wal.flush();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+
+    /**
+     * @return the sink the database writes its output to
+     */
+    public OutputSink output() {
+        return out;
     }
 
 
@@ -43,25 +270,392 @@ public class Database {
      */
     public void insert(KVPair<String, Rectangle> pair) {
         // Check if the rectangle satisfies the required conditions
-    	if (pair.getValue().width > 0 && pair.getValue().height > 0
-                && pair.getValue().x >= 0 && pair.getValue().y >= 0
-                && pair.getValue().x + pair.getValue().width <= 1024
-                && pair.getValue().y + pair.getValue().height <= 1024
-                && pair.getKey().matches("^[a-zA-Z][a-zA-Z0-9_]*$")) {
+    	if (isValid(pair)) {
             // Insert the pair into the skip list
-	        list.insert(pair);
-	        System.out.printf("Rectangle inserted: (%s, %d, %d, %d, %d)\n",
-	        		pair.getKey(), pair.getValue().x, pair.getValue().y, pair.getValue().width, pair.getValue().height);
+	        add(pair);
+	        if (wal != null) {
+	            try {
+	                wal.insert(pair);
+	            }
+	            catch (IOException e) {
+	                throw new UncheckedIOException(e);
+	            }
+	        }
+	        out.print("Rectangle inserted: ");
+	        printRect(pair.getKey(), pair.getValue());
+	        out.print('\n');
 	    }
     	
     	else {
             // Print a message indicating that the rectangle was rejected
-	        System.out.printf("Rectangle rejected: (%s, %d, %d, %d, %d)\n",
-	        		pair.getKey(), pair.getValue().x, pair.getValue().y, pair.getValue().width, pair.getValue().height);
+	        out.print("Rectangle rejected: ");
+	        printRect(pair.getKey(), pair.getValue());
+	        out.print('\n');
     	}
     }
 
     
+    /**
+     * Stores a valid pair in the list, the grid and the tracked intersections.
+     * 
+     * @param pair
+     *            the KVPair to be inserted
+     */
+    private void add(KVPair<String, Rectangle> pair) {
+        if (cursor != null) {
+            cursor.insert(pair);
+        }
+        else {
+            list.insert(pair);
+        }
+        grid.insert(pair);
+        if (tracked != null) {
+            tracked.add(pair, grid.search(pair.getValue()));
+        }
+    }
+
+
+    /**
+     * Takes the first pair with the name out of the list, the grid and the
+     * tracked intersections.
+     * 
+     * @param name
+     *            the name to remove
+     * @return the removed pair, null if there is none
+     */
+    private KVPair<String, Rectangle> take(String name) {
+        KVPair<String, Rectangle> removed = cursor != null ? cursor.remove(name) : list.remove(name);
+        forget(removed);
+        return removed;
+    }
+
+
+    /**
+     * Takes the first pair with the rectangle out of the list, the grid and
+     * the tracked intersections.
+     * 
+     * @param rect
+     *            the rectangle to remove
+     * @return the removed pair, null if there is none
+     */
+    private KVPair<String, Rectangle> take(Rectangle rect) {
+        KVPair<String, Rectangle> removed = list.removeByValue(rect);
+        forget(removed);
+        return removed;
+    }
+
+
+    /**
+     * Takes a pair that was removed from the list out of the grid and the
+     * tracked intersections.
+     * 
+     * @param removed
+     *            the removed pair, or null
+     */
+    private void forget(KVPair<String, Rectangle> removed) {
+        if (removed != null) {
+            grid.remove(removed);
+            if (tracked != null) {
+                tracked.remove(removed);
+            }
+        }
+    }
+
+
+    /**
+     * Inserts a whole batch of KVPairs at once, which is much faster than
+     * calling insert for each of them when loading a large number of
+     * rectangles. The batch does not have to be sorted. It is sorted here,
+     * merged with the rectangles already stored and the SkipList is rebuilt
+     * in one pass. The result is the same list that inserting the pairs one by
+     * one would give, including the order of pairs with the same name.
+     * Invalid pairs are rejected with the same message as insert, valid pairs
+     * are not printed one by one, only their count is.
+     * 
+     * @param batch
+     *            the KVPairs to be inserted, in the order they were read
+     */
+    public void bulkLoad(List<KVPair<String, Rectangle>> batch) {
+        // Keep the valid pairs, latest first since insert puts a new pair in
+        // front of older pairs with the same name
+        ArrayList<KVPair<String, Rectangle>> sorted = new ArrayList<>(batch.size());
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            KVPair<String, Rectangle> pair = batch.get(i);
+            if (isValid(pair)) {
+                sorted.add(pair);
+            }
+        }
+        // Print the rejected pairs in the order they were read
+        for (KVPair<String, Rectangle> pair : batch) {
+            if (!isValid(pair)) {
+                out.print("Rectangle rejected: ");
+                printRect(pair.getKey(), pair.getValue());
+                out.print('\n');
+            }
+        }
+        // A stable sort keeps that order between equal names
+        Collections.sort(sorted);
+        
+        for (KVPair<String, Rectangle> pair : sorted) {
+            grid.insert(pair);
+        }
+        if (tracked != null) {
+            // Add them in the order insert would have
+            for (int i = sorted.size() - 1; i >= 0; i--) {
+                KVPair<String, Rectangle> pair = sorted.get(i);
+                tracked.add(pair, grid.search(pair.getValue()));
+            }
+        }
+        
+        if (list instanceof SkipList) {
+            // Merge with what is already stored, new pairs go in front of old
+            // pairs with the same name, and build a new list from that
+            ArrayList<KVPair<String, Rectangle>> merged = new ArrayList<>(sorted.size() + list.size());
+            Iterator<KVPair<String, Rectangle>> old = list.iterator();
+            KVPair<String, Rectangle> next = old.hasNext() ? old.next() : null;
+            for (KVPair<String, Rectangle> pair : sorted) {
+                while (next != null && next.compareTo(pair) < 0) {
+                    merged.add(next);
+                    next = old.hasNext() ? old.next() : null;
+                }
+                merged.add(pair);
+            }
+            while (next != null) {
+                merged.add(next);
+                next = old.hasNext() ? old.next() : null;
+            }
+            setList(new SkipList<String, Rectangle>(merged.iterator(), true));
+        }
+        else {
+            // Other lists can not be rebuilt, insert in the same order
+            for (int i = sorted.size() - 1; i >= 0; i--) {
+                list.insert(sorted.get(i));
+            }
+        }
+        if (wal != null) {
+            // Logged like inserts in the order they were read
+            try {
+                for (KVPair<String, Rectangle> pair : batch) {
+                    if (isValid(pair)) {
+                        wal.insert(pair);
+                    }
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        out.print("Rectangles bulk loaded: ").print(sorted.size()).print('\n');
+    }
+
+
+    /**
+     * Writes all rectangles to a binary snapshot file in list order, see
+     * Snapshot for the format.
+     * 
+     * @param fileName
+     *            the file to write, it is replaced if it exists
+     */
+    public void save(String fileName) {
+        try {
+            Snapshot.write(list, list.size(), new File(fileName));
+            out.print("Rectangles saved: ").print(list.size()).print('\n');
+        }
+        catch (IOException e) {
+            out.print("Snapshot not saved: (").print(fileName).print(")\n");
+        }
+    }
+
+
+    /**
+     * Replaces all rectangles with the ones in a snapshot file written by
+     * save. A SkipList is built straight from the mapped file in one pass.
+     * If the file can not be read, is damaged or holds a rectangle that
+     * insert would reject, nothing is changed.
+     * 
+     * @param fileName
+     *            the snapshot file
+     */
+    public void load(String fileName) {
+        try (Snapshot.Reader reader = Snapshot.open(new File(fileName))) {
+            restore(reader);
+            out.print("Rectangles loaded: ").print(reader.size()).print('\n');
+        }
+        catch (IOException | UncheckedIOException e) {
+            out.print("Snapshot not loaded: (").print(fileName).print(")\n");
+            return;
+        }
+        if (wal != null) {
+            // The log can not hold a load, start it over from here
+            checkpoint();
+        }
+    }
+
+
+    /**
+     * Replaces all rectangles with the ones the reader gives.
+     * 
+     * @param reader
+     *            an open snapshot
+     * @throws IOException
+     *             if the snapshot is damaged or holds a rectangle that insert
+     *             would reject, nothing is changed then
+     */
+    private void restore(Snapshot.Reader reader) throws IOException {
+        SkipListADT<String, Rectangle> loaded = null;
+        ArrayList<KVPair<String, Rectangle>> pairs = null;
+        try {
+            if (list instanceof SkipList) {
+                loaded = new SkipList<String, Rectangle>(reader, true);
+            }
+            else {
+                // Other lists can not be built from the file, read it first
+                // so that a damaged file leaves the list as it is
+                pairs = new ArrayList<>(reader.size());
+                reader.forEachRemaining(pairs::add);
+            }
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        SpatialGrid loadedGrid = new SpatialGrid();
+        for (KVPair<String, Rectangle> pair : loaded != null ? loaded : pairs) {
+            if (!isValid(pair)) {
+                throw new IOException("Invalid rectangle " + pair.getKey());
+            }
+            loadedGrid.insert(pair);
+        }
+        
+        if (loaded != null) {
+            setList(loaded);
+        }
+        else {
+            while (list.size() > 0) {
+                list.remove(list.iterator().next().getKey());
+            }
+            // Insert in reverse so that equal names keep the file order
+            for (int i = pairs.size() - 1; i >= 0; i--) {
+                list.insert(pairs.get(i));
+            }
+        }
+        grid = loadedGrid;
+        if (tracked != null) {
+            tracked = null;
+            trackIntersections();
+        }
+    }
+
+
+    /**
+     * Makes the database durable: it is restored from the snapshot and the
+     * write-ahead log named by the prefix, and from then on every accepted
+     * change is appended to the log before its output is written. Missing
+     * files are started empty, a torn end of the log is cut off.
+     * 
+     * @param prefix
+     *            the path of the files without ".snap" and ".wal"
+     * @param sync
+     *            when the log is forced to disk
+     * @throws IOException
+     *             if the snapshot or the log can not be read, or records are
+     *             missing from the log
+     */
+    public void recover(String prefix, WriteAheadLog.Sync sync) throws IOException {
+        File snapshot = new File(prefix + ".snap");
+        long after = 0;
+        if (snapshot.exists()) {
+            try (Snapshot.Reader reader = Snapshot.open(snapshot)) {
+                restore(reader);
+                after = reader.sequence();
+            }
+        }
+        wal = new WriteAheadLog(new File(prefix + ".wal"), sync, WriteAheadLog.DEFAULT_GROUP, after, record -> {
+            // Only accepted changes were logged, apply them without output
+            if (record.type() == WriteAheadLog.INSERT) {
+                KVPair<String, Rectangle> pair = new KVPair<>(record.name(), record.rect());
+                if (isValid(pair)) {
+                    add(pair);
+                }
+            }
+            else if (record.type() == WriteAheadLog.REMOVE_NAME) {
+                take(record.name());
+            }
+            else {
+                take(record.rect());
+            }
+        });
+        walPrefix = prefix;
+        out.print("Rectangles recovered: ").print(list.size()).print('\n');
+    }
+
+
+    /**
+     * Writes a snapshot next to the log and empties the log, so that
+     * recovery does not have to replay it. The snapshot is written to a
+     * temporary file and renamed over the old one, and it records the last
+     * log record it holds, so a crash at any point leaves files that recover
+     * to the same rectangles.
+     */
+    public void checkpoint() {
+        if (wal == null) {
+            out.print("Checkpoint failed: no log\n");
+            return;
+        }
+        try {
+            // The log must hold every record the snapshot says it holds
+            wal.flush();
+            File snapshot = new File(walPrefix + ".snap");
+            File temp = new File(walPrefix + ".snap.tmp");
+            Snapshot.write(list, list.size(), wal.sequence(), temp);
+            Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(snapshot);
+            wal.reset();
+            out.print("Checkpoint written: ").print(list.size()).print('\n');
+        }
+        catch (IOException e) {
+            out.print("Checkpoint failed: ").print(String.valueOf(e.getMessage())).print('\n');
+        }
+    }
+
+
+    /**
+     * Forces the directory holding the file to disk, so that a rename in it
+     * survives a crash. Not every system can open a directory, there the
+     * rename is left to the file system.
+     * 
+     * @param file
+     *            a file in the directory
+     */
+    private static void syncDirectory(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch (IOException e) {
+            // Nothing more can be done
+        }
+    }
+
+
+    /**
+     * Checks that the rectangle has valid coordinates and dimensions and that
+     * the name starts with a letter and only holds letters, digits and '_'.
+     * 
+     * @param pair
+     *            the KVPair to check
+     * @return true if the pair may be inserted
+     */
+    private static boolean isValid(KVPair<String, Rectangle> pair) {
+        Rectangle rect = pair.getValue();
+        return rect.width > 0 && rect.height > 0
+                && rect.x >= 0 && rect.y >= 0
+                && rect.x + rect.width <= 1024
+                && rect.y + rect.height <= 1024
+                && NAME.matcher(pair.getKey()).matches();
+    }
+
+
     /**
      * Removes a rectangle with the name "name" if available. If not an error
      * message is printed to the console.
@@ -71,17 +665,26 @@ public class Database {
      */
     public void remove(String name) {
         // Remove the rectangle with the specified name and get the removed KVPair
-    	KVPair<String, Rectangle> removedRect =  list.remove(name);
+    	KVPair<String, Rectangle> removedRect = take(name);
     	
         // If a rectangle was removed, print a message with its details
     	if(removedRect != null) {
-	        System.out.printf("Rectangle removed: (%s, %d, %d, %d, %d)\n",
-	        		removedRect.getKey(), removedRect.getValue().x, removedRect.getValue().y, removedRect.getValue().width, removedRect.getValue().height);
+    	    if (wal != null) {
+    	        try {
+    	            wal.remove(name);
+    	        }
+    	        catch (IOException e) {
+    	            throw new UncheckedIOException(e);
+    	        }
+    	    }
+	        out.print("Rectangle removed: ");
+	        printRect(removedRect.getKey(), removedRect.getValue());
+	        out.print('\n');
     	}
     	
         // If no rectangle was removed, print a message indicating it was not found
     	else {
-	        System.out.printf("Rectangle not found: (%s)\n", name);
+	        out.print("Rectangle not found: (").print(name).print(")\n");
     	}
     }
 
@@ -103,17 +706,27 @@ public class Database {
         // Create a new rectangle object based on the input coordinates
 		Rectangle rect = new Rectangle(x, y, w, h);
 	    // Remove the rectangle that corresponds to the input rectangle and get the removed KVPair
-    	KVPair<String, Rectangle> removedRect =  list.removeByValue(rect);
+    	KVPair<String, Rectangle> removedRect = take(rect);
     	
         // Check if the rectangle was successfully removed
     	if(removedRect != null) {
-	        System.out.printf("Rectangle removed: (%s, %d, %d, %d, %d)\n",
-	        		removedRect.getKey(), removedRect.getValue().x, removedRect.getValue().y, removedRect.getValue().width, removedRect.getValue().height);
+    	    if (wal != null) {
+    	        try {
+    	            wal.remove(rect);
+    	        }
+    	        catch (IOException e) {
+    	            throw new UncheckedIOException(e);
+    	        }
+    	    }
+	        out.print("Rectangle removed: ");
+	        printRect(removedRect.getKey(), removedRect.getValue());
+	        out.print('\n');
     	}
     	
     	else {
             // If the rectangle was not found in the list, print an error message
-	        System.out.printf("Rectangle not found: (%d %d %d %d)\n", x, y, w, h);
+	        out.print("Rectangle not found: (").print(x).print(' ').print(y).print(' ')
+	                .print(w).print(' ').print(h).print(")\n");
     	}
     }
 
@@ -122,7 +735,9 @@ public class Database {
      * Displays all the rectangles inside the specified region. The rectangle
      * must have some area inside the area that is created by the region,
      * meaning, Rectangles that only touch a side or corner of the region
-     * specified will not be said to be in the region. You will need a SkipList Iterator for this 
+     * specified will not be said to be in the region. The candidates come from
+     * the SpatialGrid so only rectangles near the region are looked at, on
+     * the pool if setParallelism was called.
      * 
      * @param x
      *            x-Coordinate of the region
@@ -133,69 +748,179 @@ public class Database {
      * @param h
      *            height of the region
      */
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public void regionsearch(int x, int y, int w, int h) {
         // Check for valid input values
         if (w <= 0 || h <= 0) {
-        	System.out.printf("Rectangle rejected (%d, %d, %d, %d):\n", x, y, w, h);
+        	out.print("Rectangle rejected (").print(x).print(", ").print(y).print(", ")
+        	        .print(w).print(", ").print(h).print("):\n");
             return;
         }
         
         // Display the search region head
-        System.out.printf("Rectangles intersecting region (%d, %d, %d, %d):\n", x, y, w, h);
+        out.print("Rectangles intersecting region (").print(x).print(", ").print(y).print(", ")
+                .print(w).print(", ").print(h).print("):\n");
         
-        // Create a rectangle object to represent the search region
-        Rectangle searchRegion = new Rectangle(x, y, w, h);
-        
-        // Iterate over each element in the list to check if it intersects with the search region
-        Iterator<KVPair<String, Rectangle>> iterator = list.iterator();
+        // Ask the grid for the rectangles that intersect the search region
+        Rectangle region = new Rectangle(x, y, w, h);
+        ArrayList<KVPair<String, Rectangle>> found;
+        if (pool != null) {
+            found = grid.search(region, pool);
+            // Sort on the pool as well, parallelSort forks into the pool it
+            // is called from
+            KVPair<String, Rectangle>[] sorted = found.toArray(new KVPair[0]);
+            pool.invoke(ForkJoinTask.adapt(() -> Arrays.parallelSort(sorted)));
+            found = new ArrayList<>(Arrays.asList(sorted));
+        }
+        else {
+            found = grid.search(region);
+            // The grid has no order, put them back in the order of the list
+            Collections.sort(found);
+        }
         
-        while (iterator.hasNext()) {
-            KVPair<String, Rectangle> currentRect = iterator.next();
-            Rectangle rectRegion = currentRect.getValue();
+        int i = 0;
+        while (i < found.size()) {
+            // Find the run of pairs that share this key
+            int end = i + 1;
+            while (end < found.size() && found.get(end).compareTo(found.get(i)) == 0) {
+                end++;
+            }
             
-            // Check if the current rectangle intersects with the search region
-            if (searchRegion.intersects(rectRegion)) {
-                // Display the current rectangle if it intersects with the search region
-            	System.out.printf("(%s, %d, %d, %d, %d)\n",
-            			currentRect.getKey(), rectRegion.x, rectRegion.y, rectRegion.width, rectRegion.height);
+            if (end - i == 1) {
+                printRegionMatch(found.get(i));
+            }
+            else {
+                // Pairs with the same key are printed in the order the list holds them
+                List<KVPair<String, Rectangle>> run = found.subList(i, end);
+                String name = found.get(i).getKey();
+                for (KVPair<String, Rectangle> pair : cursor != null ? cursor.search(name) : list.search(name)) {
+                    for (KVPair<String, Rectangle> match : run) {
+                        if (match == pair) {
+                            printRegionMatch(pair);
+                            break;
+                        }
+                    }
+                }
             }
+            i = end;
+        }
+    }
+
+
+    /**
+     * Prints one rectangle found by regionsearch.
+     * 
+     * @param currentRect
+     *            the pair holding the rectangle
+     */
+    private void printRegionMatch(KVPair<String, Rectangle> currentRect) {
+        printRect(currentRect.getKey(), currentRect.getValue());
+        out.print('\n');
+    }
+
+
+    /**
+     * Displays all the rectangles whose name is at least fromName and comes
+     * before toName in lexicographical order. The pairs are streamed from the
+     * SkipList range iterator, so only the names in the range are visited.
+     * A prefix search for "bldg_" is the range from "bldg_" to "bldg`".
+     * 
+     * @param fromName
+     *            the smallest name to display (inclusive)
+     * @param toName
+     *            the name to stop at (exclusive)
+     */
+    public void rangesearch(String fromName, String toName) {
+        // Check for a valid range
+        if (fromName.compareTo(toName) > 0) {
+            out.print("Range rejected: (").print(fromName).print(", ").print(toName).print(")\n");
+            return;
+        }
+        
+        // Display the search range head
+        out.print("Rectangles in range (").print(fromName).print(", ").print(toName).print("):\n");
+        
+        Iterator<KVPair<String, Rectangle>> iterator = list.range(fromName, toName);
+        while (iterator.hasNext()) {
+            printRegionMatch(iterator.next());
         }
     }
 
 
     /**
-     * Prints out all the rectangles that Intersect each other by calling the
-     * SkipList method for intersections. You will need to use two SkipList Iterators for this
+     * Prints out all the rectangles that Intersect each other. The pairs are
+     * found with the plane sweep in IntersectionSweep, on the pool if
+     * setParallelism was called, or taken from the tracked set after
+     * trackIntersections, and printed in the same order as
+     * two nested SkipList Iterators would find them.
      */
     public void intersections() {
     	// print a header for the Intersection pairs
-        System.out.println("Intersection pairs: ");
-        // iterate through the list of rectangles
-        Iterator<KVPair<String, Rectangle>> iter1 = list.iterator();
-        // loop over each rectangle in the list
-        while (iter1.hasNext()) {
-        	// get the current rectangle and its value
-        	KVPair<String, Rectangle> pair1 = iter1.next();
-            Rectangle rect1 = pair1.getValue();
-            
-            // create a second iterator to loop over the list again
-            Iterator<KVPair<String, Rectangle>> iter2 = list.iterator();
-            
-            // loop over each rectangle in the list again
-            while (iter2.hasNext()) {
-            	// get the current rectangle and its value
-                KVPair<String, Rectangle> pair2 = iter2.next();
-                Rectangle rect2 = pair2.getValue();
-                
-                // check if the two rectangles are different and intersect
-                if (pair2 != pair1 && rect1.intersects(rect2)) {
-                    // print the names and coordinates of the intersecting rectangles
-                    System.out.printf("(%s, %d, %d, %d, %d | %s, %d, %d, %d, %d)\n",
-                    		pair1.getKey(),rect1.x,rect1.y,rect1.width,rect1.height,
-                    		pair2.getKey(),rect2.x,rect2.y,rect2.width,rect2.height);
-                }
+        out.print("Intersection pairs: ").println();
+        if (tracked != null) {
+            tracked.forEach(this::printIntersection);
+            return;
+        }
+        // copy the rectangles out of the list in key order
+        KVPair<String, Rectangle>[] pairs = copyPairs();
+        Rectangle[] rects = new Rectangle[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            rects[i] = pairs[i].getValue();
+        }
+        
+        // print the names and coordinates of every intersecting pair
+        long[] intersecting = pool != null ? IntersectionSweep.pairs(rects, pool) : IntersectionSweep.pairs(rects);
+        for (long found : intersecting) {
+            KVPair<String, Rectangle> pair1 = pairs[IntersectionSweep.first(found)];
+            KVPair<String, Rectangle> pair2 = pairs[IntersectionSweep.second(found)];
+            // the same pair may be stored twice, it does not intersect itself
+            if (pair1 != pair2) {
+                printIntersection(pair1, pair2);
+            }
+        }
+    }
+
+
+    /**
+     * Copies the pairs out of the list in list order. A ConcurrentSkipList is
+     * copied from a View, so the copy is the list at one moment even while
+     * other threads go on writing to it.
+     * 
+     * @return the pairs of the list
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private KVPair<String, Rectangle>[] copyPairs() {
+        if (list instanceof ConcurrentSkipList) {
+            ArrayList<KVPair<String, Rectangle>> copy = new ArrayList<>(list.size());
+            try (ConcurrentSkipList<String, Rectangle>.View view = ((ConcurrentSkipList<String, Rectangle>)list).snapshot()) {
+                view.forEach(copy::add);
             }
+            return copy.toArray(new KVPair[0]);
         }
+        KVPair<String, Rectangle>[] pairs = new KVPair[list.size()];
+        int count = 0;
+        for (KVPair<String, Rectangle> pair : list) {
+            pairs[count++] = pair;
+        }
+        return pairs;
+    }
+
+
+    /**
+     * Prints one line of the intersections output.
+     * 
+     * @param pair1
+     *            the first pair
+     * @param pair2
+     *            the pair intersecting the first one
+     */
+    private void printIntersection(KVPair<String, Rectangle> pair1, KVPair<String, Rectangle> pair2) {
+        Rectangle rect1 = pair1.getValue();
+        Rectangle rect2 = pair2.getValue();
+        out.print('(').print(pair1.getKey()).print(", ").print(rect1.x).print(", ").print(rect1.y)
+                .print(", ").print(rect1.width).print(", ").print(rect1.height)
+                .print(" | ").print(pair2.getKey()).print(", ").print(rect2.x).print(", ").print(rect2.y)
+                .print(", ").print(rect2.width).print(", ").print(rect2.height).print(")\n");
     }
 
 
@@ -208,19 +933,20 @@ public class Database {
      */
     public void search(String name) {
     	// Search for all rectangles with the given name
-    	ArrayList<KVPair<String,Rectangle>> foundRects = list.search(name);
+    	List<KVPair<String,Rectangle>> foundRects = cursor != null ? cursor.search(name) : list.search(name);
     	
     	// If any rectangles are found, print their information
     	if(!foundRects.isEmpty()) {
 	    	for(KVPair<String,Rectangle> rect : foundRects) {
-	    		System.out.printf("(%s, %d, %d, %d ,%d)\n",
-	    				rect.getKey(),rect.getValue().x,rect.getValue().y,rect.getValue().width,rect.getValue().height);
+	    		Rectangle value = rect.getValue();
+	    		out.print('(').print(rect.getKey()).print(", ").print(value.x).print(", ").print(value.y)
+	    		        .print(", ").print(value.width).print(" ,").print(value.height).print(")\n");
 	    	}
     	}
     	
     	// If no rectangles are found, print a message indicating that
     	else {
-			System.out.printf("Rectangle not found: %s \n" ,name);
+			out.print("Rectangle not found: ").print(name).print(" \n");
 		}
 	}
 
@@ -232,7 +958,21 @@ public class Database {
      */
     public void dump() {
     	// It just calling dump method in the skipList class
-        list.dump();
+        list.dump(out);
+    }
+
+
+    /**
+     * Writes a rectangle as "(name, x, y, width, height)".
+     * 
+     * @param name
+     *            the name of the rectangle
+     * @param rect
+     *            the rectangle
+     */
+    private void printRect(String name, Rectangle rect) {
+        out.print('(').print(name).print(", ").print(rect.x).print(", ").print(rect.y)
+                .print(", ").print(rect.width).print(", ").print(rect.height).print(')');
     }
 
 }
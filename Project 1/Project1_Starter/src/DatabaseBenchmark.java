@@ -0,0 +1,561 @@
+import java.awt.Rectangle;
+
+/**
+ * This class holds command line benchmarks for the Database algorithms. The
+ * first argument chooses the benchmark, it is not part of the JUnit tests.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class DatabaseBenchmark {
+
+    /**
+     * The entry point of the benchmark.
+     *
+     * @param args
+     *            the name of the benchmark to run, "parallel" also takes the
+     *            most threads to use, "service" the most clients, "server"
+     *            the most connections and the commands each keeps in flight
+     *            and "snapshot", "wal" and "pipeline" the number of
+     *            rectangles
+     */
+    public static void main(String[] args) throws java.io.IOException,
+        InterruptedException {
+        String which = args.length > 0 ? args[0] : "intersections";
+        switch (which) {
+            case "intersections":
+                intersections();
+                break;
+            case "tracked":
+                tracked();
+                break;
+            case "snapshot":
+                snapshot(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            case "wal":
+                wal(args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+                break;
+            case "service":
+                service(args.length > 1 ? Integer.parseInt(args[1]) : 8);
+                break;
+            case "pipeline":
+                pipeline(args.length > 1 ? Integer.parseInt(args[1])
+                    : 100_000);
+                break;
+            case "server":
+                server(args.length > 1 ? Integer.parseInt(args[1]) : 8,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 32);
+                break;
+            case "parallel":
+                parallel(args.length > 1 ? Integer.parseInt(args[1])
+                    : Runtime.getRuntime().availableProcessors());
+                break;
+            default:
+                System.out.println("Unknown benchmark: " + which);
+        }
+    }
+
+
+    /**
+     * Times the plane sweep against the nested loops for a doubling number of
+     * rectangles, which shows where the sweep starts to win. The nested loops
+     * are skipped once they take more than a few seconds. The world is fixed
+     * at 1024x1024, so beyond about 100k rectangles the number of pairs itself
+     * grows quadratically and dominates.
+     */
+    static void intersections() {
+        boolean bruteForce = true;
+        for (int n = 16; n <= 1 << 17; n *= 2) {
+            Rectangle[] rects = IntersectionSweep.randomRectangles(n, 16, n);
+            long sweep = time(() -> IntersectionSweep.pairs(rects));
+            if (bruteForce) {
+                long nested = time(() -> IntersectionSweep.bruteForce(rects));
+                System.out.printf("n=%d sweep=%.3f ms nested=%.3f ms\n", n,
+                    sweep / 1e6, nested / 1e6);
+                bruteForce = nested < 5_000_000_000L;
+            }
+            else {
+                System.out.printf("n=%d sweep=%.3f ms\n", n, sweep / 1e6);
+            }
+        }
+    }
+
+
+    /**
+     * Compares a Database that sweeps for every intersections command with one
+     * that keeps the intersecting pairs up to date. The time for all inserts
+     * shows what tracking costs, the time for one intersections command what
+     * it saves. The output goes nowhere, so printing is still part of both.
+     */
+    static void tracked() {
+        for (int n = 1024; n <= 1 << 16; n *= 4) {
+            Rectangle[] rects = IntersectionSweep.randomRectangles(n, 16, n);
+            Database swept = new Database(new SkipList<String, Rectangle>(true),
+                new BufferedOutputSink(java.io.OutputStream.nullOutputStream()));
+            Database tracking = new Database(new SkipList<String, Rectangle>(true),
+                new BufferedOutputSink(java.io.OutputStream.nullOutputStream()));
+            tracking.trackIntersections();
+            long begin = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                swept.insert(new KVPair<>("r" + i, rects[i]));
+            }
+            long sweptInserts = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                tracking.insert(new KVPair<>("r" + i, rects[i]));
+            }
+            long trackingInserts = System.nanoTime() - begin;
+            long sweep = time(swept::intersections);
+            long listed = time(tracking::intersections);
+            System.out.printf("n=%d inserts sweep=%.3f ms tracked=%.3f ms"
+                + " intersections sweep=%.3f ms tracked=%.3f ms\n", n,
+                sweptInserts / 1e6, trackingInserts / 1e6, sweep / 1e6,
+                listed / 1e6);
+        }
+    }
+
+
+    /**
+     * Times the plane sweep and a grid search over the whole world on a
+     * ForkJoinPool with 1, 2, 4, ... up to the given number of threads, next
+     * to the single threaded versions the Database uses by default. The
+     * speedup can not be more than the number of cores of the machine.
+     *
+     * @param maxThreads
+     *            the most threads to use
+     */
+    static void parallel(int maxThreads) {
+        int n = 1 << 16;
+        Rectangle[] rects = IntersectionSweep.randomRectangles(n, 16, n);
+        SpatialGrid grid = new SpatialGrid();
+        for (int i = 0; i < n; i++) {
+            grid.insert(new KVPair<>("r" + i, rects[i]));
+        }
+        Rectangle world = new Rectangle(0, 0, 1024, 1024);
+        System.out.printf("n=%d serial sweep=%.3f ms search=%.3f ms\n", n,
+            time(() -> IntersectionSweep.pairs(rects)) / 1e6,
+            time(() -> grid.search(world)) / 1e6);
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            java.util.concurrent.ForkJoinPool pool =
+                new java.util.concurrent.ForkJoinPool(threads);
+            System.out.printf("threads=%d sweep=%.3f ms search=%.3f ms\n",
+                threads, time(() -> IntersectionSweep.pairs(rects, pool)) / 1e6,
+                time(() -> grid.search(world, pool)) / 1e6);
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * Restores n rectangles by replaying their insert commands through the
+     * memory mapped command reader, and by loading a snapshot of them. The
+     * output goes nowhere in both cases.
+     *
+     * @param n
+     *            the number of rectangles
+     * @throws java.io.IOException
+     *             if the temporary files can not be written
+     */
+    static void snapshot(int n) throws java.io.IOException {
+        java.io.File commands = java.io.File.createTempFile("commands", ".txt");
+        java.io.File snapshot = java.io.File.createTempFile("snapshot", ".bin");
+        commands.deleteOnExit();
+        snapshot.deleteOnExit();
+        java.util.Random random = new java.util.Random(n);
+        try (java.io.BufferedWriter writer = java.nio.file.Files.newBufferedWriter(
+            commands.toPath())) {
+            for (int i = 0; i < n; i++) {
+                writer.write("insert r" + random.nextInt(n) + " " + random
+                    .nextInt(1000) + " " + random.nextInt(1000) + " " + (1
+                        + random.nextInt(24)) + " " + (1 + random.nextInt(24))
+                    + "\n");
+            }
+        }
+        for (int round = 0; round < 3; round++) {
+            Database replayed = new Database(new SkipList<String, Rectangle>(true),
+                new BufferedOutputSink(java.io.OutputStream.nullOutputStream()));
+            long begin = System.nanoTime();
+            new MappedCommandReader().process(commands, new CommandProcessor(
+                replayed));
+            long replay = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            replayed.save(snapshot.getPath());
+            long save = System.nanoTime() - begin;
+            Database loaded = new Database(new SkipList<String, Rectangle>(true),
+                new BufferedOutputSink(java.io.OutputStream.nullOutputStream()));
+            begin = System.nanoTime();
+            loaded.load(snapshot.getPath());
+            long load = System.nanoTime() - begin;
+            System.out.printf("n=%d replay=%.1f ms (%d KB) save=%.1f ms"
+                + " load=%.1f ms (%d KB)\n", n, replay / 1e6, commands.length()
+                    / 1024, save / 1e6, load / 1e6, snapshot.length() / 1024);
+        }
+    }
+
+
+    /**
+     * Times n inserts without a log and with a WriteAheadLog under each sync
+     * policy, flushing once at the end. ALWAYS forces the log after every
+     * insert, so it only gets a tenth of the inserts. The output goes
+     * nowhere.
+     *
+     * @param n
+     *            the number of rectangles
+     * @throws java.io.IOException
+     *             if the temporary files can not be written
+     */
+    static void wal(int n) throws java.io.IOException {
+        java.io.File dir = java.nio.file.Files.createTempDirectory("wal")
+            .toFile();
+        dir.deleteOnExit();
+        java.util.Random random = new java.util.Random(n);
+        java.util.List<KVPair<String, Rectangle>> pairs =
+            new java.util.ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            pairs.add(new KVPair<>("r" + random.nextInt(n), new Rectangle(random
+                .nextInt(1000), random.nextInt(1000), 1 + random.nextInt(24), 1
+                    + random.nextInt(24))));
+        }
+        String[] policies = { "none", "NEVER", "GROUP", "ALWAYS" };
+        for (int round = 0; round < 3; round++) {
+            for (String policy : policies) {
+                Database data = new Database(new SkipList<String, Rectangle>(
+                    true), new BufferedOutputSink(java.io.OutputStream
+                        .nullOutputStream()));
+                java.io.File file = new java.io.File(dir, policy + round);
+                new java.io.File(file + ".wal").deleteOnExit();
+                if (!policy.equals("none")) {
+                    data.recover(file.getPath(), WriteAheadLog.Sync.valueOf(
+                        policy));
+                }
+                int count = policy.equals("ALWAYS") ? n / 10 : n;
+                long begin = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    data.insert(pairs.get(i));
+                }
+                data.flush();
+                long time = System.nanoTime() - begin;
+                System.out.printf("n=%d log=%s time=%.1f ms (%.0f inserts/s)\n",
+                    count, policy, time / 1e6, count / (time / 1e9));
+            }
+        }
+    }
+
+
+    /**
+     * Lets a doubling number of clients work on one DatabaseService over
+     * 100k rectangles for 3 seconds each, with as many worker threads as
+     * clients. Every client sends a command, waits for its output and sends
+     * the next one. Nine commands out of ten are reads: searches by name and
+     * regionsearches of 16x16, the rest are inserts and removes. The first
+     * line is one client on a plain CommandProcessor, without the service.
+     * The output goes nowhere.
+     *
+     * @param maxClients
+     *            the most clients to try
+     * @throws InterruptedException
+     *             if interrupted while waiting for the clients
+     */
+    static void service(int maxClients) throws InterruptedException {
+        int n = 100_000;
+        for (int clients = 0; clients <= maxClients; clients = Math.max(1,
+            clients * 2)) {
+            Database data = new Database(new SkipList<String, Rectangle>(true),
+                new BufferedOutputSink(java.io.OutputStream.nullOutputStream()));
+            java.util.Random random = new java.util.Random(n);
+            for (int i = 0; i < n; i++) {
+                data.insert(new KVPair<>("r" + random.nextInt(n), new Rectangle(
+                    random.nextInt(1000), random.nextInt(1000), 1 + random
+                        .nextInt(24), 1 + random.nextInt(24))));
+            }
+            data.flush();
+            boolean serial = clients == 0;
+            long[][] latencies = new long[Math.max(1, clients)][];
+            Thread[] threads = new Thread[latencies.length];
+            java.util.concurrent.CountDownLatch start =
+                new java.util.concurrent.CountDownLatch(1);
+            try (DatabaseService service = new DatabaseService(data, clients)) {
+                for (int c = 0; c < threads.length; c++) {
+                    int client = c;
+                    threads[c] = new Thread(() -> {
+                        CommandProcessor session = serial
+                            ? new CommandProcessor(data)
+                            : service.open(new BufferedOutputSink(java.io
+                                .OutputStream.nullOutputStream()));
+                        java.util.Random commands = new java.util.Random(client);
+                        long[] latency = new long[1 << 20];
+                        int ops = 0;
+                        try {
+                            start.await();
+                        }
+                        catch (InterruptedException e) {
+                            return;
+                        }
+                        long end = System.nanoTime() + 3_000_000_000L;
+                        while (ops < latency.length && System.nanoTime() < end) {
+                            int op = commands.nextInt(10);
+                            String line;
+                            if (op < 5) {
+                                line = "search r" + commands.nextInt(n);
+                            }
+                            else if (op < 9) {
+                                line = "regionsearch " + commands.nextInt(1000)
+                                    + " " + commands.nextInt(1000) + " 16 16";
+                            }
+                            else if (commands.nextBoolean()) {
+                                line = "insert r" + commands.nextInt(n) + " "
+                                    + commands.nextInt(1000) + " " + commands
+                                        .nextInt(1000) + " 10 10";
+                            }
+                            else {
+                                line = "remove r" + commands.nextInt(n);
+                            }
+                            long begin = System.nanoTime();
+                            session.processor(line);
+                            session.flush();
+                            latency[ops++] = System.nanoTime() - begin;
+                        }
+                        latencies[client] = java.util.Arrays.copyOf(latency, ops);
+                    });
+                    threads[c].start();
+                }
+                long begin = System.nanoTime();
+                start.countDown();
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                long elapsed = System.nanoTime() - begin;
+                long[] all = java.util.Arrays.stream(latencies).flatMapToLong(
+                    java.util.Arrays::stream).sorted().toArray();
+                System.out.printf("clients=%s commands=%d throughput=%.0f/s"
+                    + " p50=%.1f us p99=%.1f us\n", serial ? "serial"
+                        : String.valueOf(clients), all.length,
+                    all.length * 1e9 / elapsed, all[all.length / 2] / 1e3,
+                    all[all.length * 99 / 100] / 1e3);
+            }
+        }
+    }
+
+
+    /**
+     * Replays a command file of n inserts and as many searches, region
+     * searches and removes, once line by line on one thread and once with a
+     * CommandPipeline, and prints how busy every stage of the pipeline was.
+     * The output goes to a temporary file, so writing it costs what it
+     * costs for real.
+     *
+     * @param n
+     *            the number of rectangles
+     * @throws java.io.IOException
+     *             if the files can not be written
+     */
+    static void pipeline(int n) throws java.io.IOException {
+        java.io.File file = java.io.File.createTempFile("commands", ".txt");
+        java.io.File output = java.io.File.createTempFile("output", ".txt");
+        file.deleteOnExit();
+        output.deleteOnExit();
+        java.util.Random random = new java.util.Random(n);
+        try (java.io.Writer writer = new java.io.BufferedWriter(
+            new java.io.FileWriter(file))) {
+            for (int i = 0; i < n; i++) {
+                writer.write("insert r" + random.nextInt(n) + " " + random
+                    .nextInt(1000) + " " + random.nextInt(1000) + " "
+                    + (1 + random.nextInt(24)) + " " + (1 + random.nextInt(24))
+                    + "\n");
+            }
+            for (int i = 0; i < n; i++) {
+                int op = random.nextInt(10);
+                if (op < 6) {
+                    writer.write("search r" + random.nextInt(n) + "\n");
+                }
+                else if (op < 9) {
+                    writer.write("regionsearch " + random.nextInt(1000) + " "
+                        + random.nextInt(1000) + " 8 8\n");
+                }
+                else {
+                    writer.write("remove r" + random.nextInt(n) + "\n");
+                }
+            }
+        }
+        for (int run = 0; run < 3; run++) {
+            try (java.io.OutputStream out = new java.io.FileOutputStream(
+                output)) {
+                Database data = new Database(new SkipList<String, Rectangle>(
+                    true), new BufferedOutputSink(out));
+                CommandProcessor cmdProc = new CommandProcessor(data);
+                long begin = System.nanoTime();
+                new MappedCommandReader().process(file, cmdProc);
+                cmdProc.flush();
+                System.out.printf("sequential lines=%d %.1f ms%n", 2 * n,
+                    (System.nanoTime() - begin) / 1e6);
+            }
+            try (java.io.OutputStream out = new java.io.FileOutputStream(
+                output)) {
+                Database data = new Database(new SkipList<String, Rectangle>(
+                    true), new BufferedOutputSink(out));
+                CommandPipeline pipeline = new CommandPipeline(data);
+                pipeline.replay(file);
+                System.out.println("pipeline");
+                pipeline.report(System.out);
+            }
+        }
+    }
+
+
+    /**
+     * Times clients of a CommandServer on the loopback address and on a Unix
+     * domain socket, for a doubling number of connections, each waiting for
+     * every answer and each sending depth commands at a time. The commands
+     * are the ones of service on 100k rectangles. The latency of a command
+     * is the time from sending its batch to receiving its answer.
+     *
+     * @param maxConnections
+     *            the most connections at once
+     * @param depth
+     *            the number of commands a pipelined connection sends before
+     *            it waits for their answers
+     * @throws java.io.IOException
+     *             if the server can not be reached
+     * @throws InterruptedException
+     *             if the benchmark is interrupted
+     */
+    static void server(int maxConnections, int depth)
+        throws java.io.IOException, InterruptedException {
+        int n = 100_000;
+        Database data = new Database(new SkipList<String, Rectangle>(true),
+            new BufferedOutputSink(java.io.OutputStream.nullOutputStream()));
+        java.util.Random random = new java.util.Random(n);
+        for (int i = 0; i < n; i++) {
+            data.insert(new KVPair<>("r" + random.nextInt(n), new Rectangle(
+                random.nextInt(1000), random.nextInt(1000), 1 + random
+                    .nextInt(24), 1 + random.nextInt(24))));
+        }
+        data.flush();
+        java.io.File socket = java.io.File.createTempFile("benchmark",
+            ".sock");
+        socket.delete();
+        try (DatabaseService service = new DatabaseService(data, Runtime
+            .getRuntime().availableProcessors())) {
+            for (String address : new String[] {"0", socket.getPath()}) {
+                try (CommandServer server = new CommandServer(service,
+                    CommandServer.address(address))) {
+                    Thread accept = new Thread(server);
+                    accept.setDaemon(true);
+                    accept.start();
+                    for (int connections = 1; connections <= maxConnections;
+                        connections *= 2) {
+                        for (int batch : new int[] {1, depth}) {
+                            serverRun(server.address(), n, connections, batch);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Runs the clients of server for 2 seconds and prints their throughput
+     * and latency.
+     *
+     * @param address
+     *            the address of the server
+     * @param n
+     *            the number of rectangles
+     * @param connections
+     *            the number of connections
+     * @param batch
+     *            the number of commands sent at once
+     * @throws InterruptedException
+     *             if the benchmark is interrupted
+     */
+    static void serverRun(java.net.SocketAddress address, int n,
+        int connections, int batch) throws InterruptedException {
+        long[][] latencies = new long[connections][];
+        Thread[] threads = new Thread[connections];
+        java.util.concurrent.CountDownLatch start =
+            new java.util.concurrent.CountDownLatch(1);
+        for (int c = 0; c < connections; c++) {
+            int client = c;
+            threads[c] = new Thread(() -> {
+                long[] latency = new long[1 << 22];
+                int ops = 0;
+                java.util.Random commands = new java.util.Random(client);
+                try (CommandClient connection = new CommandClient(address)) {
+                    start.await();
+                    long end = System.nanoTime() + 2_000_000_000L;
+                    while (ops + batch <= latency.length && System
+                        .nanoTime() < end) {
+                        for (int i = 0; i < batch; i++) {
+                            int op = commands.nextInt(10);
+                            if (op < 5) {
+                                connection.send("search r" + commands.nextInt(
+                                    n));
+                            }
+                            else if (op < 9) {
+                                connection.send("regionsearch " + commands
+                                    .nextInt(1000) + " " + commands.nextInt(
+                                        1000) + " 16 16");
+                            }
+                            else if (commands.nextBoolean()) {
+                                connection.send("insert r" + commands.nextInt(
+                                    n) + " " + commands.nextInt(1000) + " "
+                                    + commands.nextInt(1000) + " 10 10");
+                            }
+                            else {
+                                connection.send("remove r" + commands.nextInt(
+                                    n));
+                            }
+                        }
+                        long begin = System.nanoTime();
+                        connection.flush();
+                        for (int i = 0; i < batch; i++) {
+                            connection.receive();
+                            latency[ops++] = System.nanoTime() - begin;
+                        }
+                    }
+                }
+                catch (java.io.IOException | InterruptedException e) {
+                    e.printStackTrace();
+                }
+                latencies[client] = java.util.Arrays.copyOf(latency, ops);
+            });
+            threads[c].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        long[] all = java.util.Arrays.stream(latencies).flatMapToLong(
+            java.util.Arrays::stream).sorted().toArray();
+        System.out.printf("%s connections=%d batch=%d commands=%d"
+            + " throughput=%.0f/s p50=%.1f us p99=%.1f us p99.9=%.1f us\n",
+            address instanceof java.net.InetSocketAddress ? "tcp" : "unix",
+            connections, batch, all.length, all.length * 1e9 / elapsed,
+            all[all.length / 2] / 1e3, all[all.length * 99 / 100] / 1e3,
+            all[all.length * 999 / 1000] / 1e3);
+    }
+
+
+    /**
+     * Runs the work a few times and returns the fastest run.
+     *
+     * @param work
+     *            the work to time
+     * @return the fastest run in nanoseconds
+     */
+    static long time(Runnable work) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long begin = System.nanoTime();
+            work.run();
+            best = Math.min(best, System.nanoTime() - begin);
+        }
+        return best;
+    }
+
+}
@@ -0,0 +1,333 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class lets many clients share one Database. Every client opens a
+ * Session and feeds it command lines like a CommandProcessor. The read
+ * commands (search, regionsearch, rangesearch, intersections and dump) of
+ * all sessions run side by side on a pool of worker threads, every other
+ * command changes the Database or a file and runs alone, so writes are
+ * serialized. A fair read-write lock decides which of the two may run, so
+ * a steady stream of reads can not hold a write back forever.
+ *
+ * Inside a session the commands behave as if they ran one after the other:
+ * a read waits for the writes before it and a write waits for everything
+ * before it, while reads in a row run in parallel. The output of every
+ * command is collected on its own and written to the sink of the session in
+ * the order the commands came in, so a session prints exactly what a
+ * CommandProcessor on its own would print.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class DatabaseService implements AutoCloseable {
+
+    // the commands a Session may run at the same time as others
+    private static final String[] READS = { "search", "regionsearch",
+        "rangesearch", "intersections", "dump" };
+    // the most commands a session keeps waiting for their output before
+    // processor waits for the oldest one
+    static final int MAX_PENDING = 1024;
+
+    // the database all sessions share
+    private final Database data;
+    // held shared by reads and alone by writes
+    private final ReentrantReadWriteLock lock;
+    // the threads every command runs on
+    private final ExecutorService workers;
+
+    /**
+     * Creates a service over the database. From now on the database must
+     * only be used through sessions of this service.
+     *
+     * @param dataIn
+     *            the database to share
+     * @param threads
+     *            the number of worker threads, at least 1
+     */
+    public DatabaseService(Database dataIn, int threads) {
+        data = dataIn;
+        lock = new ReentrantReadWriteLock(true);
+        workers = Executors.newFixedThreadPool(Math.max(1, threads), task -> {
+            Thread thread = new Thread(task, "DatabaseService");
+            // Like the threads of a ForkJoinPool, these do not keep the
+            // program running
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Opens a session for one client.
+     *
+     * @param out
+     *            where the output of the commands of the session goes
+     * @return the session, it is used by one thread at a time
+     */
+    public Session open(OutputSink out) {
+        return new Session(out, "");
+    }
+
+
+    /**
+     * Opens a session for one client that writes the text after the output
+     * of every command, so the client can tell the answers apart.
+     *
+     * @param out
+     *            where the output of the commands of the session goes
+     * @param end
+     *            written after the output of every command
+     * @return the session, it is used by one thread at a time
+     */
+    public Session open(OutputSink out, String end) {
+        return new Session(out, end);
+    }
+
+
+    /**
+     * Stops the worker threads once the commands already given to them are
+     * done. Sessions can not be used afterwards.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+
+    /**
+     * @param words
+     *            the words of a line
+     * @param start
+     *            the index of the first character of the line
+     * @return true if the line is a read command
+     */
+    private static boolean isRead(CommandTokenizer words, int start) {
+        if (words.start(0) != start) {
+            return false;
+        }
+        for (String read : READS) {
+            if (words.matches(0, read)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Runs a read command on a reader of the database while the read lock
+     * is held.
+     *
+     * @param line
+     *            the command
+     * @return the output of the command
+     */
+    private String read(String line) {
+        Captured out = new Captured();
+        lock.readLock().lock();
+        try {
+            new CommandProcessor(data.reader(out)).processor(line);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        return out.toString();
+    }
+
+
+    /**
+     * Runs any other command on the database itself while the write lock is
+     * held, with the output of the database sent to this command only.
+     *
+     * @param line
+     *            the command
+     * @return the output of the command
+     */
+    private String write(String line) {
+        Captured out = new Captured();
+        lock.writeLock().lock();
+        try {
+            OutputSink previous = data.redirect(out);
+            try {
+                new CommandProcessor(data).processor(line);
+            }
+            finally {
+                data.redirect(previous);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+        return out.toString();
+    }
+
+
+    /**
+     * The commands of one client. A session is a CommandProcessor, so it can
+     * be fed by Rectangle1 and the MappedCommandReader, but processor only
+     * hands the command to the workers and returns. The output shows up in
+     * the sink of the session as the commands finish, flush waits for all
+     * of them.
+     */
+    public class Session extends CommandProcessor {
+        // where the output of the session goes
+        private final OutputSink out;
+        // written after the output of every command
+        private final String end;
+        // tells read commands from the others
+        private final CommandTokenizer words;
+        // the output of every command whose output is not written yet, in
+        // the order the commands came in
+        private final ArrayDeque<CompletableFuture<String>> pending;
+        // done once the last write and everything before it are done
+        private CompletableFuture<?> lastWrite;
+        // the reads given since the last write
+        private final ArrayList<CompletableFuture<?>> reads;
+
+        /**
+         * @param outIn
+         *            where the output of the session goes
+         * @param endIn
+         *            written after the output of every command
+         */
+        private Session(OutputSink outIn, String endIn) {
+            super(data);
+            out = outIn;
+            // The answers to writes go out only after the log holds them
+            data.logBeforeOutput(out);
+            end = endIn;
+            words = new CommandTokenizer();
+            pending = new ArrayDeque<>();
+            lastWrite = CompletableFuture.completedFuture(null);
+            reads = new ArrayList<>();
+        }
+
+
+        /**
+         * Hands the command to the workers. The output of the commands that
+         * are done is written to the sink, in order. A command that failed
+         * with an exception makes this or flush throw that exception.
+         *
+         * @param text
+         *            the text holding the line
+         * @param start
+         *            the index of the first character of the line
+         * @param end
+         *            the index after the last character of the line
+         */
+        @Override
+        public void processor(CharSequence text, int start, int end) {
+            String line = text.subSequence(start, end).toString();
+            int count = words.reset(line, 0, line.length());
+            CompletableFuture<String> result;
+            if (count > 0 && isRead(words, 0)) {
+                result = lastWrite.thenApplyAsync(done -> read(line), workers);
+                reads.add(result);
+            }
+            else {
+                // The reads since the last write all wait for it, so with it
+                // they are everything this write has to wait for
+                reads.add(lastWrite);
+                CompletableFuture<Void> before = CompletableFuture.allOf(
+                    reads.toArray(new CompletableFuture<?>[0]));
+                result = before.thenApplyAsync(done -> write(line), workers);
+                lastWrite = result;
+                reads.clear();
+            }
+            pending.add(result);
+            while (!pending.isEmpty() && (pending.peek().isDone() || pending
+                .size() > MAX_PENDING)) {
+                emit();
+            }
+        }
+
+
+        /**
+         * Waits for every command given so far, writes their output to the
+         * sink and flushes it, after the changes are in the log.
+         */
+        @Override
+        public void flush() {
+            while (!pending.isEmpty()) {
+                emit();
+            }
+            data.flushLog();
+            out.flush();
+        }
+
+
+        /**
+         * Waits for the oldest command and writes its output.
+         */
+        private void emit() {
+            try {
+                out.print(pending.remove().join()).print(end);
+            }
+            catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException)e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error)e.getCause();
+                }
+                throw e;
+            }
+        }
+
+    }
+
+
+    /**
+     * Collects the output of one command as text.
+     */
+    private static class Captured implements OutputSink {
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public OutputSink print(String piece) {
+            text.append(piece);
+            return this;
+        }
+
+
+        @Override
+        public OutputSink print(char c) {
+            text.append(c);
+            return this;
+        }
+
+
+        @Override
+        public OutputSink print(int number) {
+            text.append(number);
+            return this;
+        }
+
+
+        @Override
+        public OutputSink println() {
+            text.append(System.lineSeparator());
+            return this;
+        }
+
+
+        @Override
+        public void flush() {
+            // The text is taken when the command is done
+        }
+
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseServiceTest {
+
+    @Test
+    //a session prints byte for byte what a CommandProcessor prints for the same commands
+    void testSameOutputAsCommandProcessor() {
+        ArrayList<String> commands = new ArrayList<>();
+        Random random = new Random(53);
+        for (int i = 0; i < 3000; i++) {
+            commands.add(command(random, "r"));
+        }
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        CommandProcessor expected = new CommandProcessor(new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink(serial)));
+        commands.forEach(expected::processor);
+        expected.flush();
+
+        for (int threads : new int[] {1, 4}) {
+            ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+            try (DatabaseService service = new DatabaseService(new Database(), threads)) {
+                DatabaseService.Session session = service.open(new BufferedOutputSink(parallel));
+                commands.forEach(session::processor);
+                session.flush();
+            }
+            // The depths of the nodes are random, everything else must match
+            assertEquals(serial.toString().replaceAll("depth \\d+", "depth N"), parallel.toString().replaceAll("depth \\d+", "depth N"));
+        }
+    }
+
+    @Test
+    //the sample command files print what they print on one thread
+    void testSameAsPrintf() throws IOException {
+        for (int test = 1; test <= 2; test++) {
+            String file = "Data/P1test" + test + ".txt";
+            String golden = new String(Files.readAllBytes(Paths.get("Data/P1test" + test + "Golden.txt")));
+            String printed = SkipListTest.printed(() -> Rectangle1.main(new String[] {"-threads", "3", file}));
+            assertEquals(golden, printed.replaceAll("depth \\d+", "depth N"), file);
+        }
+    }
+
+    @Test
+    //clients working at the same time each get the output they would get alone
+    void testManyClients() throws InterruptedException {
+        int clients = 6;
+        ArrayList<ArrayList<String>> scripts = new ArrayList<>();
+        ArrayList<String> expected = new ArrayList<>();
+        // all scripts one after the other, the names of the clients differ
+        // so the rectangles end up the same in any interleaving
+        Database together = new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink(new ByteArrayOutputStream()));
+        CommandProcessor all = new CommandProcessor(together);
+        for (int c = 0; c < clients; c++) {
+            Random random = new Random(c);
+            ArrayList<String> script = new ArrayList<>();
+            for (int i = 0; i < 1500; i++) {
+                String line = command(random, "c" + c + "n");
+                // regionsearch, intersections and dump see the rectangles of
+                // other clients
+                if (!line.startsWith("regionsearch") && !line.startsWith("intersections") && !line.startsWith("dump")) {
+                    script.add(line);
+                }
+            }
+            script.add("rangesearch c" + c + "n c" + c + "o");
+            scripts.add(script);
+            ByteArrayOutputStream alone = new ByteArrayOutputStream();
+            CommandProcessor processor = new CommandProcessor(new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink(alone)));
+            script.forEach(processor::processor);
+            processor.flush();
+            expected.add(alone.toString());
+            script.forEach(all::processor);
+        }
+
+        Database shared = new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink(new ByteArrayOutputStream()));
+        String[] printed = new String[clients];
+        Throwable[] failure = new Throwable[1];
+        try (DatabaseService service = new DatabaseService(shared, 4)) {
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[clients];
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                threads[c] = new Thread(() -> {
+                    try {
+                        start.await();
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        DatabaseService.Session session = service.open(new BufferedOutputSink(bytes, 64));
+                        for (String line : scripts.get(client)) {
+                            session.processor(line);
+                        }
+                        session.flush();
+                        printed[client] = bytes.toString();
+                    }
+                    catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                });
+                threads[c].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure[0] != null) {
+                fail(failure[0]);
+            }
+            for (int c = 0; c < clients; c++) {
+                assertEquals(expected.get(c), printed[c], "client " + c);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DatabaseService.Session session = service.open(new BufferedOutputSink(bytes));
+            session.processor("regionsearch 0 0 1024 1024");
+            session.processor("intersections");
+            session.flush();
+            ByteArrayOutputStream serial = new ByteArrayOutputStream();
+            together.flush();
+            together.redirect(new BufferedOutputSink(serial));
+            together.regionsearch(0, 0, 1024, 1024);
+            together.intersections();
+            together.flush();
+            assertEquals(serial.toString(), bytes.toString());
+        }
+    }
+
+    /**
+     * @param random
+     *            the random generator
+     * @param prefix
+     *            the start of every name
+     * @return a random command line, now and then an invalid one
+     */
+    static String command(Random random, String prefix) {
+        String name = prefix + random.nextInt(80);
+        String rect = random.nextInt(1000) + " " + random.nextInt(1000) + " " + random.nextInt(40) + " " + random.nextInt(40);
+        int op = random.nextInt(100);
+        if (op < 45) {
+            return "insert " + name + " " + rect;
+        }
+        if (op < 55) {
+            return "remove " + name;
+        }
+        if (op < 60) {
+            return "remove " + rect;
+        }
+        if (op < 75) {
+            return "search " + name;
+        }
+        if (op < 88) {
+            return "regionsearch " + rect;
+        }
+        if (op < 94) {
+            return "rangesearch " + name + " " + prefix + random.nextInt(80);
+        }
+        if (op < 96) {
+            return "intersections";
+        }
+        if (op < 97) {
+            return "dump";
+        }
+        return op < 99 ? "bogus " + name : " search " + name;
+    }
+
+}
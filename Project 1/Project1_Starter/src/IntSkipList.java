@@ -0,0 +1,407 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * This class implements a SkipList specialized for int keys. Every node keeps
+ * its key as a plain int next to its value, so a descent compares ints in the
+ * node itself instead of calling compareTo on a boxed Integer behind a KVPair.
+ *
+ * The primitive methods insert(int, V), search(int) and remove(int) never box
+ * a key. The class also implements SkipListADT with Integer keys, so it can be
+ * used wherever a SkipList of Integer keys is used; those methods, dump and
+ * the iterator make the KVPairs they return on the fly. Like SkipList,
+ * duplicate keys are allowed and a new pair is placed in front of any pairs
+ * that already have the same key.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ * @param <V>
+ *            Value
+ */
+public class IntSkipList<V> implements SkipListADT<Integer, V> {
+
+    // the highest level a tower can reach, the head is always this tall
+    static final int MAX_LEVEL = 31;
+
+    private final IntNode<V> head; // sentinel in front of every level
+    private int size; // number of entries in the Skip List
+    private int level; // highest level used so far
+    private final Random random;
+
+    /**
+     * Initializes the fields head, size and level
+     */
+    public IntSkipList() {
+        head = new IntNode<>(0, null, MAX_LEVEL);
+        random = new Random();
+    }
+
+
+    /**
+     * Returns a random level number which is used as the depth of a node. It
+     * follows the same distribution as SkipList.randomLevel.
+     *
+     * @return a random level number
+     */
+    int randomLevel() {
+        int lev;
+        for (lev = 0; lev < MAX_LEVEL && random.nextBoolean(); lev++) {
+            // Do nothing
+        }
+        return lev; // returns a random level
+    }
+
+
+    /**
+     * Inserts the value under the key, in front of any values that already
+     * have the key.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value to be inserted
+     */
+    public void insert(int key, V value) {
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            level = newLevel;
+        }
+        IntNode<V>[] path = findPath(key);
+        IntNode<V> newNode = new IntNode<>(key, value, newLevel);
+        for (int i = 0; i <= newLevel; i++) {
+            newNode.forward[i] = path[i].forward[i];
+            path[i].forward[i] = newNode;
+        }
+        size++;
+    }
+
+
+    /**
+     * Searches for the values stored under the key.
+     *
+     * @param key
+     *            key to be searched for
+     * @return the values in list order, an empty ArrayList if there are none
+     */
+    public ArrayList<V> search(int key) {
+        ArrayList<V> found = new ArrayList<>();
+        IntNode<V> current = before(key).forward[0];
+        while (current != null && current.key == key) {
+            found.add(current.value);
+            current = current.forward[0];
+        }
+        return found;
+    }
+
+
+    /**
+     * Removes the first value stored under the key.
+     *
+     * @param key
+     *            the key of the value to be removed
+     * @return the removed value, null if the key was not found
+     */
+    public V remove(int key) {
+        IntNode<V> removed = removeNode(key);
+        return removed == null ? null : removed.value;
+    }
+
+
+    /**
+     * Inserts the KVPair at its appropriate spot. Only its key and value are
+     * kept, not the pair itself.
+     *
+     * @param it
+     *            the KVPair to be inserted
+     */
+    @Override
+    public void insert(KVPair<Integer, V> it) {
+        insert(it.getKey().intValue(), it.getValue());
+    }
+
+
+    /**
+     * Searches for the KVPair(s) using the key.
+     *
+     * @param key
+     *            key to be searched for
+     * @return An ArrayList of new KVPair(s) associated with the given key if
+     *         found, otherwise an empty ArrayList is returned
+     */
+    @Override
+    public ArrayList<KVPair<Integer, V>> search(Integer key) {
+        ArrayList<KVPair<Integer, V>> foundPairs = new ArrayList<>();
+        for (V value : search(key.intValue())) {
+            foundPairs.add(new KVPair<>(key, value));
+        }
+        return foundPairs;
+    }
+
+
+    /**
+     * Removes the first KVPair with the given key.
+     *
+     * @param key
+     *            the key of the KVPair to be removed
+     * @return a pair with the removed key and value, null if not found
+     */
+    @Override
+    public KVPair<Integer, V> remove(Integer key) {
+        IntNode<V> removed = removeNode(key.intValue());
+        return removed == null ? null : removed.element();
+    }
+
+
+    /**
+     * Removes the first KVPair with the specified value, exactly that node is
+     * unlinked even if other nodes share its key.
+     *
+     * @param val
+     *            the value of the KVPair to be removed
+     * @return a pair with the removed key and value, null if not found
+     */
+    @Override
+    public KVPair<Integer, V> removeByValue(V val) {
+        if (val == null) {
+            return null;
+        }
+        for (IntNode<V> node = head.forward[0]; node != null;
+            node = node.forward[0]) {
+            if (val.equals(node.value)) {
+                unlink(findPath(node.key), node);
+                return node.element();
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * @return the size of the SkipList
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Writes the SkipList in the same format as SkipList.dump.
+     *
+     * @param out
+     *            the sink to write to
+     */
+    @Override
+    public void dump(OutputSink out) {
+        out.print("SkipList dump:").println();
+        for (IntNode<V> node = head; node != null; node = node.forward[0]) {
+            out.print("Node has depth ").print(node == head ? level
+                : node.forward.length - 1).print(", Value ");
+            SkipList.printPair(out, node == head ? null : node.element());
+            out.println();
+        }
+        out.print("SkipList size is: ").print(size).println();
+    }
+
+
+    /**
+     * Returns a lazy iterator over the pairs whose key is at least fromKey and
+     * smaller than toKey, starting with a descent to fromKey.
+     *
+     * @param fromKey
+     *            the smallest key to return (inclusive)
+     * @param toKey
+     *            the key to stop at (exclusive)
+     * @return an iterator over the pairs in the range
+     */
+    @Override
+    public Iterator<KVPair<Integer, V>> range(Integer fromKey, Integer toKey) {
+        return new IntIterator(before(fromKey.intValue()).forward[0], toKey
+            .intValue(), true);
+    }
+
+
+    /**
+     * @return an iterator over all pairs in list order
+     */
+    @Override
+    public Iterator<KVPair<Integer, V>> iterator() {
+        return new IntIterator(head.forward[0], 0, false);
+    }
+
+
+    /**
+     * Finds the last node with a key smaller than the given one.
+     *
+     * @param key
+     *            the key to search for
+     * @return the node, the head if there is none
+     */
+    private IntNode<V> before(int key) {
+        IntNode<V> current = head;
+        for (int i = level; i >= 0; i--) {
+            while (current.forward[i] != null && current.forward[i].key < key) {
+                current = current.forward[i];
+            }
+        }
+        return current;
+    }
+
+
+    /**
+     * Finds the last node with a key smaller than the given one on every
+     * level.
+     *
+     * @param key
+     *            the key to search for
+     * @return the node for every level up to the level of the list
+     */
+    private IntNode<V>[] findPath(int key) {
+        IntNode<V>[] path = IntNode.newArray(level + 1);
+        IntNode<V> current = head;
+        for (int i = level; i >= 0; i--) {
+            while (current.forward[i] != null && current.forward[i].key < key) {
+                current = current.forward[i];
+            }
+            path[i] = current;
+        }
+        return path;
+    }
+
+
+    /**
+     * Unlinks the first node with the key.
+     *
+     * @param key
+     *            the key to remove
+     * @return the node, null if there is none
+     */
+    private IntNode<V> removeNode(int key) {
+        IntNode<V>[] path = findPath(key);
+        IntNode<V> node = path[0].forward[0];
+        if (node == null || node.key != key) {
+            return null;
+        }
+        unlink(path, node);
+        return node;
+    }
+
+
+    /**
+     * Unlinks the node from every level.
+     *
+     * @param path
+     *            the last node before the key of the node on every level
+     * @param node
+     *            the node to unlink, one of the nodes with that key
+     */
+    private void unlink(IntNode<V>[] path, IntNode<V> node) {
+        for (int i = 0; i < node.forward.length; i++) {
+            // The node may come after other nodes with the same key
+            IntNode<V> current = path[i];
+            while (current.forward[i] != node) {
+                current = current.forward[i];
+            }
+            current.forward[i] = node.forward[i];
+        }
+        size--;
+        // Drop empty levels so that descents start lower
+        while (level > 0 && head.forward[level] == null) {
+            level--;
+        }
+    }
+
+
+    /**
+     * A node holding an int key and its value.
+     *
+     * @param <V>
+     *            Value
+     */
+    private static class IntNode<V> {
+        private final int key;
+        private final V value;
+        // the next node on every level of the tower
+        private final IntNode<V>[] forward;
+
+        /**
+         * @param keyIn
+         *            the key
+         * @param valueIn
+         *            the value
+         * @param levelIn
+         *            the level of the tower
+         */
+        IntNode(int keyIn, V valueIn, int levelIn) {
+            key = keyIn;
+            value = valueIn;
+            forward = newArray(levelIn + 1);
+        }
+
+
+        /**
+         * @return a new KVPair with the key and value of the node
+         */
+        KVPair<Integer, V> element() {
+            return new KVPair<>(key, value);
+        }
+
+
+        /**
+         * @param <V>
+         *            Value
+         * @param length
+         *            the length of the array
+         * @return a new array of nodes
+         */
+        @SuppressWarnings("unchecked")
+        static <V> IntNode<V>[] newArray(int length) {
+            return (IntNode<V>[])new IntNode<?>[length];
+        }
+    }
+
+
+    /**
+     * An iterator along the bottom level from a node up to an optional key.
+     */
+    private class IntIterator implements Iterator<KVPair<Integer, V>> {
+        private IntNode<V> current;
+        private final int toKey;
+        private final boolean bounded;
+
+        /**
+         * @param first
+         *            the first node to return, null for none
+         * @param toKeyIn
+         *            the key to stop at (exclusive)
+         * @param boundedIn
+         *            false to go to the end instead
+         */
+        IntIterator(IntNode<V> first, int toKeyIn, boolean boundedIn) {
+            current = first;
+            toKey = toKeyIn;
+            bounded = boundedIn;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return current != null && (!bounded || current.key < toKey);
+        }
+
+
+        @Override
+        public KVPair<Integer, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            KVPair<Integer, V> pair = current.element();
+            current = current.forward[0];
+            return pair;
+        }
+    }
+
+}
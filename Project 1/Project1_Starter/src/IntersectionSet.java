@@ -0,0 +1,164 @@
+import java.awt.Rectangle;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+
+/**
+ * This class keeps the set of intersecting rectangle pairs up to date while
+ * rectangles are inserted and removed, so that the Database does not have to
+ * find them all again for every intersections command. Every stored pair
+ * knows the pairs its rectangle intersects, found with a SpatialGrid search
+ * when it is added. Listing all k intersecting pairs then only takes O(k).
+ *
+ * The pairs are kept in list order: by key, and the pair added last first
+ * between equal keys, which is where SkipList puts a new pair. Listing them
+ * therefore gives the same order as two nested iterators over the list.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class IntersectionSet {
+
+    // list order, the newer entry first between equal keys
+    private static final Comparator<Entry> ORDER = (entry1, entry2) -> {
+        int cmp = entry1.pair.compareTo(entry2.pair);
+        return cmp != 0 ? cmp : Long.compare(entry2.added, entry1.added);
+    };
+
+    // the entry of every stored pair, looked up by identity since equal pairs
+    // may be stored more than once, each KVPair object is stored only once
+    private final IdentityHashMap<KVPair<String, Rectangle>, Entry> entries;
+    // the entries that intersect at least one other entry, in list order
+    private final TreeSet<Entry> intersecting;
+    // counts the adds, so later pairs come first between equal keys
+    private long added;
+    // number of intersecting pairs, each one counted in both directions
+    private int size;
+
+    /**
+     * Initializes an empty set.
+     */
+    public IntersectionSet() {
+        entries = new IdentityHashMap<>();
+        intersecting = new TreeSet<>(ORDER);
+    }
+
+
+    /**
+     * Adds a pair in front of the stored pairs with the same key and records
+     * an intersection with every stored candidate its rectangle intersects.
+     * Candidates that are not stored (yet) are skipped, they record the
+     * intersection themselves when they are added.
+     *
+     * @param pair
+     *            the pair that was inserted into the list
+     * @param candidates
+     *            the pairs near the rectangle, for example from a SpatialGrid
+     *            search with the rectangle
+     */
+    public void add(KVPair<String, Rectangle> pair,
+        Iterable<KVPair<String, Rectangle>> candidates) {
+        Entry entry = new Entry(pair, ++added);
+        entries.put(pair, entry);
+        Rectangle rect = pair.getValue();
+        for (KVPair<String, Rectangle> candidate : candidates) {
+            Entry other = entries.get(candidate);
+            if (other != null && other != entry && rect.intersects(candidate
+                .getValue())) {
+                link(entry, other);
+                link(other, entry);
+            }
+        }
+    }
+
+
+    /**
+     * Removes exactly this pair and all of its intersections.
+     *
+     * @param pair
+     *            the pair that was removed from the list
+     */
+    public void remove(KVPair<String, Rectangle> pair) {
+        Entry entry = entries.remove(pair);
+        if (entry == null) {
+            return;
+        }
+        for (Entry other : entry.neighbours) {
+            other.neighbours.remove(entry);
+            if (other.neighbours.isEmpty()) {
+                intersecting.remove(other);
+            }
+        }
+        size -= 2 * entry.neighbours.size();
+        intersecting.remove(entry);
+    }
+
+
+    /**
+     * @return the number of intersecting pairs, counting (a, b) and (b, a)
+     *         as two
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Gives every intersecting pair to the action in both directions, ordered
+     * by the first pair and then by the second pair in list order.
+     *
+     * @param action
+     *            what to do with the two pairs
+     */
+    public void forEach(BiConsumer<KVPair<String, Rectangle>,
+        KVPair<String, Rectangle>> action) {
+        for (Entry entry : intersecting) {
+            for (Entry other : entry.neighbours) {
+                action.accept(entry.pair, other.pair);
+            }
+        }
+    }
+
+
+    /**
+     * Records that the second entry intersects the first one.
+     *
+     * @param entry
+     *            the entry
+     * @param other
+     *            an entry that intersects it
+     */
+    private void link(Entry entry, Entry other) {
+        if (entry.neighbours.isEmpty()) {
+            intersecting.add(entry);
+        }
+        entry.neighbours.add(other);
+        size++;
+    }
+
+
+    /**
+     * A stored pair with the entries of the pairs it intersects.
+     */
+    private static final class Entry {
+        private final KVPair<String, Rectangle> pair;
+        // when the pair was added, a higher number is newer
+        private final long added;
+        private final TreeSet<Entry> neighbours;
+
+        /**
+         * @param pairIn
+         *            the stored pair
+         * @param addedIn
+         *            the number of the add
+         */
+        Entry(KVPair<String, Rectangle> pairIn, long addedIn) {
+            pair = pairIn;
+            added = addedIn;
+            neighbours = new TreeSet<>(ORDER);
+        }
+    }
+
+}
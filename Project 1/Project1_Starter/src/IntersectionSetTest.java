@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntersectionSetTest {
+    IntersectionSet set;
+    @BeforeEach
+    public void setUp() {
+        set = new IntersectionSet();
+    }
+
+    @Test
+    //pairs come out in list order in both directions and leave with their rectangle
+    void testAddAndRemove() {
+        KVPair<String, Rectangle> b = new KVPair<>("b", new Rectangle(0, 0, 10, 10));
+        KVPair<String, Rectangle> a = new KVPair<>("a", new Rectangle(5, 5, 10, 10));
+        KVPair<String, Rectangle> newer = new KVPair<>("b", new Rectangle(5, 5, 10, 10));
+        KVPair<String, Rectangle> touching = new KVPair<>("c", new Rectangle(10, 0, 5, 5));
+        ArrayList<KVPair<String, Rectangle>> all = new ArrayList<>();
+        for (KVPair<String, Rectangle> pair : java.util.Arrays.asList(b, a, newer, touching)) {
+            all.add(pair);
+            set.add(pair, all);
+        }
+        assertEquals(6, set.size());
+        ArrayList<String> found = new ArrayList<>();
+        set.forEach((pair1, pair2) -> found.add(pair1.getValue().x + pair1.getKey() + pair2.getKey() + pair2.getValue().x));
+        // the newer "b" comes before the older one, touching sides do not count
+        assertEquals(java.util.Arrays.asList("5ab5", "5ab0", "5ba5", "5bb0", "0ba5", "0bb5"), found);
+
+        set.remove(a);
+        set.remove(a);
+        assertEquals(2, set.size());
+        set.remove(newer);
+        assertEquals(0, set.size());
+        set.forEach((pair1, pair2) -> fail());
+    }
+
+    @Test
+    //a tracking database prints the same intersections as one that sweeps, after any changes
+    void testSameAsSweep() {
+        Database swept = new Database();
+        Database tracking = new Database();
+        Random random = new Random(17);
+        for (int i = 0; i < 3000; i++) {
+            if (i == 500) {
+                // start tracking with rectangles already stored
+                tracking.trackIntersections();
+            }
+            String name = "r" + random.nextInt(40);
+            int op = random.nextInt(10);
+            if (op < 5) {
+                KVPair<String, Rectangle> pair = new KVPair<>(name, new Rectangle(random.nextInt(900), random.nextInt(900), 1 + random.nextInt(120), 1 + random.nextInt(120)));
+                swept.insert(pair);
+                tracking.insert(pair);
+            }
+            else if (op < 7) {
+                swept.remove(name);
+                tracking.remove(name);
+            }
+            else if (op < 9) {
+                Rectangle rect = new Rectangle(random.nextInt(900), random.nextInt(900), 1 + random.nextInt(120), 1 + random.nextInt(120));
+                swept.remove(rect.x, rect.y, rect.width, rect.height);
+                tracking.remove(rect.x, rect.y, rect.width, rect.height);
+            }
+            else {
+                // a batch with two equal pairs and names that are already stored
+                ArrayList<KVPair<String, Rectangle>> batch = new ArrayList<>();
+                batch.add(new KVPair<>(name, new Rectangle(100, 100, 50, 50)));
+                batch.add(new KVPair<>("r" + random.nextInt(40), new Rectangle(120, 90, 40, 40)));
+                batch.add(new KVPair<>(name, new Rectangle(100, 100, 50, 50)));
+                swept.bulkLoad(batch);
+                tracking.bulkLoad(batch);
+            }
+            if (i % 100 == 99) {
+                swept.flush();
+                tracking.flush();
+                assertEquals(SkipListTest.printed(() -> { swept.intersections(); swept.flush(); }),
+                    SkipListTest.printed(() -> { tracking.intersections(); tracking.flush(); }));
+            }
+        }
+        swept.flush();
+        tracking.flush();
+    }
+
+}
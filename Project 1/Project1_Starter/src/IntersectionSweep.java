@@ -0,0 +1,505 @@
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class finds all pairs of intersecting rectangles with a plane sweep.
+ * The left and right x-edges of the rectangles are sorted and swept from left
+ * to right while an interval tree holds the y-intervals of the rectangles that
+ * are currently crossed by the sweep line. Every rectangle only has to be
+ * compared against the active rectangles whose y-interval overlaps its own,
+ * so the cost is O(n log n + k) for k intersecting pairs instead of the O(n^2)
+ * of comparing every pair.
+ *
+ * Pairs are reported with the same meaning as java.awt.Rectangle.intersects,
+ * that is the rectangles must share some area, touching sides do not count.
+ *
+ * The sweep can also run on a ForkJoinPool. The world is then cut into
+ * vertical strips that are swept on their own, and a pair is only kept by
+ * the strip holding the left edge of the overlap of its two rectangles, so
+ * a pair crossing strips is still reported once.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class IntersectionSweep {
+
+    // the side of the world the strips are cut from
+    private static final int WORLD = 1024;
+    // the most strips the world is cut into
+    private static final int STRIPS = 256;
+
+    /**
+     * Objects of this class are not needed, everything is static.
+     */
+    private IntersectionSweep() {
+    }
+
+
+    /**
+     * Finds all ordered pairs (i, j) of different positions whose rectangles
+     * intersect. Every pair is reported in both directions and the result is
+     * sorted by i and then by j, which is the order two nested loops over the
+     * array would find them in.
+     *
+     * @param rects
+     *            the rectangles, in the order their pairs should be reported
+     * @return the pairs, each one packed as ((long)i << 32) | j
+     */
+    public static long[] pairs(Rectangle[] rects) {
+        int n = rects.length;
+        // Rectangles without area never intersect anything
+        int[] starts = new int[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (rects[i].width > 0 && rects[i].height > 0) {
+                starts[count++] = i;
+            }
+        }
+
+        // Sort the left edges and the right edges of the rectangles
+        long[] byStart = new long[count];
+        long[] byEnd = new long[count];
+        for (int i = 0; i < count; i++) {
+            Rectangle r = rects[starts[i]];
+            byStart[i] = pack(r.x, starts[i]);
+            byEnd[i] = pack((long)r.x + r.width, starts[i]);
+        }
+        Arrays.sort(byStart);
+        Arrays.sort(byEnd);
+
+        IntervalTree active = new IntervalTree();
+        PairBuffer found = new PairBuffer();
+        int e = 0;
+        for (int s = 0; s < count; s++) {
+            int i = (int)byStart[s];
+            Rectangle r = rects[i];
+            // Retire every rectangle that ends at or before this left edge
+            while (e < count && (byEnd[e] >> 32) <= r.x) {
+                int j = (int)byEnd[e++];
+                active.remove(rects[j].y, j);
+            }
+            // Every active rectangle overlaps r on x, check y with the tree
+            active.report(r.y, (long)r.y + r.height, i, found);
+            active.insert(r.y, (long)r.y + r.height, i);
+        }
+
+        long[] result = found.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+
+    /**
+     * Finds the same pairs in the same order as pairs(rects), sweeping strips
+     * of the world in parallel on the pool.
+     *
+     * @param rects
+     *            the rectangles, in the order their pairs should be reported
+     * @param pool
+     *            the pool to sweep on
+     * @return the pairs, each one packed as ((long)i << 32) | j
+     */
+    public static long[] pairs(Rectangle[] rects, ForkJoinPool pool) {
+        // A few strips per thread so that a crowded strip does not hold up
+        // the others, but not so many that most rectangles cross strips
+        int strips = Math.min(STRIPS, 4 * pool.getParallelism());
+        return pool.invoke(new StripTask(rects, 0, strips, strips));
+    }
+
+
+    /**
+     * Finds the pairs that one strip of the world is responsible for.
+     *
+     * @param rects
+     *            all rectangles
+     * @param strip
+     *            the number of the strip
+     * @param strips
+     *            the number of strips
+     * @return the pairs whose overlap starts in the strip, packed like in
+     *         pairs()
+     */
+    private static long[] strip(Rectangle[] rects, int strip, int strips) {
+        // The first and last strips also take whatever lies outside the world
+        long from = strip == 0 ? Long.MIN_VALUE : (long)WORLD * strip / strips;
+        long to = strip == strips - 1 ? Long.MAX_VALUE : (long)WORLD * (strip + 1) / strips;
+        int[] index = new int[rects.length];
+        int count = 0;
+        for (int i = 0; i < rects.length; i++) {
+            Rectangle r = rects[i];
+            if (r.x < to && (long)r.x + r.width > from) {
+                index[count++] = i;
+            }
+        }
+        Rectangle[] local = new Rectangle[count];
+        for (int i = 0; i < count; i++) {
+            local[i] = rects[index[i]];
+        }
+
+        long[] found = pairs(local);
+        int kept = 0;
+        for (long pair : found) {
+            int i = index[first(pair)];
+            int j = index[second(pair)];
+            long left = Math.max(rects[i].x, rects[j].x);
+            if (left >= from && left < to) {
+                // Positions only grow with the local ones, the order holds
+                found[kept++] = ((long)i << 32) | j;
+            }
+        }
+        return Arrays.copyOf(found, kept);
+    }
+
+
+    /**
+     * Finds the same pairs as pairs() by comparing every rectangle with every
+     * other one. It is kept as the reference to check and benchmark the sweep
+     * against.
+     *
+     * @param rects
+     *            the rectangles, in the order their pairs should be reported
+     * @return the pairs, each one packed as ((long)i << 32) | j
+     */
+    public static long[] bruteForce(Rectangle[] rects) {
+        PairBuffer found = new PairBuffer();
+        for (int i = 0; i < rects.length; i++) {
+            for (int j = 0; j < rects.length; j++) {
+                if (i != j && rects[i].intersects(rects[j])) {
+                    found.add(((long)i << 32) | j);
+                }
+            }
+        }
+        return found.toArray();
+    }
+
+
+    /**
+     * @param pair
+     *            a pair returned by pairs()
+     * @return the first position of the pair
+     */
+    public static int first(long pair) {
+        return (int)(pair >>> 32);
+    }
+
+
+    /**
+     * @param pair
+     *            a pair returned by pairs()
+     * @return the second position of the pair
+     */
+    public static int second(long pair) {
+        return (int)pair;
+    }
+
+
+    /**
+     * Returns count random rectangles inside the 1024x1024 world, used by the
+     * tests and the benchmark.
+     *
+     * @param count
+     *            the number of rectangles
+     * @param maxSide
+     *            the largest width or height
+     * @param seed
+     *            the seed of the random generator
+     * @return the rectangles
+     */
+    static Rectangle[] randomRectangles(int count, int maxSide, long seed) {
+        Random random = new Random(seed);
+        Rectangle[] rects = new Rectangle[count];
+        for (int i = 0; i < count; i++) {
+            int w = 1 + random.nextInt(maxSide);
+            int h = 1 + random.nextInt(maxSide);
+            rects[i] = new Rectangle(random.nextInt(1025 - w), random.nextInt(
+                1025 - h), w, h);
+        }
+        return rects;
+    }
+
+
+    /**
+     * Packs a coordinate and a position so that sorting the longs sorts by the
+     * coordinate first.
+     *
+     * @param coord
+     *            the coordinate, must fit in 31 bits
+     * @param index
+     *            the position of the rectangle
+     * @return the packed value
+     */
+    private static long pack(long coord, int index) {
+        return (coord << 32) | index;
+    }
+
+
+    /**
+     * A growable array of packed pairs. Every intersection is stored in both
+     * directions so that sorting the buffer gives the nested loop order.
+     */
+    private static class PairBuffer {
+        private long[] data = new long[16];
+        private int size;
+
+        /**
+         * @param pair
+         *            the packed pair to add
+         */
+        void add(long pair) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = pair;
+        }
+
+
+        /**
+         * @return the pairs that were added
+         */
+        long[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+
+    /**
+     * Sweeps a range of strips, splitting it in halves until one strip is
+     * left. The pairs of both halves are merged back into one sorted array.
+     */
+    private static class StripTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Rectangle[] rects;
+        private final int from;
+        private final int to;
+        private final int strips;
+
+        /**
+         * @param rectsIn
+         *            all rectangles
+         * @param fromIn
+         *            the first strip to sweep
+         * @param toIn
+         *            the strip to stop at (exclusive)
+         * @param stripsIn
+         *            the number of strips the world is cut into
+         */
+        StripTask(Rectangle[] rectsIn, int fromIn, int toIn, int stripsIn) {
+            rects = rectsIn;
+            from = fromIn;
+            to = toIn;
+            strips = stripsIn;
+        }
+
+
+        @Override
+        protected long[] compute() {
+            if (to - from == 1) {
+                return strip(rects, from, strips);
+            }
+            int mid = (from + to) >>> 1;
+            StripTask right = new StripTask(rects, mid, to, strips);
+            right.fork();
+            long[] left = new StripTask(rects, from, mid, strips).compute();
+            return merge(left, right.join());
+        }
+
+
+        /**
+         * @param a
+         *            sorted pairs
+         * @param b
+         *            sorted pairs, none of them also in a
+         * @return all pairs of both, sorted
+         */
+        private static long[] merge(long[] a, long[] b) {
+            long[] merged = new long[a.length + b.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < a.length && j < b.length) {
+                merged[k++] = a[i] < b[j] ? a[i++] : b[j++];
+            }
+            System.arraycopy(a, i, merged, k, a.length - i);
+            System.arraycopy(b, j, merged, k + a.length - i, b.length - j);
+            return merged;
+        }
+    }
+
+
+    /**
+     * An interval tree over the y-intervals of the active rectangles. It is a
+     * treap ordered by (low, id) where every node also knows the largest high
+     * end in its subtree, so whole subtrees that end above a query can be
+     * skipped.
+     */
+    private static class IntervalTree {
+        private final Random random = new Random(42);
+        private Node root;
+
+        /**
+         * A node holding the interval [low, high) of rectangle id.
+         */
+        private static class Node {
+            private final long low;
+            private final long high;
+            private final int id;
+            private final int priority;
+            private long maxHigh;
+            private Node left;
+            private Node right;
+
+            Node(long low, long high, int id, int priority) {
+                this.low = low;
+                this.high = high;
+                this.id = id;
+                this.priority = priority;
+                maxHigh = high;
+            }
+        }
+
+
+        /**
+         * Adds the interval [low, high) of rectangle id.
+         */
+        void insert(long low, long high, int id) {
+            root = insert(root, new Node(low, high, id, random.nextInt()));
+        }
+
+
+        /**
+         * Removes the interval of rectangle id that starts at low.
+         */
+        void remove(long low, int id) {
+            root = remove(root, low, id);
+        }
+
+
+        /**
+         * Adds both directions of (id, other) to found for every interval in
+         * the tree that overlaps [low, high).
+         */
+        void report(long low, long high, int id, PairBuffer found) {
+            report(root, low, high, id, found);
+        }
+
+
+        private void report(Node node, long low, long high, int id,
+            PairBuffer found) {
+            while (node != null && node.maxHigh > low) {
+                report(node.left, low, high, id, found);
+                // Everything to the right starts at or after this node
+                if (node.low >= high) {
+                    return;
+                }
+                if (node.high > low) {
+                    found.add(((long)id << 32) | node.id);
+                    found.add(((long)node.id << 32) | id);
+                }
+                node = node.right;
+            }
+        }
+
+
+        private static int compare(Node node, long low, int id) {
+            if (node.low != low) {
+                return node.low < low ? -1 : 1;
+            }
+            return Integer.compare(node.id, id);
+        }
+
+
+        private Node insert(Node node, Node added) {
+            if (node == null) {
+                return added;
+            }
+            if (compare(node, added.low, added.id) > 0) {
+                node.left = insert(node.left, added);
+                if (node.left.priority > node.priority) {
+                    node = rotateRight(node);
+                }
+            }
+            else {
+                node.right = insert(node.right, added);
+                if (node.right.priority > node.priority) {
+                    node = rotateLeft(node);
+                }
+            }
+            update(node);
+            return node;
+        }
+
+
+        private Node remove(Node node, long low, int id) {
+            if (node == null) {
+                return null;
+            }
+            int cmp = compare(node, low, id);
+            if (cmp > 0) {
+                node.left = remove(node.left, low, id);
+            }
+            else if (cmp < 0) {
+                node.right = remove(node.right, low, id);
+            }
+            else {
+                // Merge the two children in place of the removed node
+                return merge(node.left, node.right);
+            }
+            update(node);
+            return node;
+        }
+
+
+        private Node merge(Node a, Node b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            if (a.priority > b.priority) {
+                a.right = merge(a.right, b);
+                update(a);
+                return a;
+            }
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+
+
+        private Node rotateRight(Node node) {
+            Node top = node.left;
+            node.left = top.right;
+            top.right = node;
+            update(node);
+            return top;
+        }
+
+
+        private Node rotateLeft(Node node) {
+            Node top = node.right;
+            node.right = top.left;
+            top.left = node;
+            update(node);
+            return top;
+        }
+
+
+        private void update(Node node) {
+            long max = node.high;
+            if (node.left != null && node.left.maxHigh > max) {
+                max = node.left.maxHigh;
+            }
+            if (node.right != null && node.right.maxHigh > max) {
+                max = node.right.maxHigh;
+            }
+            node.maxHigh = max;
+        }
+    }
+
+}
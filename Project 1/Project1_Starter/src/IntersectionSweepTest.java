@@ -0,0 +1,63 @@
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntersectionSweepTest {
+
+    @Test
+    //the sweep should find the same pairs in the same order as the nested loops
+    void testSmallCases() {
+        Rectangle[] rects = {
+            new Rectangle(10, 10, 5, 5),
+            new Rectangle(15, 10, 5, 5),  //only touches the first one
+            new Rectangle(12, 12, 5, 5),
+            new Rectangle(10, 10, 5, 5),  //same as the first one
+            new Rectangle(0, 0, 0, 0),    //no area, never intersects
+            new Rectangle(0, 0, 1024, 1024),
+        };
+        assertArrayEquals(IntersectionSweep.bruteForce(rects), IntersectionSweep.pairs(rects));
+        assertEquals(0, IntersectionSweep.pairs(new Rectangle[0]).length);
+    }
+
+    @Test
+    //the pairs must match at growing sizes and with both small and large rectangles
+    void testScaling() {
+        for (int n = 10; n <= 2560; n *= 4) {
+            for (int side : new int[] {4, 64, 512}) {
+                Rectangle[] rects = IntersectionSweep.randomRectangles(n, side, n * 31 + side);
+                assertArrayEquals(IntersectionSweep.bruteForce(rects), IntersectionSweep.pairs(rects),
+                    "n=" + n + " side=" + side);
+            }
+        }
+    }
+
+    @Test
+    //rectangles that share edges on a grid only touch and never intersect
+    void testGridOnlyTouches() {
+        Rectangle[] rects = new Rectangle[256];
+        for (int i = 0; i < rects.length; i++) {
+            rects[i] = new Rectangle((i % 16) * 64, (i / 16) * 64, 64, 64);
+        }
+        assertEquals(0, IntersectionSweep.pairs(rects).length);
+    }
+
+    @Test
+    //sweeping strips in parallel gives the same pairs in the same order for any number of threads
+    void testParallel() {
+        Rectangle[] rects = IntersectionSweep.randomRectangles(3000, 100, 41);
+        // rectangles on strip edges, across all strips and outside the world
+        rects[0] = new Rectangle(0, 0, 1024, 1024);
+        rects[1] = new Rectangle(60, 10, 8, 8);
+        rects[2] = new Rectangle(64, 12, 8, 8);
+        rects[3] = new Rectangle(-50, 5, 100, 100);
+        rects[4] = new Rectangle(1000, 5, 100, 100);
+        long[] expected = IntersectionSweep.pairs(rects);
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(threads);
+            assertArrayEquals(expected, IntersectionSweep.pairs(rects, pool), "threads=" + threads);
+            assertEquals(0, IntersectionSweep.pairs(new Rectangle[0], pool).length);
+            pool.shutdown();
+        }
+    }
+
+}
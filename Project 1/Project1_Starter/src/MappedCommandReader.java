@@ -0,0 +1,227 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class feeds a command file to a CommandProcessor by memory mapping it
+ * with FileChannel.map instead of reading it through a Reader. Lines are found
+ * directly in the mapped bytes and handed to the processor through a
+ * CharSequence view of the mapping, so no String is made for a line unless the
+ * command needs one. A mapping can not be larger than 2 GB, so larger files
+ * are mapped in windows that always end after a complete line.
+ *
+ * Lines end at "\n", "\r\n" or "\r" and are trimmed like String.trim. Command
+ * files are expected to be ASCII, a line holding any other byte is decoded
+ * with the default charset into a String first, so that it is processed
+ * exactly like a line read by a FileReader.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class MappedCommandReader {
+
+    // the default size of one mapped window
+    static final int DEFAULT_WINDOW = 1 << 30;
+
+    // the size of the windows the file is mapped in
+    private final int window;
+
+    /**
+     * Creates a reader that maps files in windows of 1 GB.
+     */
+    public MappedCommandReader() {
+        this(DEFAULT_WINDOW);
+    }
+
+
+    /**
+     * Creates a reader that maps files in windows of the given size. A window
+     * is made larger when a single line does not fit in it.
+     *
+     * @param windowIn
+     *            the size of one window in bytes
+     */
+    public MappedCommandReader(int windowIn) {
+        window = windowIn;
+    }
+
+
+    /**
+     * Processes every non empty line of the file in order.
+     *
+     * @param file
+     *            the command file
+     * @param cmdProc
+     *            the processor to feed the lines to
+     * @throws IOException
+     *             if the file can not be opened or read
+     */
+    public void process(File file, CommandProcessor cmdProc)
+        throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            int size = window;
+            while (position < fileSize) {
+                int length = (int)Math.min(size, fileSize - position);
+                MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length == fileSize;
+
+                // Only complete lines are processed, the rest is mapped again
+                // at the start of the next window
+                int complete = last ? length : lastLineEnd(buffer, length);
+                if (complete == 0) {
+                    // A single line longer than the window, map more of it
+                    if (size == Integer.MAX_VALUE) {
+                        throw new IOException("Line longer than 2 GB at byte "
+                            + position);
+                    }
+                    size = (int)Math.min(Integer.MAX_VALUE, size * 2L);
+                    continue;
+                }
+                processLines(buffer, complete, cmdProc);
+                position += complete;
+                size = window;
+            }
+        }
+    }
+
+
+    /**
+     * Splits the first length bytes of the buffer into lines and processes
+     * them. The CommandServer feeds the bytes read from a connection through
+     * here as well.
+     *
+     * @param buffer
+     *            the window, or any other buffer holding lines
+     * @param length
+     *            the number of bytes holding complete lines
+     * @param cmdProc
+     *            the processor to feed the lines to
+     */
+    static void processLines(ByteBuffer buffer, int length,
+        CommandProcessor cmdProc) {
+        MappedBytes text = new MappedBytes();
+        text.buffer = buffer;
+        int lineStart = 0;
+        while (lineStart < length) {
+            // Find the end of the line and whether it has non ASCII bytes
+            int lineEnd = lineStart;
+            boolean ascii = true;
+            byte b;
+            while (lineEnd < length && (b = text.buffer.get(lineEnd)) != '\n'
+                && b != '\r') {
+                ascii &= b >= 0;
+                lineEnd++;
+            }
+
+            // Trim like String.trim does
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && text.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && text.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start < end) {
+                if (ascii) {
+                    cmdProc.processor(text, start, end);
+                }
+                else {
+                    String line = text.decode(lineStart, lineEnd).trim();
+                    if (!line.isEmpty()) {
+                        cmdProc.processor(line);
+                    }
+                }
+            }
+
+            // Step over "\n", "\r" or "\r\n"
+            lineStart = lineEnd + 1;
+            if (lineEnd < length && text.buffer.get(lineEnd) == '\r'
+                && lineStart < length && text.buffer.get(lineStart) == '\n') {
+                lineStart++;
+            }
+        }
+    }
+
+
+    /**
+     * Finds where the last complete line of the window ends.
+     *
+     * @param buffer
+     *            the window
+     * @param length
+     *            the size of the window
+     * @return the index after the last line terminator, or 0 if there is none
+     */
+    static int lastLineEnd(ByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            byte b = buffer.get(i);
+            // A "\r" at the very end may be the first half of "\r\n", leave
+            // it for the next window
+            if (b == '\n' || (b == '\r' && i < length - 1)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * A CharSequence view of the bytes of a mapped window, every byte is one
+     * ASCII character. Nothing is copied until subSequence or toString is
+     * called.
+     */
+    private static class MappedBytes implements CharSequence {
+        private ByteBuffer buffer;
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+
+        @Override
+        public char charAt(int index) {
+            return (char)(buffer.get(index) & 0xff);
+        }
+
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+
+
+        /**
+         * @param start
+         *            the first byte
+         * @param end
+         *            the byte after the last one
+         * @return the bytes decoded with the default charset
+         */
+        String decode(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, Charset.defaultCharset());
+        }
+
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCommandReaderTest {
+
+    @Test
+    //the mapped reader should print exactly what the normal reader prints,
+    //also when the file is split into many small windows
+    void testSameOutputAsReader() throws IOException {
+        File file = File.createTempFile("commands", ".txt");
+        file.deleteOnExit();
+        String commands = "insert r1 10 10 5 5\r\n"
+            + "\tinsert r2 15 15 5 5\t\r"
+            + "\n\n   \n"
+            + "insert r3 7 7 10 10\n"
+            + "bogus  command \n"
+            + "insert caf\u00e9 1 1 1 1\n"
+            + "insert r4 20 12 3 3\r"
+            + "regionsearch 0 0 1024 1024\n"
+            + "remove r2\n"
+            + "intersections\n"
+            + "search r4";
+        Files.write(file.toPath(), commands.getBytes(StandardCharsets.UTF_8));
+
+        String expected = SkipListTest.printed(() -> Rectangle1.main(new String[] {file.getPath()}));
+        assertTrue(expected.contains("Invalid command: bogus  command"));
+        assertTrue(expected.contains("Rectangle rejected: (caf"));
+        assertEquals(expected, SkipListTest.printed(() -> Rectangle1.main(new String[] {"-mmap", file.getPath()})));
+        for (int window : new int[] {8, 19, 20, 21, 64}) {
+            assertEquals(expected, SkipListTest.printed(() -> {
+                try {
+                    CommandProcessor cmdProc = new CommandProcessor();
+                    new MappedCommandReader(window).process(file, cmdProc);
+                    cmdProc.flush();
+                }
+                catch (IOException e) {
+                    fail(e);
+                }
+            }), "window " + window);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+/**
+ * This interface is where the Database and the SkipList write their output
+ * to, instead of calling System.out directly. Text is appended piece by piece
+ * and ints are written without going through a format string, so an
+ * implementation can collect a lot of output before writing it at once.
+ * Nothing is guaranteed to be visible before flush is called.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public interface OutputSink {
+
+    /**
+     * Appends the text.
+     *
+     * @param text
+     *            the text to append
+     * @return this sink, so that calls can be chained
+     */
+    public OutputSink print(String text);
+
+
+    /**
+     * Appends one character.
+     *
+     * @param c
+     *            the character to append
+     * @return this sink, so that calls can be chained
+     */
+    public OutputSink print(char c);
+
+
+    /**
+     * Appends the decimal form of the number.
+     *
+     * @param number
+     *            the number to append
+     * @return this sink, so that calls can be chained
+     */
+    public OutputSink print(int number);
+
+
+    /**
+     * Ends the line with the line separator, like System.out.println does.
+     *
+     * @return this sink, so that calls can be chained
+     */
+    public OutputSink println();
+
+
+    /**
+     * Writes out everything appended so far.
+     */
+    public void flush();
+
+}
@@ -0,0 +1,68 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+class OutputSinkTest {
+
+    @Test
+    //ints are written exactly like String.valueOf writes them
+    void testPrintInt() {
+        int[] numbers = {0, 7, -7, 10, -10, 99, 100, 1024, -1024, 123456789,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE + 1};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // A small buffer so that numbers also end up at the edge of it
+        OutputSink out = new BufferedOutputSink(bytes, 16);
+        StringBuilder expected = new StringBuilder();
+        for (int number : numbers) {
+            out.print(number).print(' ');
+            expected.append(number).append(' ');
+        }
+        out.flush();
+        assertEquals(expected.toString(), bytes.toString());
+    }
+
+    @Test
+    //text larger than the buffer and non ASCII text come out unchanged
+    void testPrintText() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink out = new BufferedOutputSink(bytes, 16);
+        String longText = "a long line that does not fit into the buffer";
+        String accented = "caf\u00e9 (r1, 1, 2)";
+        out.print(longText).print('|').print(accented).println();
+        out.flush();
+        // Compared as bytes, a charset without the accent writes "?" for it
+        assertArrayEquals((longText + "|" + accented + System.lineSeparator()).getBytes(Charset.defaultCharset()),
+            bytes.toByteArray());
+    }
+
+    @Test
+    //nothing reaches the stream before the sink is flushed
+    void testBuffered() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink out = new BufferedOutputSink(bytes);
+        out.print("Rectangle inserted: ").print(1);
+        assertEquals("", bytes.toString());
+        out.flush();
+        assertEquals("Rectangle inserted: 1", bytes.toString());
+    }
+
+    @Test
+    //the sample command files print byte for byte what System.out.printf printed
+    void testSameAsPrintf() throws IOException {
+        for (int test = 1; test <= 2; test++) {
+            String file = "Data/P1test" + test + ".txt";
+            String golden = new String(Files.readAllBytes(Paths.get("Data/P1test" + test + "Golden.txt")));
+            // The depths of the nodes are random, everything else must match
+            String printed = SkipListTest.printed(() -> Rectangle1.main(new String[] {file}));
+            assertEquals(golden, printed.replaceAll("depth \\d+", "depth N"), file);
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveSkipListTest {
+
+    @Test
+    //the primitive methods store, find and remove values by their key
+    void testPrimitiveMethods() {
+        IntSkipList<String> ints = new IntSkipList<>();
+        ints.insert(5, "a");
+        ints.insert(-3, "b");
+        ints.insert(5, "c");
+        ints.insert(Integer.MIN_VALUE, "min");
+        assertEquals(4, ints.size());
+        // the newest value of a key comes first, like in SkipList
+        assertEquals(java.util.Arrays.asList("c", "a"), ints.search(5));
+        assertEquals("min", ints.search(Integer.MIN_VALUE).get(0));
+        assertEquals("c", ints.remove(5));
+        assertNull(ints.remove(6));
+        assertEquals(Integer.valueOf(-3), ints.removeByValue("b").getKey());
+        assertEquals(2, ints.size());
+
+        LongSkipList<String> longs = new LongSkipList<>();
+        longs.insert(1L << 40, "big");
+        longs.insert(-(1L << 40), "small");
+        assertEquals("small", longs.iterator().next().getValue());
+        assertEquals("big", longs.search(1L << 40).get(0));
+        assertEquals("big", longs.remove(1L << 40));
+        assertEquals(1, longs.size());
+    }
+
+    @Test
+    //a random mix of operations leaves the same pairs in the same order as SkipList
+    void testSameAsSkipList() {
+        IntSkipList<Integer> ints = new IntSkipList<>();
+        LongSkipList<Integer> longs = new LongSkipList<>();
+        SkipList<Integer, Integer> reference = new SkipList<>();
+        Random random = new Random(13);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(1000) - 500;
+            int op = random.nextInt(4);
+            if (op < 2) {
+                ints.insert(key, i);
+                longs.insert(key, i);
+                reference.insert(new KVPair<>(key, i));
+            }
+            else if (op == 2) {
+                KVPair<Integer, Integer> removed = reference.remove(key);
+                Integer expected = removed == null ? null : removed.getValue();
+                assertEquals(expected, ints.remove(key));
+                assertEquals(expected, longs.remove((long)key));
+            }
+            else {
+                Integer value = random.nextInt(i + 1);
+                KVPair<Integer, Integer> removed = reference.removeByValue(value);
+                assertEquals(removed == null, ints.removeByValue(value) == null);
+                assertEquals(removed == null, longs.removeByValue(value) == null);
+            }
+        }
+        assertEquals(reference.size(), ints.size());
+        assertEquals(reference.size(), longs.size());
+        Iterator<KVPair<Integer, Integer>> intPairs = ints.iterator();
+        Iterator<KVPair<Long, Integer>> longPairs = longs.iterator();
+        for (KVPair<Integer, Integer> pair : reference) {
+            KVPair<Integer, Integer> intPair = intPairs.next();
+            KVPair<Long, Integer> longPair = longPairs.next();
+            assertEquals(pair.getKey(), intPair.getKey());
+            assertEquals(pair.getValue(), intPair.getValue());
+            assertEquals(pair.getKey().longValue(), longPair.getKey().longValue());
+            assertEquals(pair.getValue(), longPair.getValue());
+        }
+        assertFalse(intPairs.hasNext());
+        assertFalse(longPairs.hasNext());
+
+        ArrayList<Integer> inRange = new ArrayList<>();
+        ints.range(-10, 10).forEachRemaining(pair -> inRange.add(pair.getValue()));
+        ArrayList<Integer> expectedRange = new ArrayList<>();
+        reference.range(-10, 10).forEachRemaining(pair -> expectedRange.add(pair.getValue()));
+        assertEquals(expectedRange, inRange);
+    }
+
+    @Test
+    //dump prints in the same format as SkipList
+    void testDump() {
+        IntSkipList<String> ints = new IntSkipList<>();
+        ints.insert(7, "x");
+        String printed = SkipListTest.printed(() -> ints.dump());
+        assertTrue(printed.startsWith("SkipList dump:"));
+        assertTrue(printed.contains(", Value (7 ,x)"));
+        assertTrue(printed.endsWith("SkipList size is: 1" + System.lineSeparator()));
+    }
+
+}
@@ -1,6 +1,9 @@
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
 
 // On my honor:
 //
@@ -39,42 +42,154 @@ public class Rectangle1 {
      *
      * @param args
      *            The name of the command file passed in as a command line
-     *            argument.
+     *            argument. With "-mmap" in front of the name the file is
+     *            memory mapped instead of read through a Reader, which is
+     *            much faster for very large files. With "-wal" and a path
+     *            in front of everything else, the rectangles are recovered
+     *            from path.snap and path.wal first, and every change is
+     *            logged to path.wal. With "-threads" and a number after
+     *            that, read commands run side by side on that many threads,
+     *            the output stays the same. With "-serve" and a port number
+     *            or the path of a Unix domain socket instead of a file, the
+     *            commands of clients connecting there are run until the
+     *            program is killed, see CommandServer. With "-pipeline"
+     *            in front of the name, reading, running and printing the
+     *            commands overlap on three threads, the output stays the
+     *            same and how busy each of them was goes to System.err.
      */
     public static void main(String[] args) {
         // the file object
         File file = null;
 
-        
+        // recovers the rectangles of the last run when asked to
+        Database data = new Database();
+        if (args.length > 2 && args[0].equals("-wal")) {
+            try {
+                data.recover(args[1], WriteAheadLog.Sync.GROUP);
+            }
+            catch (IOException e) {
+                data.flush();
+                System.out.println("Recovery failed");
+                e.printStackTrace();
+                return;
+            }
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+
+        // creates a command processor object, its output is buffered
+        CommandProcessor cmdProc = new CommandProcessor(data);
+
+        // hands the commands to a pool of threads when asked to
+        DatabaseService service = null;
+        if (args.length > 2 && args[0].equals("-threads")) {
+            service = new DatabaseService(data, Integer.parseInt(args[1]));
+            cmdProc = service.open(data.output());
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+
+        // serves the commands of clients over a socket until killed
+        if (args.length > 1 && args[0].equals("-serve")) {
+            if (service == null) {
+                service = new DatabaseService(data, Runtime.getRuntime().availableProcessors());
+            }
+            try (CommandServer server = new CommandServer(service, CommandServer.address(args[1]))) {
+                data.output().print("Listening on ").print(server.address().toString()).println();
+                data.flush();
+                server.run();
+            }
+            catch (IOException e) {
+                data.flush();
+                System.out.println("Server failed");
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        // reads, runs and prints the commands on three threads when asked
+        // to, how busy each was goes to System.err
+        if (args.length > 1 && args[0].equals("-pipeline")) {
+            CommandPipeline pipeline = new CommandPipeline(data);
+            try {
+                pipeline.replay(new File(args[1]));
+                pipeline.report(System.err);
+            }
+            catch (IOException e) {
+                data.flush();
+                System.out.println("Invalid file");
+                e.printStackTrace();
+            }
+            finally {
+                // writes out whatever output is still buffered
+                data.flush();
+            }
+            return;
+        }
+
+        // memory maps the file when asked to
+        if (args.length > 1 && args[0].equals("-mmap")) {
+            try {
+                new MappedCommandReader().process(new File(args[1]), cmdProc);
+            }
+            catch (IOException e) {
+                cmdProc.flush();
+                System.out.println("Invalid file");
+                e.printStackTrace();
+            }
+            finally {
+                // writes out whatever output is still buffered
+                cmdProc.flush();
+            }
+            return;
+        }
 
         // Attempts to open the file and scan through it
         try {
         	// takes the first command line argument and opens that file
             file = new File(args[0]);
            
-            // creates a scanner object
-            Scanner scanner = new Scanner(file);
-
-            // creates a command processor object
-            CommandProcessor cmdProc = new CommandProcessor();
+            // creates a buffered reader, which reads the file in large
+            // blocks and splits lines without regular expressions
+            BufferedReader reader = new BufferedReader(new FileReader(file), 1 << 16);
             // reads the entire file and processes the commands
             // line by line
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                // determines if the file has more lines to read
-                if (!line.trim().isEmpty()) {
-                    cmdProc.processor(line.trim());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // finds the line without its leading and trailing
+                // whitespace, the same part trim() would return
+                int start = 0;
+                int end = line.length();
+                while (start < end && line.charAt(start) <= ' ') {
+                    start++;
+                }
+                while (end > start && line.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                // skips empty lines
+                if (start < end) {
+                    cmdProc.processor(line, start, end);
                 }
             }
-            // closes the scanner
-            scanner.close();
+            // closes the reader
+            reader.close();
         }
         // catches the exception if the file cannot be found
         // and outputs the correct information to the console
         catch (FileNotFoundException e) {
+            cmdProc.flush();
             System.out.println("Invalid file");
             e.printStackTrace();
         }
+        // catches the exception if the file cannot be read
+        catch (IOException e) {
+            cmdProc.flush();
+            System.out.println("Invalid file");
+            e.printStackTrace();
+        }
+        // writes out whatever output is still buffered, also when a command
+        // failed with an exception
+        finally {
+            cmdProc.flush();
+        }
 
     }
 }
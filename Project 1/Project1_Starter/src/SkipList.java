@@ -1,7 +1,16 @@
+import java.awt.Rectangle;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class implements SkipList data structure and contains an inner SkipNode
@@ -16,17 +25,103 @@ import java.util.Random;
  *            Value
  */
 public class SkipList<K extends Comparable<? super K>, V>
-    implements Iterable<KVPair<K, V>> {
+    implements SkipListADT<K, V> {
     private SkipNode head; // First element of the top level
     private int size; // number of entries in the Skip List
+    // maps every value to the node holding it, or to an ArrayList of nodes
+    // when several nodes hold an equal value, null when not enabled
+    private HashMap<V, Object> valueIndex;
+    // counts the changes to the links, so that a Cursor notices when its
+    // remembered path may no longer be right
+    private int modCount;
     
 	
     /**
      * Initializes the fields head, size and level
      */
     public SkipList() {
+        this(false);
+    }
+
+
+    /**
+     * Initializes the fields head, size and level. With indexValues the list
+     * also keeps a hash index from every value to its nodes, which makes
+     * removeByValue O(log n) at the cost of one map entry per pair.
+     * 
+     * @param indexValues
+     *            whether to keep the value index
+     */
+    public SkipList(boolean indexValues) {
         head = new SkipNode(null, 0);
         size = 0;
+        if (indexValues) {
+            valueIndex = new HashMap<>();
+        }
+    }
+
+
+    /**
+     * Builds the SkipList from pairs that are already sorted by key in a single
+     * left to right pass, without any searching. Instead of randomLevel the
+     * n-th pair (counting from 1) gets as many levels as n has trailing zero
+     * bits, which is the same 1/2 distribution but fixed, so every level holds
+     * every other node of the level below. Pairs with equal keys keep the
+     * order they come in.
+     * 
+     * @param sorted
+     *            the pairs in key order
+     * @param indexValues
+     *            whether to keep the value index
+     * @throws IllegalArgumentException
+     *             if the pairs are not sorted by key
+     */
+    @SuppressWarnings("unchecked")
+    public SkipList(Iterator<KVPair<K, V>> sorted, boolean indexValues) {
+        this(indexValues);
+        
+        // The first and last node linked on every level so far, and the
+        // position of the last one
+        SkipNode[] first = (SkipList<K, V>.SkipNode[]) Array.newInstance(SkipNode.class, 32);
+        SkipNode[] last = (SkipList<K, V>.SkipNode[]) Array.newInstance(SkipNode.class, 32);
+        int[] lastRank = new int[32];
+        int topLevel = 0;
+        KVPair<K, V> previous = null;
+        
+        while (sorted.hasNext()) {
+            KVPair<K, V> it = sorted.next();
+            if (previous != null && previous.compareTo(it) > 0) {
+                throw new IllegalArgumentException("Pairs are not sorted: " + previous.getKey() + " before " + it.getKey());
+            }
+            previous = it;
+            size++;
+            
+            // Append the node at the end of each of its levels
+            SkipNode newNode = new SkipNode(it, Integer.numberOfTrailingZeros(size));
+            for (int i = 0; i <= newNode.level; i++) {
+                if (last[i] == null) {
+                    first[i] = newNode;
+                }
+                else {
+                    last[i].forward[i] = newNode;
+                    last[i].width[i] = size - lastRank[i];
+                }
+                last[i] = newNode;
+                lastRank[i] = size;
+            }
+            topLevel = Math.max(topLevel, newNode.level);
+            
+            index(newNode);
+        }
+        
+        // Put the head in front of every level and close the last links,
+        // the first node on level i is the one at position 2^i
+        head = new SkipNode(null, topLevel);
+        for (int i = 0; i <= topLevel && last[i] != null; i++) {
+            head.forward[i] = first[i];
+            head.width[i] = 1 << i;
+            last[i].width[i] = size - lastRank[i];
+        }
     }
 
 
@@ -58,11 +153,13 @@ public class SkipList<K extends Comparable<? super K>, V>
         ArrayList<KVPair<K, V>> foundPairs = new ArrayList<>();
         // Start the search at the head of the skip list
         SkipNode currentNode = head;
+        // The packed first characters of the key are compared before the key
+        long keyPrefix = prefix(key);
 
         // Starting from the highest level and move downwards to find the node with the given key
         for (int i = head.level; i >= 0; i--) {
             // Move the current pointer to the right until the next KVPair's key is greater than or equal to the given key
-            while (currentNode.forward[i] != null && currentNode.forward[i].element().getKey().compareTo(key) < 0) {
+            while (currentNode.forward[i] != null && compare(currentNode.forward[i], key, keyPrefix) < 0) {
             	currentNode = currentNode.forward[i];
             }
         }
@@ -71,7 +168,7 @@ public class SkipList<K extends Comparable<? super K>, V>
         currentNode = currentNode.forward[0];
         
         // Add all found KVPair objects with the given key to the foundNodes ArrayList
-        while (currentNode != null && currentNode.element().getKey().compareTo(key) == 0) {
+        while (currentNode != null && compare(currentNode, key, keyPrefix) == 0) {
             KVPair<K, V> foundPair = currentNode.element();
             foundPairs.add(foundPair);
         	currentNode = currentNode.forward[0];
@@ -89,6 +186,210 @@ public class SkipList<K extends Comparable<? super K>, V>
     }    
 
 
+    /**
+     * Returns the KVPair at the given position in key order. The widths of the
+     * links are added up on the way down, so this takes O(log n).
+     * 
+     * @param index
+     *            the position of the pair, starting at 0
+     * @return the KVPair at that position
+     * @throws IndexOutOfBoundsException
+     *             if there is no pair at that position
+     */
+    public KVPair<K, V> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return nodeAt(index).element();
+    }
+
+
+    /**
+     * Returns the number of pairs whose key is smaller than the given key. That
+     * is the position of the first pair with the key, or the position it would
+     * be inserted at.
+     * 
+     * @param key
+     *            the key to find the rank of
+     * @return the rank of the key
+     */
+    public int rank(K key) {
+        int rank = 0;
+        SkipNode currentNode = head;
+        long keyPrefix = prefix(key);
+        // Add up the widths of every link taken while moving towards the key
+        for (int i = head.level; i >= 0; i--) {
+            while (currentNode.forward[i] != null && compare(currentNode.forward[i], key, keyPrefix) < 0) {
+                rank += currentNode.width[i];
+                currentNode = currentNode.forward[i];
+            }
+        }
+        return rank;
+    }
+
+
+    /**
+     * Returns the pairs from position fromIndex (inclusive) up to toIndex
+     * (exclusive). Finding the first pair takes O(log n), the rest are read
+     * one by one from level 0.
+     * 
+     * @param fromIndex
+     *            the position of the first pair
+     * @param toIndex
+     *            the position after the last pair
+     * @return an ArrayList with the pairs in key order
+     * @throws IndexOutOfBoundsException
+     *             if the positions are not inside the list
+     */
+    public ArrayList<KVPair<K, V>> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+        }
+        ArrayList<KVPair<K, V>> pairs = new ArrayList<>(toIndex - fromIndex);
+        if (fromIndex == toIndex) {
+            return pairs;
+        }
+        SkipNode currentNode = nodeAt(fromIndex);
+        for (int i = fromIndex; i < toIndex; i++) {
+            pairs.add(currentNode.element());
+            currentNode = currentNode.forward[0];
+        }
+        return pairs;
+    }
+
+
+    /**
+     * Returns the pair with the greatest key less than or equal to the given
+     * key. When several pairs share that key the first of them is returned.
+     * 
+     * @param key
+     *            the key to search for
+     * @return the pair, or null if there is no such key
+     */
+    public KVPair<K, V> floor(K key) {
+        SkipNode before = findPath(key)[0];
+        // An exact match is the node right after the path
+        if (before.forward[0] != null && before.forward[0].element().getKey().compareTo(key) == 0) {
+            return before.forward[0].element();
+        }
+        return firstOfRun(before);
+    }
+
+
+    /**
+     * Returns the pair with the greatest key strictly less than the given key.
+     * When several pairs share that key the first of them is returned.
+     * 
+     * @param key
+     *            the key to search for
+     * @return the pair, or null if there is no such key
+     */
+    public KVPair<K, V> lower(K key) {
+        return firstOfRun(findPath(key)[0]);
+    }
+
+
+    /**
+     * Returns the first pair with a key greater than or equal to the given key.
+     * 
+     * @param key
+     *            the key to search for
+     * @return the pair, or null if there is no such key
+     */
+    public KVPair<K, V> ceiling(K key) {
+        SkipNode after = findPath(key)[0].forward[0];
+        return after == null ? null : after.element();
+    }
+
+
+    /**
+     * Returns the first pair with a key strictly greater than the given key.
+     * 
+     * @param key
+     *            the key to search for
+     * @return the pair, or null if there is no such key
+     */
+    public KVPair<K, V> higher(K key) {
+        SkipNode currentNode = head;
+        long keyPrefix = prefix(key);
+        // Move past every node whose key is less than or equal to the key
+        for (int i = head.level; i >= 0; i--) {
+            while (currentNode.forward[i] != null && compare(currentNode.forward[i], key, keyPrefix) <= 0) {
+            	currentNode = currentNode.forward[i];
+            }
+        }
+        SkipNode after = currentNode.forward[0];
+        return after == null ? null : after.element();
+    }
+
+
+    /**
+     * Returns a lazy iterator over the pairs whose key is at least fromKey and
+     * smaller than toKey. It descends from the top level once to find fromKey
+     * and then streams the pairs from level 0 without copying them.
+     * 
+     * @param fromKey
+     *            the smallest key to return (inclusive)
+     * @param toKey
+     *            the key to stop at (exclusive)
+     * @return an iterator over the pairs in the range
+     */
+    @Override
+    public Iterator<KVPair<K, V>> range(K fromKey, K toKey) {
+        return new RangeIterator(findPath(fromKey)[0], toKey);
+    }
+
+
+    /**
+     * Returns a new cursor over this list. See Cursor.
+     * 
+     * @return the cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+
+    /**
+     * Returns the first pair that has the same key as the given node.
+     * 
+     * @param node
+     *            a node of the list, may be the head
+     * @return the first pair with the key of node, or null for the head
+     */
+    private KVPair<K, V> firstOfRun(SkipNode node) {
+        if (node == head) {
+            return null;
+        }
+        return findPath(node.element().getKey())[0].forward[0].element();
+    }
+
+
+    /**
+     * Finds the node at the given position using the link widths.
+     * 
+     * @param index
+     *            the position, between 0 and size - 1
+     * @return the node at that position
+     */
+    private SkipNode nodeAt(int index) {
+        // Nodes are counted from 1, the head is at 0
+        int target = index + 1;
+        int traversed = 0;
+        SkipNode currentNode = head;
+        for (int i = head.level; i >= 0; i--) {
+            while (currentNode.forward[i] != null && traversed + currentNode.width[i] <= target) {
+                traversed += currentNode.width[i];
+                currentNode = currentNode.forward[i];
+            }
+            if (traversed == target) {
+                break;
+            }
+        }
+        return currentNode;
+    }
+
+
     /**
      * Inserts the KVPair in the SkipList at its appropriate spot as designated
      * by its lexicoragraphical order.
@@ -115,30 +416,61 @@ public class SkipList<K extends Comparable<? super K>, V>
         // Search for the position to insert the new node
         // Start the search at the head of the skip list
         SkipNode currentNode = head;
+        long keyPrefix = prefix(key);
         
         // Create an array to keep track of the positions of the nodes that are visited
         SkipNode[] tempForward = (SkipList<K, V>.SkipNode[]) Array.newInstance(SkipNode.class, head.level+1);
+        // and the position of each of them in the list (the head is at 0)
+        int[] rank = new int[head.level + 1];
         
         // Starting from the highest level and move downwards to find the node with the given key
         for (int i = head.level; i >= 0; i--) {
+            rank[i] = (i == head.level) ? 0 : rank[i + 1];
             // Move the current pointer to the right until the next KVPair's key is greater than or equal to the given key
-            while (currentNode.forward[i] != null && currentNode.forward[i].element().getKey().compareTo(key) < 0) {
+            while (currentNode.forward[i] != null && compare(currentNode.forward[i], key, keyPrefix) < 0) {
+                rank[i] += currentNode.width[i];
             	currentNode = currentNode.forward[i];
             }
             tempForward[i] = currentNode;
         }
-        
-        // Move to actual node
-        currentNode = currentNode.forward[0];
 
-        // Put the new node in the write position
+        link(newNode, tempForward, rank);
+    }
+
+
+    /**
+     * Links a new node in after the given path and counts it.
+     * 
+     * @param newNode
+     *            the node to link
+     * @param tempForward
+     *            for every level the last node whose key is smaller than the
+     *            key of the new node
+     * @param rank
+     *            the position of every node of tempForward
+     */
+    private void link(SkipNode newNode, SkipNode[] tempForward, int[] rank) {
+        int newLevel = newNode.level;
+        // Put the new node in the write position, splitting the width of
+        // every link it is put into
         for (int i = 0; i <= newLevel; i++) {
             newNode.forward[i] = tempForward[i].forward[i];
             tempForward[i].forward[i] = newNode;
+            newNode.width[i] = tempForward[i].width[i] - (rank[0] - rank[i]);
+            tempForward[i].width[i] = rank[0] - rank[i] + 1;
         }
         
+        // Links above the new node now pass over one more node
+        for (int i = newLevel + 1; i <= head.level; i++) {
+            tempForward[i].width[i]++;
+        }
+        
+        // Remember which node holds the value
+        index(newNode);
+        
         // Increasing the skip list size by one after insert
         size++;
+        modCount++;
     }
 
 
@@ -157,9 +489,15 @@ public class SkipList<K extends Comparable<? super K>, V>
         // Connect new head with the skip list
         for (int i = 0; i <= head.level; i++) {
             newHead.forward[i] = head.forward[i];
+            newHead.width[i] = head.width[i];
+        }
+        // The new levels are empty, they pass over the whole list
+        for (int i = head.level + 1; i <= newLevel; i++) {
+            newHead.width[i] = size;
         }
         // Change the head to the new one
         head = newHead;
+        modCount++;
     }
 
 
@@ -175,6 +513,7 @@ public class SkipList<K extends Comparable<? super K>, V>
     public KVPair<K, V> remove(K key) {
         // Start the search at the head of the skip list
         SkipNode currentNode = head;
+        long keyPrefix = prefix(key);
         
         // Create an array to keep track of the positions of the nodes that are visited
         SkipNode[] tempForward = (SkipList<K, V>.SkipNode[]) Array.newInstance(SkipNode.class, head.level+1 ); 
@@ -183,7 +522,7 @@ public class SkipList<K extends Comparable<? super K>, V>
         // Starting from the highest level and move downwards to find the node with the given key
         for (int i = head.level; i >= 0; i--) {
             // Move the current pointer to the right until the next KVPair's key is greater than or equal to the given key
-            while (currentNode.forward[i] != null && currentNode.forward[i].element().getKey().compareTo(key) < 0) {
+            while (currentNode.forward[i] != null && compare(currentNode.forward[i], key, keyPrefix) < 0) {
             	currentNode = currentNode.forward[i];
             }
             tempForward[i] = currentNode;
@@ -193,22 +532,10 @@ public class SkipList<K extends Comparable<? super K>, V>
         currentNode = currentNode.forward[0];
         
         // Checking if found the node needs to remove
-        if (currentNode != null && currentNode.element().getKey().compareTo(key) == 0) {
-        	KVPair<K,V> removePair = currentNode.element();
-        	
+        if (currentNode != null && compare(currentNode, key, keyPrefix) == 0) {
         	// Removing the node by updating the forward pointers of the nodes that pointed to it
-            for (int i = 0; i <= head.level; i++) {
-            	// This if statment to end loop after connect all levels of previous node with next node
-                if (tempForward[i].forward[i] != currentNode) {
-                    break;
-                }
-                tempForward[i].forward[i] = currentNode.forward[i];
-            }
-            
-            // decreasing the skip list size by one after remove
-            size--;
-            
-            return removePair;
+            unlink(tempForward, currentNode);
+            return currentNode.element();
         }
         // Return null if node not found
         return null;
@@ -216,70 +543,326 @@ public class SkipList<K extends Comparable<? super K>, V>
 
 
     /**
-     * Removes a KVPair with the specified value.
+     * Removes a KVPair with the specified value. If several pairs hold an
+     * equal value the first one in the list is removed, and exactly that node
+     * is unlinked even if other nodes share its key.
      * 
      * @param val
      *            the value of the KVPair to be removed
      * @return returns the removed pair if the pair was found and null if not
      */
 
+    @SuppressWarnings("unchecked")
     public KVPair<K, V> removeByValue(V val) {
-        // Start the search at the head of the skip list
-        SkipNode currentNode = head;
+        // No pair is ever found by a null value
+        if (val == null) {
+            return null;
+        }
         
-        // Go for every node one by one
-        while (currentNode.forward[0] != null) {
-        	// Take the value and key for every pair to compare
-            V currentNodeValue = currentNode.forward[0].element().getValue();
-            K currentNodeKey = currentNode.forward[0].element().getKey();
-            
-            // Check if found pair or not using the value
-            if (currentNodeValue != null && currentNodeValue.equals(val)) {
-            	// Remove the pair by using remove(key) method
-            	KVPair<K,V> removePair = remove(currentNodeKey);
-                return removePair;
+        // The key of the first node holding the value
+        K key = null;
+        
+        if (valueIndex != null) {
+            // The index knows every node holding the value, take the smallest key
+            Object nodes = valueIndex.get(val);
+            if (nodes == null) {
+                return null;
+            }
+            if (nodes instanceof SkipList.SkipNode) {
+                key = ((SkipNode)nodes).element().getKey();
+            }
+            else {
+                for (SkipNode node : (ArrayList<SkipNode>)nodes) {
+                    if (key == null || node.element().getKey().compareTo(key) < 0) {
+                        key = node.element().getKey();
+                    }
+                }
+            }
+        }
+        else {
+            // Without the index go for every node one by one
+            SkipNode currentNode = head.forward[0];
+            while (currentNode != null) {
+                V currentNodeValue = currentNode.element().getValue();
+                if (currentNodeValue != null && currentNodeValue.equals(val)) {
+                    key = currentNode.element().getKey();
+                    break;
+                }
+                currentNode = currentNode.forward[0];
             }
             
+            // Return null if the pair not found
+            if (key == null) {
+                return null;
+            }
+        }
+        
+        // Find the nodes in front of the first node with that key
+        SkipNode[] tempForward = findPath(key);
+        
+        // Walk the nodes with that key until the one holding the value,
+        // everything walked past comes before it on its levels
+        SkipNode currentNode = tempForward[0].forward[0];
+        while (!val.equals(currentNode.element().getValue())) {
+            for (int i = 0; i <= currentNode.level; i++) {
+                tempForward[i] = currentNode;
+            }
             currentNode = currentNode.forward[0];
         }
         
-        // Return null if the pair not found
-        return null;
+        // Unlink exactly this node on every level it has
+        unlink(tempForward, currentNode);
+        return currentNode.element();
     }
 
 
+    /**
+     * Compares the key of a node with a key. The packed prefixes decide when
+     * they differ, only equal prefixes need the full compareTo. The result
+     * has the same sign as node.element().getKey().compareTo(key).
+     * 
+     * @param node
+     *            a node holding a pair
+     * @param key
+     *            the key to compare with
+     * @param keyPrefix
+     *            prefix(key)
+     * @return negative, zero or positive like compareTo
+     */
+    private int compare(SkipNode node, K key, long keyPrefix) {
+        if (node.prefix != keyPrefix) {
+            return Long.compareUnsigned(node.prefix, keyPrefix);
+        }
+        return node.element().getKey().compareTo(key);
+    }
+
 
     /**
-     * Prints out the SkipList in a human readable format to the console.
+     * Packs the first 8 characters of a String key into a long, one byte per
+     * character and padded with zero bytes, so that comparing two prefixes as
+     * unsigned longs orders them like String.compareTo whenever the prefixes
+     * differ. A character from 0xFF up does not fit in a byte, it and the rest
+     * of the prefix are filled with 0xFF, which keeps that order and leaves
+     * strings that only differ after it to compareTo. Keys that are not
+     * Strings all get 0, so they are always compared with compareTo.
+     * 
+     * @param key
+     *            a key
+     * @return the packed prefix
      */
-    public void dump() {
+    static long prefix(Object key) {
+        if (!(key instanceof String)) {
+            return 0;
+        }
+        String string = (String)key;
+        int length = Math.min(string.length(), 8);
+        long prefix = 0;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= 0xFF) {
+                // Fill this and every following byte with 0xFF
+                return prefix << (8 * (8 - i)) | (-1L >>> (8 * i));
+            }
+            prefix = prefix << 8 | c;
+        }
+        return prefix << (8 * (8 - length));
+    }
+
+
+    /**
+     * Finds the last node before the key on every level.
+     * 
+     * @param key
+     *            the key to search for
+     * @return for every level the last node whose key is smaller than key
+     */
+    @SuppressWarnings("unchecked")
+    private SkipNode[] findPath(K key) {
+        SkipNode currentNode = head;
+        long keyPrefix = prefix(key);
+        SkipNode[] tempForward = (SkipList<K, V>.SkipNode[]) Array.newInstance(SkipNode.class, head.level+1);
+        for (int i = head.level; i >= 0; i--) {
+            while (currentNode.forward[i] != null && compare(currentNode.forward[i], key, keyPrefix) < 0) {
+            	currentNode = currentNode.forward[i];
+            }
+            tempForward[i] = currentNode;
+        }
+        return tempForward;
+    }
+
+
+    /**
+     * Unlinks the node from every level it has and fixes the width of every
+     * link that passed over it.
+     * 
+     * @param tempForward
+     *            for every level the last node before the node to remove
+     * @param node
+     *            the node to remove
+     */
+    private void unlink(SkipNode[] tempForward, SkipNode node) {
+        for (int i = 0; i <= head.level; i++) {
+            if (tempForward[i].forward[i] == node) {
+                // The link now reaches over the removed node to its successor
+                tempForward[i].width[i] += node.width[i] - 1;
+                tempForward[i].forward[i] = node.forward[i];
+            }
+            else {
+                // The link jumped over the removed node
+                tempForward[i].width[i]--;
+            }
+        }
+        
+        // decreasing the skip list size by one after remove
+        size--;
+        modCount++;
+        unindex(node);
+    }
+
+
+    /**
+     * Adds a new node to the value index. Most values are only held by one
+     * node, so the node itself is stored and an ArrayList is only made once a
+     * second node holds an equal value.
+     * 
+     * @param node
+     *            the node that was linked
+     */
+    @SuppressWarnings("unchecked")
+    private void index(SkipNode node) {
+        if (valueIndex == null) {
+            return;
+        }
+        V value = node.element().getValue();
+        Object nodes = valueIndex.putIfAbsent(value, node);
+        if (nodes instanceof SkipList.SkipNode) {
+            ArrayList<SkipNode> both = new ArrayList<>(2);
+            both.add((SkipNode)nodes);
+            both.add(node);
+            valueIndex.put(value, both);
+        }
+        else if (nodes != null) {
+            ((ArrayList<SkipNode>)nodes).add(node);
+        }
+    }
+
+
+    /**
+     * Drops a removed node from the value index.
+     * 
+     * @param node
+     *            the node that was unlinked
+     */
+    @SuppressWarnings("unchecked")
+    private void unindex(SkipNode node) {
+        if (valueIndex == null) {
+            return;
+        }
+        V value = node.element().getValue();
+        Object nodes = valueIndex.get(value);
+        if (nodes == node) {
+            valueIndex.remove(value);
+            return;
+        }
+        ArrayList<SkipNode> list = (ArrayList<SkipNode>)nodes;
+        list.remove(node);
+        if (list.size() == 1) {
+            valueIndex.put(value, list.get(0));
+        }
+    }
+
+
+
+    /**
+     * Writes the SkipList in a human readable format to the sink.
+     * 
+     * @param out
+     *            the sink to write to
+     */
+    @Override
+    public void dump(OutputSink out) {
+        dump(out, false);
+    }
+
+
+    /**
+     * Prints out the SkipList in a human readable format to the console. With
+     * widths every node also shows how many nodes each of its links jumps
+     * over, starting at level 0.
+     * 
+     * @param widths
+     *            whether to print the width of every link
+     */
+    public void dump(boolean widths) {
+        OutputSink out = new BufferedOutputSink();
+        dump(out, widths);
+        out.flush();
+    }
+
+
+    /**
+     * Writes the SkipList in a human readable format to the sink. With widths
+     * every node also shows how many nodes each of its links jumps over,
+     * starting at level 0.
+     * 
+     * @param out
+     *            the sink to write to
+     * @param widths
+     *            whether to print the width of every link
+     */
+    public void dump(OutputSink out, boolean widths) {
         // Print the header for the skip list dump
-        System.out.println("SkipList dump:");
+        out.print("SkipList dump:").println();
         // Start at the head of the skip list
         SkipNode currentNode = head;
         
         // Loop through each node in the skip list
         while (currentNode != null) {
-            // Extract the value from the key-value pair of the current node
-        	String value = null;
-        	
-        	if (currentNode.element() != null) {
-        	value = currentNode.element().getValue().toString().replaceAll("java.awt.Rectangle\\[x=|y=|width=|height=|\\]", "");
-        	value = "("+ currentNode.element().getKey() + " ," +  value.toString().replaceAll(",", ", ") + ")";
-        	}
-        	
-        	else {
-        		value = "(null)";
-        	}
-        	
             // Print the depth and value of the current node
-            System.out.println("Node has depth "+ currentNode.level + ", Value " + value);
+            out.print("Node has depth ").print(currentNode.level).print(", Value ");
+            printPair(out, currentNode.element());
+            if (widths) {
+                out.print(", Widths [");
+                for (int i = 0; i <= currentNode.level; i++) {
+                    out.print(i == 0 ? "" : ", ").print(currentNode.width[i]);
+                }
+                out.print(']');
+            }
+            out.println();
             // Move to the next node
             currentNode = currentNode.forward[0];
         }
         
         // Print the size of the skip list
-        System.out.println("SkipList size is: " + size);
+        out.print("SkipList size is: ").print(size).println();
+    }
+
+
+    /**
+     * Writes a pair the way dump shows it, for example "(r1 ,10, 10, 5, 5)"
+     * for a Rectangle or "(null)" for the head. Rectangles are written field
+     * by field, other values are cleaned up from their toString.
+     * 
+     * @param out
+     *            the sink to write to
+     * @param pair
+     *            the pair to write, may be null
+     */
+    static void printPair(OutputSink out, KVPair<?, ?> pair) {
+        if (pair == null) {
+            out.print("(null)");
+            return;
+        }
+        out.print('(').print(String.valueOf(pair.getKey())).print(" ,");
+        if (pair.getValue() instanceof Rectangle) {
+            Rectangle rect = (Rectangle)pair.getValue();
+            out.print(rect.x).print(", ").print(rect.y).print(", ").print(rect.width).print(", ").print(rect.height);
+        }
+        else {
+            String value = pair.getValue().toString().replaceAll("java.awt.Rectangle\\[x=|y=|width=|height=|\\]", "");
+            out.print(value.replaceAll(",", ", "));
+        }
+        out.print(')');
     }
 
     
@@ -300,8 +883,13 @@ public class SkipList<K extends Comparable<? super K>, V>
         // Each element of the array stores a reference to the next node at the corresponding level,
         // with forward[0] being the next node at level 0 and forward[level] being the next node at the highest level
         private SkipNode [] forward;
+        // width[i] is the number of level 0 steps that forward[i] jumps over,
+        // for a null link it is the number of nodes after this one
+        private int[] width;
         // the number of levels
         private int level;
+        // the first characters of a String key packed by SkipList.prefix
+        private long prefix;
 
         /**
          * Initializes the fields with the required KVPair and the number of
@@ -317,7 +905,11 @@ public class SkipList<K extends Comparable<? super K>, V>
             pair = tempPair;
             forward = (SkipNode[])Array.newInstance(SkipList.SkipNode.class,
                 level + 1);
+            width = new int[level + 1];
             this.level = level;
+            if (tempPair != null) {
+                prefix = prefix(tempPair.getKey());
+            }
         }
 
 
@@ -333,6 +925,162 @@ public class SkipList<K extends Comparable<? super K>, V>
     }
 
 
+    /**
+     * A cursor searches, inserts and removes like the SkipList itself, but it
+     * remembers the path of its last operation (the finger) and starts the
+     * next descent from it. It only climbs as high as it needs to get past
+     * the new key, so an operation on a key d positions away from the last
+     * one takes O(log d) instead of O(log n), and nearly sorted streams of
+     * keys are handled in almost constant time. The path arrays are reused,
+     * nothing is allocated for the descent.
+     * 
+     * Changes made to the list in any other way than through this cursor are
+     * noticed, the next operation then starts from the head again.
+     */
+    public class Cursor {
+        // for every level the last node with a key smaller than the last key
+        private SkipNode[] path;
+        // the position of every node of path, the head is at 0
+        private int[] rank;
+        // the modCount of the list when path was last right
+        private int expected;
+
+        /**
+         * Starts the cursor in front of the whole list.
+         */
+        private Cursor() {
+            reset();
+        }
+
+
+        /**
+         * Searches for the KVPair using the key, like SkipList.search.
+         * 
+         * @param key
+         *            key to be searched for
+         * @return An ArrayList of KVPair(s) associated with the given key if
+         *         found, otherwise an empty ArrayList is returned
+         */
+        public ArrayList<KVPair<K, V>> search(K key) {
+            long keyPrefix = prefix(key);
+            seek(key, keyPrefix);
+            ArrayList<KVPair<K, V>> foundPairs = new ArrayList<>();
+            SkipNode currentNode = path[0].forward[0];
+            while (currentNode != null && compare(currentNode, key, keyPrefix) == 0) {
+                foundPairs.add(currentNode.element());
+                currentNode = currentNode.forward[0];
+            }
+            return foundPairs;
+        }
+
+
+        /**
+         * Inserts the KVPair like SkipList.insert.
+         * 
+         * @param it
+         *            the KVPair to be inserted
+         */
+        public void insert(KVPair<K, V> it) {
+            int newLevel = randomLevel();
+            if (newLevel > head.level) {
+                adjustHead(newLevel);
+            }
+            seek(it.getKey(), prefix(it.getKey()));
+            link(new SkipNode(it, newLevel), path, rank);
+            // The path is still in front of the key
+            expected = modCount;
+        }
+
+
+        /**
+         * Removes the first KVPair with the given key, like SkipList.remove.
+         * 
+         * @param key
+         *            the key of the KVPair to be removed
+         * @return returns the removed pair if the pair was found and null if
+         *         not
+         */
+        public KVPair<K, V> remove(K key) {
+            long keyPrefix = prefix(key);
+            seek(key, keyPrefix);
+            SkipNode currentNode = path[0].forward[0];
+            if (currentNode == null || compare(currentNode, key, keyPrefix) != 0) {
+                return null;
+            }
+            unlink(path, currentNode);
+            expected = modCount;
+            return currentNode.element();
+        }
+
+
+        /**
+         * Moves the finger in front of the key. The lowest level whose
+         * remembered node is still before the key and whose next node is not
+         * is where the descent starts, every level above it is already right.
+         * 
+         * @param key
+         *            the key to move to
+         * @param keyPrefix
+         *            prefix(key)
+         */
+        private void seek(K key, long keyPrefix) {
+            if (expected != modCount) {
+                reset();
+            }
+            int top = head.level;
+            int h = 0;
+            while (h < top && !(before(path[h], key, keyPrefix)
+                && (path[h].forward[h] == null
+                    || compare(path[h].forward[h], key, keyPrefix) >= 0))) {
+                h++;
+            }
+            SkipNode currentNode = path[h];
+            int position = rank[h];
+            if (!before(currentNode, key, keyPrefix)) {
+                // Even the top of the path is past the key
+                currentNode = head;
+                position = 0;
+            }
+            for (int i = h; i >= 0; i--) {
+                while (currentNode.forward[i] != null && compare(currentNode.forward[i], key, keyPrefix) < 0) {
+                    position += currentNode.width[i];
+                    currentNode = currentNode.forward[i];
+                }
+                path[i] = currentNode;
+                rank[i] = position;
+            }
+        }
+
+
+        /**
+         * @param node
+         *            a node of the path
+         * @param key
+         *            a key
+         * @param keyPrefix
+         *            prefix(key)
+         * @return true if the node is the head or its key is smaller
+         */
+        private boolean before(SkipNode node, K key, long keyPrefix) {
+            return node == head || compare(node, key, keyPrefix) < 0;
+        }
+
+
+        /**
+         * Puts the finger at the head, in front of every key.
+         */
+        @SuppressWarnings("unchecked")
+        private void reset() {
+            path = (SkipNode[])Array.newInstance(SkipNode.class, head.level + 1);
+            rank = new int[head.level + 1];
+            for (int i = 0; i <= head.level; i++) {
+                path[i] = head;
+            }
+            expected = modCount;
+        }
+    }
+
+
     private class SkipListIterator implements Iterator<KVPair<K, V>> {
         private SkipNode current;
 
@@ -343,28 +1091,234 @@ public class SkipList<K extends Comparable<? super K>, V>
 
         @Override
         public boolean hasNext() {
-            // TODO Auto-generated method stub
             return current.forward[0] != null;
         }
 
 
         @Override
         public KVPair<K, V> next() {
-            // TODO Auto-generated method stub
             if (!hasNext()) {
-               // throw new NoSuchElementException();  test test 
-            	return null;
+                throw new NoSuchElementException();
+            }
+            current = current.forward[0];
+            return current.pair;
+        }
+
+    }
+
+    /**
+     * Iterates over level 0 from a starting node until a key that is not
+     * below the end key.
+     */
+    private class RangeIterator implements Iterator<KVPair<K, V>> {
+        private SkipNode current;
+        private K toKey;
+
+        /**
+         * @param before
+         *            the node before the first node to return
+         * @param toKey
+         *            the key to stop at (exclusive)
+         */
+        public RangeIterator(SkipNode before, K toKey) {
+            current = before;
+            this.toKey = toKey;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return current.forward[0] != null && current.forward[0].element().getKey().compareTo(toKey) < 0;
+        }
+
+
+        @Override
+        public KVPair<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = current.forward[0];
+            return current.pair;
+        }
+
+    }
+
+    /**
+     * A Spliterator over the nodes from a position up to another one. Nodes
+     * are counted like in nodeAt, the first node is at 1. Changing the list
+     * while it is used makes it throw a ConcurrentModificationException.
+     */
+    private class SkipListSpliterator implements Spliterator<KVPair<K, V>> {
+        // the next node to return, at position from
+        private SkipNode current;
+        private int from;
+        // the position to stop at (exclusive)
+        private final int to;
+        // the modCount of the list when the Spliterator was made
+        private final int expected;
+
+        /**
+         * @param first
+         *            the first node to return
+         * @param fromIn
+         *            the position of the first node
+         * @param toIn
+         *            the position to stop at (exclusive)
+         */
+        SkipListSpliterator(SkipNode first, int fromIn, int toIn) {
+            this(first, fromIn, toIn, modCount);
+        }
+
+
+        /**
+         * @param first
+         *            the first node to return
+         * @param fromIn
+         *            the position of the first node
+         * @param toIn
+         *            the position to stop at (exclusive)
+         * @param expectedIn
+         *            the modCount the list must still have
+         */
+        private SkipListSpliterator(SkipNode first, int fromIn, int toIn, int expectedIn) {
+            current = first;
+            from = fromIn;
+            to = toIn;
+            expected = expectedIn;
+        }
+
+
+        @Override
+        public boolean tryAdvance(Consumer<? super KVPair<K, V>> action) {
+            if (from >= to) {
+                return false;
             }
+            KVPair<K, V> pair = current.pair;
             current = current.forward[0];
-            return current.pair;        
+            from++;
+            action.accept(pair);
+            if (expected != modCount) {
+                throw new ConcurrentModificationException();
             }
+            return true;
+        }
+
+
+        @Override
+        public void forEachRemaining(Consumer<? super KVPair<K, V>> action) {
+            SkipNode node = current;
+            for (int i = from; i < to; i++) {
+                action.accept(node.pair);
+                node = node.forward[0];
+            }
+            current = node;
+            from = to;
+            if (expected != modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
 
+
+        /**
+         * Descends from the head towards the middle of the part down to
+         * level 1 and splits at the tower nearest the middle that lies
+         * inside the part. The front half is given away, this Spliterator
+         * keeps the back half starting at that tower.
+         */
+        @Override
+        public Spliterator<KVPair<K, V>> trySplit() {
+            if (expected != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            int mid = from + (to - from) / 2;
+            SkipNode currentNode = head;
+            int position = 0;
+            SkipNode split = null;
+            int splitAt = 0;
+            // Level 0 would give a split after a walk, not after a descent
+            for (int i = head.level; i >= 1; i--) {
+                while (currentNode.forward[i] != null && position + currentNode.width[i] <= mid) {
+                    position += currentNode.width[i];
+                    currentNode = currentNode.forward[i];
+                }
+                // The last tower before the middle and the first one after it
+                if (position > from && (split == null || Math.abs(position - mid) < Math.abs(splitAt - mid))) {
+                    split = currentNode;
+                    splitAt = position;
+                }
+                if (currentNode.forward[i] != null) {
+                    int next = position + currentNode.width[i];
+                    if (next < to && (split == null || next - mid < Math.abs(splitAt - mid))) {
+                        split = currentNode.forward[i];
+                        splitAt = next;
+                    }
+                }
+            }
+            if (split == null) {
+                return null;
+            }
+            Spliterator<KVPair<K, V>> front = new SkipListSpliterator(current, from, splitAt, expected);
+            current = split;
+            from = splitAt;
+            return front;
+        }
+
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | SIZED | SUBSIZED | NONNULL;
+        }
+
+
+        /**
+         * @return null, the pairs are sorted by the natural order of KVPair
+         */
+        @Override
+        public Comparator<? super KVPair<K, V>> getComparator() {
+            return null;
+        }
     }
 
     @Override
     public Iterator<KVPair<K, V>> iterator() {
-        // TODO Auto-generated method stub
         return new SkipListIterator();
     }
 
+
+    /**
+     * Returns a Spliterator over all pairs in list order. It knows its exact
+     * size from the link widths and splits at the tallest tower near the
+     * middle of its part, so parallel streams get halves of about equal size
+     * without walking the list.
+     * 
+     * @return a Spliterator over all pairs
+     */
+    @Override
+    public Spliterator<KVPair<K, V>> spliterator() {
+        return new SkipListSpliterator(head.forward[0], 1, size + 1);
+    }
+
+
+    /**
+     * @return a sequential Stream over all pairs in list order
+     */
+    public Stream<KVPair<K, V>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+
+    /**
+     * @return a parallel Stream over all pairs, which is split along the
+     *         towers of the list
+     */
+    public Stream<KVPair<K, V>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
 }
@@ -0,0 +1,138 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This interface describes the operations that the Database needs from the
+ * ordered index that stores its KVPairs. Any implementation (the plain
+ * SkipList, the concurrent one, ...) keeps its pairs sorted by key, allows
+ * duplicate keys and can therefore be swapped in behind the Database.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ * @param <K>
+ *            Key
+ * @param <V>
+ *            Value
+ */
+public interface SkipListADT<K extends Comparable<? super K>, V>
+    extends Iterable<KVPair<K, V>> {
+
+    /**
+     * Inserts the KVPair at its appropriate spot as designated by its
+     * lexicoragraphical order. Duplicate keys are allowed.
+     *
+     * @param it
+     *            the KVPair to be inserted
+     */
+    public void insert(KVPair<K, V> it);
+
+
+    /**
+     * Searches for the KVPair(s) using the key.
+     *
+     * @param key
+     *            key to be searched for
+     * @return A List of KVPair(s) associated with the given key if found,
+     *         otherwise an empty List is returned. Implementations may return
+     *         a read-only view that changes with the list.
+     */
+    public List<KVPair<K, V>> search(K key);
+
+
+    /**
+     * Removes the first KVPair with the given key.
+     *
+     * @param key
+     *            the key of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    public KVPair<K, V> remove(K key);
+
+
+    /**
+     * Removes a KVPair with the specified value.
+     *
+     * @param val
+     *            the value of the KVPair to be removed
+     * @return returns the removed pair if the pair was found and null if not
+     */
+    public KVPair<K, V> removeByValue(V val);
+
+
+    /**
+     * @return the number of entries in the list
+     */
+    public int size();
+
+
+    /**
+     * Prints out the list in a human readable format to the console.
+     */
+    public default void dump() {
+        OutputSink out = new BufferedOutputSink();
+        dump(out);
+        out.flush();
+    }
+
+
+    /**
+     * Writes the list in a human readable format to the sink.
+     *
+     * @param out
+     *            the sink to write to
+     */
+    public void dump(OutputSink out);
+
+
+    /**
+     * Returns a lazy iterator over the pairs whose key is at least fromKey and
+     * smaller than toKey, in list order. Nothing is copied, the pairs are read
+     * from the list as the iterator moves. This default walks from the start
+     * of the list, implementations should jump to fromKey instead.
+     *
+     * @param fromKey
+     *            the smallest key to return (inclusive)
+     * @param toKey
+     *            the key to stop at (exclusive)
+     * @return an iterator over the pairs in the range
+     */
+    public default Iterator<KVPair<K, V>> range(K fromKey, K toKey) {
+        Iterator<KVPair<K, V>> all = iterator();
+        return new Iterator<KVPair<K, V>>() {
+            private KVPair<K, V> next = advance();
+
+            private KVPair<K, V> advance() {
+                while (all.hasNext()) {
+                    KVPair<K, V> pair = all.next();
+                    if (pair.getKey().compareTo(toKey) >= 0) {
+                        return null;
+                    }
+                    if (pair.getKey().compareTo(fromKey) >= 0) {
+                        return pair;
+                    }
+                }
+                return null;
+            }
+
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+
+            @Override
+            public KVPair<K, V> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                KVPair<K, V> current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+}
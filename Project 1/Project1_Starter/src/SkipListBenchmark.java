@@ -0,0 +1,687 @@
+import java.awt.Rectangle;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class holds simple throughput benchmarks for the SkipList
+ * implementations. It is run from the command line and prints one line per
+ * measurement, it is not part of the JUnit tests.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class SkipListBenchmark {
+
+    // number of operations every measurement performs
+    private static final int OPS = 1_000_000;
+    // the keys used by the benchmarks, built once so formatting is not timed
+    private static final String[] KEYS = new String[OPS / 10];
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = String.format("r%07d", i);
+        }
+    }
+
+    /**
+     * The entry point of the benchmark.
+     *
+     * @param args
+     *            the name of the benchmark to run followed by its argument
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String which = args.length > 0 ? args[0] : "concurrent";
+        switch (which) {
+            case "concurrent":
+                concurrent(args.length > 1 ? Integer.parseInt(args[1])
+                    : Runtime.getRuntime().availableProcessors());
+                break;
+            case "bulkload":
+                bulkLoad(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            case "blocked":
+                blocked(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            case "primitive":
+                primitive(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            case "prefix":
+                prefix(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            case "buckets":
+                buckets(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            case "finger":
+                finger(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            case "arena":
+                arena(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            case "stream":
+                stream(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            case "mvcc":
+                mvcc(args.length > 1 ? Integer.parseInt(args[1])
+                    : 1_000_000);
+                break;
+            default:
+                System.out.println("Unknown benchmark: " + which);
+        }
+    }
+
+
+    /**
+     * Compares the throughput of SkipList and ConcurrentSkipList for a growing
+     * number of threads.
+     *
+     * @param maxThreads
+     *            the largest number of threads to measure
+     */
+    static void concurrent(int maxThreads) throws InterruptedException {
+
+        // warm up both implementations before measuring
+        concurrentThroughput(new SkipList<String, Rectangle>(), 1);
+        concurrentThroughput(new ConcurrentSkipList<String, Rectangle>(), 1);
+
+        System.out.printf("SkipList, 1 thread: %.0f ops/s\n",
+            concurrentThroughput(new SkipList<String, Rectangle>(), 1));
+        for (int t = 1; t <= maxThreads; t *= 2) {
+            System.out.printf("ConcurrentSkipList, %d thread(s): %.0f ops/s\n",
+                t, concurrentThroughput(
+                    new ConcurrentSkipList<String, Rectangle>(), t));
+        }
+    }
+
+
+    /**
+     * Times building a list of n sorted pairs with insert against the one pass
+     * bulk build, both with and without the value index. The index is a hash
+     * map entry per pair, so with it the map dominates the bulk build.
+     *
+     * @param n
+     *            the number of pairs
+     */
+    static void bulkLoad(int n) {
+        ArrayList<KVPair<String, Rectangle>> pairs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            pairs.add(new KVPair<>(String.format("r%09d", i), new Rectangle(
+                i % 1000, i % 997, 1, 1)));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (boolean indexed : new boolean[] { false, true }) {
+                long begin = System.nanoTime();
+                SkipList<String, Rectangle> inserted = new SkipList<>(indexed);
+                for (KVPair<String, Rectangle> pair : pairs) {
+                    inserted.insert(pair);
+                }
+                long insert = System.nanoTime() - begin;
+                inserted = null;
+
+                begin = System.nanoTime();
+                SkipList<String, Rectangle> built = new SkipList<>(pairs
+                    .iterator(), indexed);
+                long bulk = System.nanoTime() - begin;
+                System.out.printf("n=%d index=%b insert=%.0f ms bulk=%.0f ms\n",
+                    n, indexed, insert / 1e6, bulk / 1e6);
+            }
+        }
+    }
+
+
+    /**
+     * Compares SkipList with ArenaSkipList on n pairs: the heap the filled
+     * list holds on to, the collections and collection time while filling it
+     * and the time of one search. For 10 million pairs run it with a heap of
+     * a few GB, for example java -Xmx6g SkipListBenchmark arena 10000000.
+     *
+     * @param n
+     *            the number of pairs
+     */
+    static void arena(int n) {
+        // The keys and pairs are made up front, only the lists are measured
+        ArrayList<KVPair<String, Rectangle>> pairs = new ArrayList<>(n);
+        Random random = new Random(7);
+        for (int i = 0; i < n; i++) {
+            pairs.add(new KVPair<>("r" + random.nextInt(n), new Rectangle(
+                i % 1000, i % 997, 1, 1)));
+        }
+        String[] probes = new String[1 << 16];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = pairs.get(random.nextInt(n)).getKey();
+        }
+
+        for (int round = 0; round < 2; round++) {
+            for (boolean useArena : new boolean[] { false, true }) {
+                long heapBefore = usedHeap();
+                long[] gcBefore = gcCountAndTime();
+                SkipListADT<String, Rectangle> list = useArena
+                    ? new ArenaSkipList<>()
+                    : new SkipList<>();
+                for (KVPair<String, Rectangle> pair : pairs) {
+                    list.insert(pair);
+                }
+                long[] gcAfter = gcCountAndTime();
+                long heap = usedHeap() - heapBefore;
+
+                long begin = System.nanoTime();
+                int found = 0;
+                int searches = 1_000_000;
+                for (int i = 0; i < searches; i++) {
+                    found += list.search(probes[i & (probes.length - 1)])
+                        .size();
+                }
+                double search = (double)(System.nanoTime() - begin)
+                    / searches;
+                System.out.printf(
+                    "%s n=%d heap=%d MB gc=%d (%d ms) search=%.0f ns (%d)\n",
+                    useArena ? "ArenaSkipList" : "SkipList", n, heap >> 20,
+                    gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1],
+                    search, found);
+                list = null;
+            }
+        }
+    }
+
+
+    /**
+     * Compares SkipList with BlockedSkipList on n pairs: the time to insert
+     * them, the time of a full scan with the iterator, like dump and
+     * regionsearch do, and the number of towers.
+     *
+     * @param n
+     *            the number of pairs
+     */
+    static void blocked(int n) {
+        ArrayList<KVPair<String, Rectangle>> pairs = new ArrayList<>(n);
+        Random random = new Random(7);
+        for (int i = 0; i < n; i++) {
+            pairs.add(new KVPair<>("r" + random.nextInt(n), new Rectangle(
+                i % 1000, i % 997, 1, 1)));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (boolean useBlocks : new boolean[] { false, true }) {
+                long begin = System.nanoTime();
+                SkipListADT<String, Rectangle> list = useBlocks
+                    ? new BlockedSkipList<>()
+                    : new SkipList<>();
+                for (KVPair<String, Rectangle> pair : pairs) {
+                    list.insert(pair);
+                }
+                double insert = (System.nanoTime() - begin) / 1e6;
+
+                begin = System.nanoTime();
+                long sum = 0;
+                for (int pass = 0; pass < 10; pass++) {
+                    for (KVPair<String, Rectangle> pair : list) {
+                        sum += pair.getValue().x;
+                    }
+                }
+                double scan = (System.nanoTime() - begin) / 1e7;
+                System.out.printf(
+                    "%s n=%d insert=%.0f ms scan=%.1f ms towers=%d (%d)\n",
+                    useBlocks ? "BlockedSkipList" : "SkipList", n, insert, scan,
+                    useBlocks ? ((BlockedSkipList<String, Rectangle>)list)
+                        .blocks() : n, sum);
+            }
+        }
+    }
+
+
+    /**
+     * Compares SkipList with Integer keys against IntSkipList and
+     * LongSkipList: the time to insert n random keys and the time of one
+     * search. The generic list gets the boxed keys up front, so boxing is not
+     * timed, only the comparisons and the node layout.
+     *
+     * @param n
+     *            the number of keys
+     */
+    static void primitive(int n) {
+        Random random = new Random(7);
+        int[] keys = new int[n];
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = random.nextInt();
+            boxed[i] = keys[i];
+        }
+        int searches = 1_000_000;
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            SkipList<Integer, Integer> generic = new SkipList<>();
+            for (int i = 0; i < n; i++) {
+                generic.insert(new KVPair<>(boxed[i], boxed[i]));
+            }
+            long insert = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            long found = 0;
+            for (int i = 0; i < searches; i++) {
+                found += generic.search(boxed[i % n]).size();
+            }
+            printPrimitive("SkipList<Integer>", n, insert, System.nanoTime()
+                - begin, found);
+            generic = null;
+
+            begin = System.nanoTime();
+            IntSkipList<Integer> ints = new IntSkipList<>();
+            for (int i = 0; i < n; i++) {
+                ints.insert(keys[i], boxed[i]);
+            }
+            insert = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            found = 0;
+            for (int i = 0; i < searches; i++) {
+                found += ints.search(keys[i % n]).size();
+            }
+            printPrimitive("IntSkipList", n, insert, System.nanoTime() - begin,
+                found);
+            ints = null;
+
+            begin = System.nanoTime();
+            LongSkipList<Integer> longs = new LongSkipList<>();
+            for (int i = 0; i < n; i++) {
+                longs.insert(keys[i], boxed[i]);
+            }
+            insert = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            found = 0;
+            for (int i = 0; i < searches; i++) {
+                found += longs.search(keys[i % n]).size();
+            }
+            printPrimitive("LongSkipList", n, insert, System.nanoTime() - begin,
+                found);
+        }
+    }
+
+
+    /**
+     * Prints one line of the primitive benchmark.
+     *
+     * @param name
+     *            the name of the list
+     * @param n
+     *            the number of keys
+     * @param insert
+     *            the nanoseconds all inserts took
+     * @param search
+     *            the nanoseconds 1,000,000 searches took
+     * @param found
+     *            the number of values found, printed so the searches are used
+     */
+    private static void printPrimitive(String name, int n, long insert,
+        long search, long found) {
+        System.out.printf("%s n=%d insert=%.0f ms search=%.0f ns (%d)\n", name,
+            n, insert / 1e6, search / 1e6, found);
+    }
+
+
+    /**
+     * Times searching SkipList for names that differ early and for names that
+     * share a long start, like "building_floor_03_room_...". The cached key
+     * prefixes only help the first kind, the second kind shows what falling
+     * back to compareTo costs.
+     *
+     * @param n
+     *            the number of names
+     */
+    static void prefix(int n) {
+        Random random = new Random(7);
+        for (String start : new String[] { "", "building_floor_03_room_" }) {
+            String[] names = new String[n];
+            SkipList<String, Rectangle> list = new SkipList<>();
+            for (int i = 0; i < n; i++) {
+                names[i] = start + Integer.toString(random.nextInt(), 36);
+                list.insert(new KVPair<>(names[i], null));
+            }
+            for (int round = 0; round < 3; round++) {
+                int searches = 1_000_000;
+                long begin = System.nanoTime();
+                int found = 0;
+                for (int i = 0; i < searches; i++) {
+                    found += list.search(names[i % n]).size();
+                }
+                System.out.printf("names=\"%s...\" n=%d search=%.0f ns (%d)\n",
+                    start, n, (double)(System.nanoTime() - begin) / searches,
+                    found);
+            }
+        }
+    }
+
+
+    /**
+     * Compares SkipList with BucketSkipList on n pairs that reuse only n / 100
+     * names: the heap the filled list holds on to, the height of the list and
+     * the time of one search for a name.
+     *
+     * @param n
+     *            the number of pairs
+     */
+    static void buckets(int n) {
+        ArrayList<KVPair<String, Rectangle>> pairs = new ArrayList<>(n);
+        Random random = new Random(7);
+        String[] names = new String[Math.max(1, n / 100)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "r" + i;
+        }
+        for (int i = 0; i < n; i++) {
+            pairs.add(new KVPair<>(names[random.nextInt(names.length)],
+                new Rectangle(i % 1000, i % 997, 1, 1)));
+        }
+        for (int round = 0; round < 2; round++) {
+            for (boolean useBuckets : new boolean[] { false, true }) {
+                long heapBefore = usedHeap();
+                SkipListADT<String, Rectangle> list = useBuckets
+                    ? new BucketSkipList<>()
+                    : new SkipList<>();
+                for (KVPair<String, Rectangle> pair : pairs) {
+                    list.insert(pair);
+                }
+                long heap = usedHeap() - heapBefore;
+                int searches = 100_000;
+                long begin = System.nanoTime();
+                long found = 0;
+                for (int i = 0; i < searches; i++) {
+                    found += list.search(names[i % names.length]).size();
+                }
+                System.out.printf(
+                    "%s n=%d names=%d heap=%d MB search=%.0f ns (%d)\n",
+                    useBuckets ? "BucketSkipList" : "SkipList", n, names.length,
+                    heap >> 20, (double)(System.nanoTime() - begin) / searches,
+                    found);
+                list = null;
+            }
+        }
+    }
+
+
+    /**
+     * Times inserting n keys in sorted order and then searching them in
+     * sorted order, once with the SkipList methods and once through a Cursor.
+     *
+     * @param n
+     *            the number of keys
+     */
+    static void finger(int n) {
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = "r" + (1_000_000_000 + i);
+        }
+        for (int round = 0; round < 3; round++) {
+            for (boolean useCursor : new boolean[] { false, true }) {
+                SkipList<String, Rectangle> list = new SkipList<>();
+                SkipList<String, Rectangle>.Cursor cursor = list.cursor();
+                long begin = System.nanoTime();
+                for (String name : names) {
+                    KVPair<String, Rectangle> pair = new KVPair<>(name, null);
+                    if (useCursor) {
+                        cursor.insert(pair);
+                    }
+                    else {
+                        list.insert(pair);
+                    }
+                }
+                double insert = (double)(System.nanoTime() - begin) / n;
+                begin = System.nanoTime();
+                long found = 0;
+                for (String name : names) {
+                    found += useCursor ? cursor.search(name).size()
+                        : list.search(name).size();
+                }
+                double search = (double)(System.nanoTime() - begin) / n;
+                System.out.printf(
+                    "%s n=%d sorted insert=%.0f ns search=%.0f ns (%d)\n",
+                    useCursor ? "Cursor" : "SkipList", n, insert, search,
+                    found);
+            }
+        }
+    }
+
+
+    /**
+     * Sums the area of n rectangles with a loop over the iterator, a
+     * sequential stream, a parallel stream split along the towers, and a
+     * parallel stream over an ArrayList copy, which is what had to be done
+     * before. The parallel streams run on the common pool.
+     *
+     * @param n
+     *            the number of rectangles
+     */
+    static void stream(int n) {
+        SkipList<String, Rectangle> list = new SkipList<>();
+        Random random = new Random(9);
+        for (int i = 0; i < n; i++) {
+            list.insert(new KVPair<>("r" + random.nextInt(n), new Rectangle(
+                random.nextInt(1000), random.nextInt(1000), 1 + random.nextInt(
+                    24), 1 + random.nextInt(24))));
+        }
+        System.out.printf("threads=%d\n", java.util.concurrent.ForkJoinPool
+            .getCommonPoolParallelism());
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            long area = 0;
+            for (KVPair<String, Rectangle> pair : list) {
+                area += pair.getValue().width * pair.getValue().height;
+            }
+            long loop = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            long streamed = list.stream().mapToLong(pair -> pair.getValue().width
+                * pair.getValue().height).sum();
+            long sequential = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            long parallelArea = list.parallelStream().mapToLong(pair -> pair
+                .getValue().width * pair.getValue().height).sum();
+            long parallel = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            ArrayList<KVPair<String, Rectangle>> copy = new ArrayList<>(n);
+            list.forEach(copy::add);
+            long copiedArea = copy.parallelStream().mapToLong(pair -> pair
+                .getValue().width * pair.getValue().height).sum();
+            long copied = System.nanoTime() - begin;
+            System.out.printf("n=%d loop=%.1f ms stream=%.1f ms parallel=%.1f"
+                + " ms copy+parallel=%.1f ms (%b)\n", n, loop / 1e6,
+                sequential / 1e6, parallel / 1e6, copied / 1e6, area == streamed
+                    && area == parallelArea && area == copiedArea);
+        }
+    }
+
+
+    /**
+     * Measures the latency of single inserts and removes on a
+     * ConcurrentSkipList of n rectangles while another thread keeps running
+     * intersections scans over it: with no scan, with scans that hold a read
+     * lock the writer has to wait for, which is what a scan over a live
+     * iterator needs, and with scans over a View, which take no lock. The
+     * lock is fair, so the writer waits for one scan at most.
+     *
+     * @param n
+     *            the number of rectangles
+     */
+    static void mvcc(int n) throws InterruptedException {
+        ConcurrentSkipList<String, Rectangle> list = new ConcurrentSkipList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < n; i++) {
+            list.insert(new KVPair<>(key(random.nextInt(KEYS.length)),
+                new Rectangle(random.nextInt(1000), random.nextInt(1000), 1
+                    + random.nextInt(24), 1 + random.nextInt(24))));
+        }
+        java.util.concurrent.locks.ReentrantReadWriteLock lock =
+            new java.util.concurrent.locks.ReentrantReadWriteLock(true);
+        for (int round = 0; round < 2; round++) {
+            for (String mode : new String[] { "none", "locked", "view" }) {
+                java.util.concurrent.atomic.AtomicBoolean writing =
+                    new java.util.concurrent.atomic.AtomicBoolean(true);
+                int[] scans = { 0 };
+                Thread scanner = new Thread(() -> {
+                    while (!mode.equals("none") && writing.get()) {
+                        ArrayList<Rectangle> rects = new ArrayList<>(n);
+                        if (mode.equals("locked")) {
+                            lock.readLock().lock();
+                            try {
+                                list.forEach(pair -> rects.add(pair
+                                    .getValue()));
+                                IntersectionSweep.pairs(rects.toArray(
+                                    new Rectangle[0]));
+                            }
+                            finally {
+                                lock.readLock().unlock();
+                            }
+                        }
+                        else {
+                            try (ConcurrentSkipList<String, Rectangle>.View view =
+                                list.snapshot()) {
+                                view.forEach(pair -> rects.add(pair
+                                    .getValue()));
+                                IntersectionSweep.pairs(rects.toArray(
+                                    new Rectangle[0]));
+                            }
+                        }
+                        scans[0]++;
+                    }
+                });
+                scanner.start();
+                // one write every 200 us for 3 seconds
+                long[] latency = new long[15_000];
+                int ops = 0;
+                long begin = System.nanoTime();
+                while (ops < latency.length && System.nanoTime() - begin
+                    < 3_000_000_000L) {
+                    int i = ops++;
+                    String key = key(random.nextInt(KEYS.length));
+                    long start = System.nanoTime();
+                    if (mode.equals("locked")) {
+                        lock.writeLock().lock();
+                    }
+                    if ((i & 1) == 0) {
+                        list.insert(new KVPair<>(key, new Rectangle(i % 1000,
+                            i % 1000, 10, 10)));
+                    }
+                    else {
+                        list.remove(key);
+                    }
+                    if (mode.equals("locked")) {
+                        lock.writeLock().unlock();
+                    }
+                    latency[i] = System.nanoTime() - start;
+                    long wait = begin + 200_000L * (i + 1) - System.nanoTime();
+                    if (wait > 0) {
+                        java.util.concurrent.locks.LockSupport.parkNanos(wait);
+                    }
+                }
+                writing.set(false);
+                scanner.join();
+                latency = java.util.Arrays.copyOf(latency, ops);
+                java.util.Arrays.sort(latency);
+                System.out.printf("n=%d scan=%s writes=%d scans=%d p50=%.1f us"
+                    + " p99=%.1f us p99.9=%.1f us max=%.1f ms retired=%d\n", n,
+                    mode, ops, scans[0], latency[ops / 2] / 1e3, latency[ops * 99 / 100]
+                        / 1e3, latency[ops * 999 / 1000] / 1e3, latency[ops
+                            - 1] / 1e6, list.retired());
+            }
+        }
+    }
+
+
+    /**
+     * @return the bytes in use on the heap after a collection
+     */
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+
+    /**
+     * @return the number of collections so far and the milliseconds they took
+     */
+    static long[] gcCountAndTime() {
+        long[] total = new long[2];
+        for (GarbageCollectorMXBean gc : ManagementFactory
+            .getGarbageCollectorMXBeans()) {
+            total[0] += Math.max(0, gc.getCollectionCount());
+            total[1] += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+
+    /**
+     * Runs a mix of 50% search, 25% insert and 25% remove over the list from
+     * the given number of threads and returns the combined throughput. The
+     * plain SkipList must only be measured with one thread.
+     *
+     * @param list
+     *            the list to measure
+     * @param threads
+     *            the number of threads
+     * @return operations per second
+     */
+    static double concurrentThroughput(SkipListADT<String, Rectangle> list,
+        int threads) throws InterruptedException {
+        // pre-fill so that searches and removes find something
+        for (int i = 0; i < OPS / 10; i++) {
+            list.insert(new KVPair<>(key(i * 7919 % (OPS / 10)),
+                new Rectangle(i, i, 1, 1)));
+        }
+        int perThread = OPS / threads;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    String key = key((i * 31 + seed * 104729) % (OPS / 10));
+                    switch (i & 3) {
+                        case 0:
+                            list.insert(new KVPair<>(key, new Rectangle(i,
+                                i, 1, 1)));
+                            break;
+                        case 1:
+                            list.remove(key);
+                            break;
+                        default:
+                            list.search(key);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        return (double)perThread * threads * 1e9 / elapsed;
+    }
+
+
+    /**
+     * @param i
+     *            a number below OPS / 10
+     * @return a zero padded key so that string order equals number order
+     */
+    static String key(int i) {
+        return KEYS[i];
+    }
+
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
 import static org.junit.jupiter.api.Assertions.*;
 
 class SkipListTest {
@@ -106,4 +108,482 @@ class SkipListTest {
         assertEquals(1, skipListObject.size());
     }
 
+    @Test
+    //removeByValue should unlink exactly the node holding the value
+    //even when other nodes share its key, with and without the value index
+    public void testRemoveByValueExactNode() {
+        for (boolean indexed : new boolean[] {false, true}) {
+            SkipList<String, Rectangle> list = new SkipList<>(indexed);
+            list.insert(new KVPair<>("a", new Rectangle(1, 1, 1, 1)));
+            list.insert(new KVPair<>("b", new Rectangle(2, 2, 2, 2)));
+            list.insert(new KVPair<>("b", new Rectangle(3, 3, 3, 3)));
+            list.insert(new KVPair<>("b", new Rectangle(4, 4, 4, 4)));
+            list.insert(new KVPair<>("c", new Rectangle(3, 3, 3, 3)));
+
+            KVPair<String, Rectangle> removed = list.removeByValue(new Rectangle(3, 3, 3, 3));
+            assertEquals("b", removed.getKey());
+            assertEquals(new Rectangle(3, 3, 3, 3), removed.getValue());
+            assertEquals(4, list.size());
+
+            ArrayList<KVPair<String, Rectangle>> left = list.search("b");
+            assertEquals(2, left.size());
+            assertNotEquals(new Rectangle(3, 3, 3, 3), left.get(0).getValue());
+            assertNotEquals(new Rectangle(3, 3, 3, 3), left.get(1).getValue());
+
+            //the equal value stored under c is next
+            assertEquals("c", list.removeByValue(new Rectangle(3, 3, 3, 3)).getKey());
+            assertNull(list.removeByValue(new Rectangle(3, 3, 3, 3)));
+            assertNotNull(list.remove("a"));
+            assertNull(list.removeByValue(new Rectangle(1, 1, 1, 1)));
+            assertEquals(2, list.size());
+        }
+    }
+
+    @Test
+    //get, rank and subList should agree with the iterator order after any mix
+    //of inserts and removes, the link widths are kept up to date
+    public void testPositionalAccess() {
+        SkipList<String, Rectangle> list = new SkipList<>(true);
+        java.util.Random random = new java.util.Random(5);
+        for (int i = 0; i < 2000; i++) {
+            String key = "k" + random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                list.remove(key);
+            }
+            else if (random.nextInt(8) == 0) {
+                list.removeByValue(new Rectangle(random.nextInt(50), 0, 1, 1));
+            }
+            else {
+                list.insert(new KVPair<>(key, new Rectangle(random.nextInt(50), 0, 1, 1)));
+            }
+        }
+
+        ArrayList<KVPair<String, Rectangle>> inOrder = new ArrayList<>();
+        for (KVPair<String, Rectangle> pair : list) {
+            inOrder.add(pair);
+        }
+        assertEquals(inOrder.size(), list.size());
+        for (int i = 0; i < inOrder.size(); i++) {
+            assertSame(inOrder.get(i), list.get(i));
+            assertEquals(inOrder.indexOf(list.search(inOrder.get(i).getKey()).get(0)),
+                list.rank(inOrder.get(i).getKey()));
+        }
+        assertEquals(inOrder.subList(10, 60), list.subList(10, 60));
+        assertEquals(0, list.rank(""));
+        assertEquals(list.size(), list.rank("z"));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(list.size()));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.subList(5, 4));
+    }
+
+    @Test
+    //floor, ceiling, higher and lower should find the neighbouring keys
+    //and range should only stream the keys inside the range
+    public void testNavigation() {
+        SkipList<String, Rectangle> list = new SkipList<>();
+        for (String key : new String[] {"b", "d", "d", "f", "bldg_1", "bldg_2", "bldh"}) {
+            list.insert(new KVPair<>(key, new Rectangle(1, 1, 1, 1)));
+        }
+        assertEquals("d", list.floor("d").getKey());
+        assertEquals("d", list.floor("e").getKey());
+        assertNull(list.floor("a"));
+        assertEquals("bldh", list.lower("d").getKey());
+        assertNull(list.lower("b"));
+        assertEquals("d", list.ceiling("c").getKey());
+        assertNull(list.ceiling("g"));
+        assertEquals("f", list.higher("d").getKey());
+        assertNull(list.higher("f"));
+        //with duplicates the first pair of the run is returned
+        assertSame(list.search("d").get(0), list.floor("e"));
+        assertSame(list.search("d").get(0), list.lower("f"));
+
+        ArrayList<String> keys = new ArrayList<>();
+        java.util.Iterator<KVPair<String, Rectangle>> range = list.range("bldg_", "bldg`");
+        while (range.hasNext()) {
+            keys.add(range.next().getKey());
+        }
+        assertEquals(java.util.Arrays.asList("bldg_1", "bldg_2"), keys);
+        assertFalse(list.range("x", "z").hasNext());
+        assertEquals(6, countOf(list.range("b", "e")));
+    }
+
+    private int countOf(java.util.Iterator<?> iterator) {
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    //a bulk built list should hold the pairs in the same order with correct
+    //widths, and keep working with normal inserts and removes afterwards
+    public void testBulkBuild() {
+        ArrayList<KVPair<String, Rectangle>> pairs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            pairs.add(new KVPair<>(String.format("k%04d", i / 2), new Rectangle(i, 0, 1, 1)));
+        }
+        SkipList<String, Rectangle> list = new SkipList<>(pairs.iterator(), true);
+        assertEquals(1000, list.size());
+        for (int i = 0; i < 1000; i++) {
+            assertSame(pairs.get(i), list.get(i));
+        }
+        assertEquals(500, list.rank("k0250"));
+        assertEquals(new Rectangle(7, 0, 1, 1), list.removeByValue(new Rectangle(7, 0, 1, 1)).getValue());
+        list.insert(new KVPair<>("k0001", new Rectangle(9, 9, 9, 9)));
+        assertEquals(3, list.search("k0001").size());
+        assertSame(pairs.get(999), list.get(999));
+        assertEquals(0, new SkipList<String, Rectangle>(new ArrayList<KVPair<String, Rectangle>>().iterator(), false).size());
+
+        java.util.Collections.reverse(pairs);
+        assertThrows(IllegalArgumentException.class, () -> new SkipList<>(pairs.iterator(), false));
+    }
+
+    @Test
+    //packed key prefixes order keys exactly like String.compareTo
+    public void testKeyPrefixes() {
+        char[] alphabet = {0, 'a', 'b', 0xFE, 0xFF, 0x100, 0xFFFF};
+        java.util.Random random = new java.util.Random(17);
+        ArrayList<String> keys = new ArrayList<>();
+        keys.add("");
+        for (int i = 0; i < 3000; i++) {
+            char[] chars = new char[random.nextInt(11)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            keys.add(new String(chars));
+        }
+        for (int i = 0; i < 20000; i++) {
+            String a = keys.get(random.nextInt(keys.size()));
+            String b = keys.get(random.nextInt(keys.size()));
+            int packed = Long.compareUnsigned(SkipList.prefix(a), SkipList.prefix(b));
+            if (packed != 0) {
+                assertEquals(Integer.signum(a.compareTo(b)), packed, a + " / " + b);
+            }
+        }
+
+        // Long names sharing their first characters end up sorted as well
+        SkipList<String, Rectangle> list = new SkipList<>();
+        for (String key : keys) {
+            list.insert(new KVPair<>(key, null));
+            list.insert(new KVPair<>("building_floor_" + key, null));
+        }
+        String previous = null;
+        for (KVPair<String, Rectangle> pair : list) {
+            assertTrue(previous == null || previous.compareTo(pair.getKey()) <= 0);
+            previous = pair.getKey();
+        }
+        for (String key : keys) {
+            assertEquals(list.search(key).size(), keys.stream().filter(key::equals).count());
+            assertEquals(key, list.ceiling(key).getKey());
+        }
+    }
+
+    @Test
+    //a cursor gives the same results as the list, also when the list is changed around it
+    public void testCursor() {
+        SkipList<String, Rectangle> list = new SkipList<>(true);
+        SkipList<String, Rectangle> reference = new SkipList<>();
+        SkipList<String, Rectangle>.Cursor cursor = list.cursor();
+        java.util.Random random = new java.util.Random(23);
+        int next = 0;
+        for (int i = 0; i < 20000; i++) {
+            // Mostly nearly sorted keys, sometimes a jump anywhere
+            next = random.nextInt(10) == 0 ? random.nextInt(2000) : Math.max(0, next + random.nextInt(7) - 2);
+            String key = String.format("r%04d", next);
+            int op = random.nextInt(8);
+            if (op < 3) {
+                KVPair<String, Rectangle> pair = new KVPair<>(key, new Rectangle(i % 100, i % 97, 1, 1));
+                if (op == 0) {
+                    list.insert(pair);
+                }
+                else {
+                    cursor.insert(pair);
+                }
+                reference.insert(pair);
+            }
+            else if (op == 3) {
+                assertSame(reference.remove(key), cursor.remove(key));
+            }
+            else if (op == 4) {
+                assertSame(reference.remove(key), list.remove(key));
+            }
+            else if (op == 5) {
+                Rectangle rect = new Rectangle(random.nextInt(100), random.nextInt(97), 1, 1);
+                assertSame(reference.removeByValue(rect), list.removeByValue(rect));
+            }
+            else {
+                assertEquals(reference.search(key), cursor.search(key));
+            }
+        }
+        assertEquals(reference.size(), list.size());
+        int index = 0;
+        for (KVPair<String, Rectangle> pair : reference) {
+            // The widths kept by the cursor inserts must still be right
+            assertSame(pair, list.get(index));
+            assertEquals(reference.rank(pair.getKey()), list.rank(pair.getKey()));
+            index++;
+        }
+    }
+
+    @Test
+    //bulk loading a batch should give the same database as inserting it
+    public void testDatabaseBulkLoad() {
+        ArrayList<KVPair<String, Rectangle>> batch = new ArrayList<>();
+        java.util.Random random = new java.util.Random(3);
+        for (int i = 0; i < 300; i++) {
+            batch.add(new KVPair<>("r" + random.nextInt(100), new Rectangle(random.nextInt(1000), random.nextInt(1000), 1 + random.nextInt(30), 1 + random.nextInt(30))));
+        }
+        Database inserted = new Database();
+        Database loaded = new Database();
+        inserted.insert(new KVPair<>("r5", new Rectangle(1, 1, 1, 1)));
+        loaded.insert(new KVPair<>("r5", new Rectangle(1, 1, 1, 1)));
+        for (KVPair<String, Rectangle> pair : batch) {
+            inserted.insert(pair);
+        }
+        loaded.bulkLoad(batch);
+        inserted.flush();
+        loaded.flush();
+        assertEquals(printed(() -> { inserted.regionsearch(0, 0, 1024, 1024); inserted.flush(); }),
+            printed(() -> { loaded.regionsearch(0, 0, 1024, 1024); loaded.flush(); }));
+        assertEquals(printed(() -> { inserted.search("r5"); inserted.flush(); }),
+            printed(() -> { loaded.search("r5"); loaded.flush(); }));
+    }
+
+    @Test
+    //streams and splits give every pair once in list order, an exhausted iterator throws
+    public void testSpliterator() {
+        SkipList<String, Rectangle> list = new SkipList<>();
+        assertEquals(0, list.stream().count());
+        assertNull(list.spliterator().trySplit());
+        java.util.Random random = new java.util.Random(31);
+        for (int i = 0; i < 5000; i++) {
+            list.insert(new KVPair<>("r" + random.nextInt(1000), new Rectangle(i % 100, i % 50, 1 + i % 7, 1 + i % 3)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            list.remove("r" + random.nextInt(1000));
+        }
+        ArrayList<KVPair<String, Rectangle>> expected = new ArrayList<>();
+        list.forEach(expected::add);
+        assertEquals(expected, list.stream().collect(java.util.stream.Collectors.toList()));
+        assertEquals(expected, list.parallelStream().collect(java.util.stream.Collectors.toList()));
+        long area = 0;
+        for (KVPair<String, Rectangle> pair : expected) {
+            area += pair.getValue().width * pair.getValue().height;
+        }
+        assertEquals(area, list.parallelStream().mapToLong(pair -> pair.getValue().width * pair.getValue().height).sum());
+
+        // split everything down and check that the parts line up with exact sizes
+        ArrayList<KVPair<String, Rectangle>> parts = new ArrayList<>();
+        splitAll(list.spliterator(), parts);
+        assertEquals(expected, parts);
+
+        java.util.Iterator<KVPair<String, Rectangle>> iterator = list.iterator();
+        for (int i = 0; i < expected.size(); i++) {
+            iterator.next();
+        }
+        assertFalse(iterator.hasNext());
+        assertThrows(java.util.NoSuchElementException.class, iterator::next);
+
+        java.util.Spliterator<KVPair<String, Rectangle>> spliterator = list.spliterator();
+        list.insert(new KVPair<>("late", new Rectangle(1, 1, 1, 1)));
+        assertThrows(java.util.ConcurrentModificationException.class, () -> spliterator.tryAdvance(pair -> { }));
+    }
+
+    @Test
+    //splits cut near the middle, four rounds on a large list leave parts between 1/4 and 3/4 of their parent
+    public void testSpliteratorHalves() {
+        SkipList<String, Rectangle> list = new SkipList<>();
+        for (int i = 0; i < 100000; i++) {
+            list.insert(new KVPair<>("r" + i, new Rectangle(i % 100, i % 50, 1, 1)));
+        }
+        ArrayList<java.util.Spliterator<KVPair<String, Rectangle>>> parts = new ArrayList<>();
+        parts.add(list.spliterator());
+        for (int round = 0; round < 4; round++) {
+            ArrayList<java.util.Spliterator<KVPair<String, Rectangle>>> halves = new ArrayList<>();
+            for (java.util.Spliterator<KVPair<String, Rectangle>> part : parts) {
+                long size = part.estimateSize();
+                java.util.Spliterator<KVPair<String, Rectangle>> front = part.trySplit();
+                assertNotNull(front);
+                assertTrue(4 * front.estimateSize() >= size && 4 * front.estimateSize() <= 3 * size, front.estimateSize() + " of " + size);
+                halves.add(front);
+                halves.add(part);
+            }
+            parts = halves;
+        }
+        assertEquals(16, parts.size());
+    }
+
+    /**
+     * Splits the spliterator as long as it can and adds the pairs of the
+     * parts in order, checking the size every part reports.
+     * 
+     * @param spliterator
+     *            the spliterator to split
+     * @param parts
+     *            where to add the pairs
+     */
+    private static void splitAll(java.util.Spliterator<KVPair<String, Rectangle>> spliterator, ArrayList<KVPair<String, Rectangle>> parts) {
+        long size = spliterator.estimateSize();
+        java.util.Spliterator<KVPair<String, Rectangle>> front = spliterator.trySplit();
+        if (front != null) {
+            assertTrue(front.estimateSize() > 0 && spliterator.estimateSize() > 0);
+            assertEquals(size, front.estimateSize() + spliterator.estimateSize());
+            splitAll(front, parts);
+            splitAll(spliterator, parts);
+        }
+        else {
+            int before = parts.size();
+            spliterator.forEachRemaining(parts::add);
+            assertEquals(size, parts.size() - before);
+        }
+    }
+
+    @Test
+    //a database using several threads should print the same as one using one thread
+    public void testDatabaseParallel() {
+        Database serial = new Database();
+        Database parallel = new Database();
+        parallel.setParallelism(4);
+        Rectangle[] rects = IntersectionSweep.randomRectangles(2000, 120, 5);
+        java.util.Random random = new java.util.Random(5);
+        for (int i = 0; i < rects.length; i++) {
+            // reused names make runs of equal keys in the search results
+            KVPair<String, Rectangle> pair = new KVPair<>("r" + random.nextInt(300), rects[i]);
+            serial.insert(pair);
+            parallel.insert(pair);
+        }
+        serial.flush();
+        parallel.flush();
+        assertEquals(printed(() -> { serial.intersections(); serial.flush(); }),
+            printed(() -> { parallel.intersections(); parallel.flush(); }));
+        for (int q = 0; q < 20; q++) {
+            int x = random.nextInt(1024);
+            int y = random.nextInt(1024);
+            int w = 1 + random.nextInt(1024);
+            int h = 1 + random.nextInt(1024);
+            assertEquals(printed(() -> { serial.regionsearch(x, y, w, h); serial.flush(); }),
+                printed(() -> { parallel.regionsearch(x, y, w, h); parallel.flush(); }));
+        }
+        parallel.setParallelism(1);
+    }
+
+    /**
+     * @param work
+     *            the work to run
+     * @return what the work printed to System.out
+     */
+    static String printed(Runnable work) {
+        java.io.PrintStream old = System.out;
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        System.setOut(new java.io.PrintStream(out, true));
+        try {
+            work.run();
+        }
+        finally {
+            System.setOut(old);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Checks the behaviour every list shares with SkipList on a few pairs,
+     * duplicates included. The list is empty again afterwards.
+     *
+     * @param list
+     *            an empty list
+     */
+    static void assertSameContract(SkipListADT<String, Rectangle> list) {
+        list.insert(new KVPair<>("b", new Rectangle(1, 2, 3, 4)));
+        list.insert(new KVPair<>("a", new Rectangle(6, 6, 2, 2)));
+        list.insert(new KVPair<>("b", new Rectangle(7, 7, 4, 4)));
+        assertEquals(3, list.size());
+        assertEquals(2, list.search("b").size());
+        assertEquals(0, list.search("z").size());
+
+        KVPair<String, Rectangle> removed = list.removeByValue(new Rectangle(6, 6, 2, 2));
+        assertEquals("a", removed.getKey());
+        assertNull(list.removeByValue(new Rectangle(6, 6, 2, 2)));
+        assertNotNull(list.remove("b"));
+        assertNotNull(list.remove("b"));
+        assertNull(list.remove("b"));
+        assertEquals(0, list.size());
+        assertFalse(list.iterator().hasNext());
+    }
+
+    /**
+     * Runs the same random inserts, removes and searches on the list and on
+     * a SkipList, then checks that both hold the same pairs in the same
+     * order. Every phase is 10000 operations on names drawn from the given
+     * number of keys, few keys make long runs of equal keys.
+     *
+     * @param list
+     *            an empty list
+     * @param seed
+     *            the seed of the operations
+     * @param keys
+     *            the number of different keys in every phase
+     */
+    static void assertSameAsSkipList(SkipListADT<String, Rectangle> list, long seed, int... keys) {
+        SkipList<String, Rectangle> reference = new SkipList<>();
+        Random random = new Random(seed);
+        int i = 0;
+        for (int phase : keys) {
+            for (int end = i + 10000; i < end; i++) {
+                String key = "r" + random.nextInt(phase);
+                int op = random.nextInt(5);
+                if (op < 2) {
+                    KVPair<String, Rectangle> pair = new KVPair<>(key, new Rectangle(i % 100, i % 97, 1, 1));
+                    list.insert(pair);
+                    reference.insert(pair);
+                }
+                else if (op == 2) {
+                    assertSame(reference.remove(key), list.remove(key));
+                }
+                else if (op == 3) {
+                    Rectangle rect = new Rectangle(random.nextInt(100), random.nextInt(97), 1, 1);
+                    assertSame(reference.removeByValue(rect), list.removeByValue(rect));
+                }
+                else {
+                    assertEquals(reference.search(key), list.search(key));
+                }
+            }
+        }
+        assertEquals(reference.size(), list.size());
+        Iterator<KVPair<String, Rectangle>> expected = reference.iterator();
+        for (KVPair<String, Rectangle> pair : list) {
+            assertSame(expected.next(), pair);
+        }
+        assertFalse(expected.hasNext());
+
+        ArrayList<KVPair<String, Rectangle>> inRange = new ArrayList<>();
+        list.range("r2", "r3").forEachRemaining(inRange::add);
+        ArrayList<KVPair<String, Rectangle>> expectedRange = new ArrayList<>();
+        reference.range("r2", "r3").forEachRemaining(expectedRange::add);
+        assertEquals(expectedRange, inRange);
+    }
+
+    /**
+     * @param list
+     *            the list to run the database on
+     * @return what the database printed, with the depths taken out
+     */
+    static String runDatabase(SkipListADT<String, Rectangle> list) {
+        Database data = new Database(list);
+        String printed = printed(() -> {
+            data.insert(new KVPair<>("r1", new Rectangle(10, 10, 5, 5)));
+            data.insert(new KVPair<>("r2", new Rectangle(12, 12, 5, 5)));
+            data.insert(new KVPair<>("r1", new Rectangle(100, 100, 5, 5)));
+            data.search("r1");
+            data.regionsearch(0, 0, 50, 50);
+            data.intersections();
+            data.rangesearch("r1", "r3");
+            data.remove("r1");
+            data.remove(12, 12, 5, 5);
+            data.dump();
+            data.flush();
+        });
+        return printed.replaceAll("depth \\d+", "depth N");
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,323 @@
+import java.awt.Rectangle;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class writes the rectangles of a Database to a compact binary file and
+ * reads them back, which is much faster than replaying the commands that
+ * built the Database. The file starts with a header: the magic number, the
+ * format version and the number of entries as ints, and the sequence number
+ * of the last WriteAheadLog record the snapshot holds as a long (version 1
+ * files have no sequence number, it is read as 0). Every entry then
+ * holds the length of the name as an unsigned short, the name in UTF-8 and
+ * the x, y, width and height of the rectangle as four ints. All numbers are
+ * big endian.
+ *
+ * Entries are written in list order, so reading them back gives the pairs
+ * sorted by name, with pairs of the same name in the order the list held
+ * them. That is what the bulk build constructor of SkipList expects. The
+ * file is written through a FileChannel and forced to disk before write
+ * returns. It is read by memory mapping it, in windows for files larger than
+ * a window.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class Snapshot {
+
+    // the first int of every snapshot, "RSNP" in ASCII
+    static final int MAGIC = 0x52534E50;
+    // the version of the format written
+    static final int VERSION = 2;
+    // the bytes of the header of version 1, version 2 adds a long
+    private static final int HEADER = 12;
+    // the bytes of an entry besides the name
+    private static final int ENTRY = 2 + 16;
+    // the longest name an entry can hold
+    private static final int MAX_NAME = 0xFFFF;
+    // the size of the buffer entries are written through
+    private static final int BUFFER = 1 << 16;
+    // the default size of one mapped window when reading
+    static final int DEFAULT_WINDOW = 1 << 30;
+
+    /**
+     * Objects of this class are not needed, everything is static.
+     */
+    private Snapshot() {
+    }
+
+
+    /**
+     * Writes the pairs to the file, replacing whatever the file held.
+     *
+     * @param pairs
+     *            the pairs in list order
+     * @param count
+     *            the number of pairs
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file can not be written, or a name is longer than
+     *             65535 bytes in UTF-8
+     */
+    public static void write(Iterable<KVPair<String, Rectangle>> pairs,
+        int count, File file) throws IOException {
+        write(pairs, count, 0, file);
+    }
+
+
+    /**
+     * Writes the pairs to the file, replacing whatever the file held, and
+     * records the last log record they include.
+     *
+     * @param pairs
+     *            the pairs in list order
+     * @param count
+     *            the number of pairs
+     * @param sequence
+     *            the sequence number of the last WriteAheadLog record the
+     *            pairs include, 0 for none
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file can not be written, or a name is longer than
+     *             65535 bytes in UTF-8
+     */
+    public static void write(Iterable<KVPair<String, Rectangle>> pairs,
+        int count, long sequence, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putLong(sequence);
+            int written = 0;
+            for (KVPair<String, Rectangle> pair : pairs) {
+                byte[] name = pair.getKey().getBytes(StandardCharsets.UTF_8);
+                if (name.length > MAX_NAME) {
+                    throw new IOException("Name longer than " + MAX_NAME
+                        + " bytes: " + pair.getKey().substring(0, 20) + "...");
+                }
+                if (buffer.remaining() < ENTRY + name.length) {
+                    drain(channel, buffer);
+                    if (buffer.remaining() < ENTRY + name.length) {
+                        // Only a very long name does not fit in an empty
+                        // buffer
+                        buffer = ByteBuffer.allocateDirect(ENTRY + name.length);
+                    }
+                }
+                Rectangle rect = pair.getValue();
+                buffer.putShort((short)name.length).put(name);
+                buffer.putInt(rect.x).putInt(rect.y).putInt(rect.width)
+                    .putInt(rect.height);
+                written++;
+            }
+            drain(channel, buffer);
+            if (written != count) {
+                throw new IOException("Expected " + count + " pairs, got "
+                    + written);
+            }
+            channel.force(true);
+        }
+    }
+
+
+    /**
+     * Opens a snapshot for reading with windows of 1 GB.
+     *
+     * @param file
+     *            the snapshot file
+     * @return a reader over the pairs of the file, it has to be closed
+     * @throws IOException
+     *             if the file can not be opened or is not a snapshot
+     */
+    public static Reader open(File file) throws IOException {
+        return new Reader(file, DEFAULT_WINDOW);
+    }
+
+
+    /**
+     * Writes everything the buffer holds to the channel and clears it.
+     *
+     * @param channel
+     *            the channel to write to
+     * @param buffer
+     *            the buffer, in write mode
+     * @throws IOException
+     *             if the channel can not be written
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer)
+        throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+
+    /**
+     * Reads the pairs of a snapshot one at a time from the mapped file. The
+     * pairs are made when next is called, so feeding the reader to a bulk
+     * build never holds the whole file as objects. A damaged file makes next
+     * throw an UncheckedIOException.
+     */
+    public static class Reader implements Iterator<KVPair<String, Rectangle>>,
+        Closeable {
+        private final FileChannel channel;
+        private final long fileSize;
+        private final int window;
+        // the mapped window and the file position it starts at
+        private MappedByteBuffer buffer;
+        private long base;
+        // the number of entries the header announced and read so far
+        private final int count;
+        private int read;
+        // the last log record the snapshot holds
+        private final long sequence;
+        // the name of the last pair, the names must not go down
+        private String previous;
+
+        /**
+         * @param file
+         *            the snapshot file
+         * @param windowIn
+         *            the size of one mapped window in bytes
+         * @throws IOException
+         *             if the file can not be opened or is not a snapshot
+         */
+        Reader(File file, int windowIn) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                fileSize = channel.size();
+                window = Math.max(windowIn, ENTRY + MAX_NAME);
+                map(0);
+                if (fileSize < HEADER || buffer.getInt() != MAGIC) {
+                    throw new IOException("Not a snapshot: " + file);
+                }
+                int version = buffer.getInt();
+                if (version != 1 && version != VERSION) {
+                    throw new IOException("Unknown snapshot version "
+                        + version);
+                }
+                count = buffer.getInt();
+                if (count < 0) {
+                    throw new IOException("Negative entry count " + count);
+                }
+                if (version == 1) {
+                    sequence = 0;
+                }
+                else {
+                    need(8);
+                    sequence = buffer.getLong();
+                }
+            }
+            catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+
+        /**
+         * @return the number of pairs in the snapshot
+         */
+        public int size() {
+            return count;
+        }
+
+
+        /**
+         * @return the sequence number of the last WriteAheadLog record the
+         *         snapshot holds, 0 for none
+         */
+        public long sequence() {
+            return sequence;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return read < count;
+        }
+
+
+        @Override
+        public KVPair<String, Rectangle> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                need(2);
+                int length = buffer.getShort() & 0xFFFF;
+                need(length + 16);
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                String name = new String(bytes, StandardCharsets.UTF_8);
+                if (previous != null && previous.compareTo(name) > 0) {
+                    throw new IOException("Entry " + read + " is out of order: "
+                        + name + " after " + previous);
+                }
+                previous = name;
+                Rectangle rect = new Rectangle(buffer.getInt(), buffer.getInt(),
+                    buffer.getInt(), buffer.getInt());
+                read++;
+                return new KVPair<>(name, rect);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+
+        /**
+         * Makes sure the window holds the next bytes of the file, mapping the
+         * next window when it does not.
+         *
+         * @param bytes
+         *            the number of bytes that will be read next
+         * @throws IOException
+         *             if the file ends before that
+         */
+        private void need(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                long position = base + buffer.position();
+                if (fileSize - position < bytes) {
+                    throw new IOException("Snapshot ends in entry " + read);
+                }
+                map(position);
+            }
+        }
+
+
+        /**
+         * Maps the window starting at the position.
+         *
+         * @param position
+         *            the position in the file
+         * @throws IOException
+         *             if the file can not be mapped
+         */
+        private void map(long position) throws IOException {
+            base = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(window, fileSize - position));
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    @Test
+    //a loaded snapshot holds the same pairs in the same order, also read in small windows
+    void testRoundTrip() throws IOException {
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+        SkipList<String, Rectangle> list = new SkipList<>();
+        Random random = new Random(37);
+        for (int i = 0; i < 20000; i++) {
+            // reused names keep pairs with equal keys, one name is not ASCII
+            String name = i == 7 ? "caf\u00e9" : "r" + random.nextInt(5000);
+            list.insert(new KVPair<>(name, new Rectangle(random.nextInt(1000), random.nextInt(1000), 1 + random.nextInt(24), 1 + random.nextInt(24))));
+        }
+        Snapshot.write(list, list.size(), file);
+
+        try (Snapshot.Reader reader = new Snapshot.Reader(file, 1)) {
+            assertEquals(list.size(), reader.size());
+            for (KVPair<String, Rectangle> pair : list) {
+                KVPair<String, Rectangle> read = reader.next();
+                assertEquals(pair.getKey(), read.getKey());
+                assertEquals(pair.getValue(), read.getValue());
+            }
+            assertFalse(reader.hasNext());
+            assertThrows(java.util.NoSuchElementException.class, reader::next);
+        }
+        SkipList<String, Rectangle> empty = new SkipList<>();
+        Snapshot.write(empty, 0, file);
+        try (Snapshot.Reader reader = Snapshot.open(file)) {
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    //save and load commands restore the database, on SkipList and on other lists
+    void testSaveAndLoadCommands() throws IOException {
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+        Database saved = new Database();
+        CommandProcessor commands = new CommandProcessor(saved);
+        Random random = new Random(41);
+        for (int i = 0; i < 300; i++) {
+            commands.processor("insert r" + random.nextInt(100) + " " + random.nextInt(1000) + " " + random.nextInt(1000) + " " + (1 + random.nextInt(24)) + " " + (1 + random.nextInt(24)));
+        }
+        commands.flush();
+        String printedSave = SkipListTest.printed(() -> { commands.processor("save " + file.getPath()); commands.flush(); });
+        assertEquals("Rectangles saved: 300" + "\n", printedSave);
+        String expected = SkipListTest.printed(() -> { saved.regionsearch(0, 0, 1024, 1024); saved.intersections(); saved.flush(); });
+
+        for (SkipListADT<String, Rectangle> list : java.util.Arrays.<SkipListADT<String, Rectangle>>asList(new SkipList<>(true), new ConcurrentSkipList<>(), new BucketSkipList<>())) {
+            Database loaded = new Database(list);
+            loaded.insert(new KVPair<>("old", new Rectangle(1, 1, 1, 1)));
+            loaded.flush();
+            CommandProcessor loading = new CommandProcessor(loaded);
+            assertEquals("Rectangles loaded: 300" + "\n", SkipListTest.printed(() -> { loading.processor("load " + file.getPath()); loading.flush(); }));
+            assertEquals(expected, SkipListTest.printed(() -> { loaded.regionsearch(0, 0, 1024, 1024); loaded.intersections(); loaded.flush(); }));
+        }
+    }
+
+    @Test
+    //a damaged or foreign file is not loaded and leaves the database as it was
+    void testDamagedFiles() throws IOException {
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+        ArrayList<KVPair<String, Rectangle>> pairs = new ArrayList<>();
+        pairs.add(new KVPair<>("a", new Rectangle(1, 1, 5, 5)));
+        pairs.add(new KVPair<>("b", new Rectangle(2, 2, 5, 5)));
+        Snapshot.write(pairs, 2, file);
+        Database data = new Database();
+        data.insert(new KVPair<>("kept", new Rectangle(3, 3, 3, 3)));
+        data.flush();
+        String before = SkipListTest.printed(() -> { data.regionsearch(0, 0, 1024, 1024); data.flush(); });
+
+        // cut off in the middle of the last entry
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        assertEquals("Snapshot not loaded: (" + file.getPath() + ")\n", SkipListTest.printed(() -> { data.load(file.getPath()); data.flush(); }));
+        // a command file is not a snapshot
+        Files.write(file.toPath(), "insert a 1 1 1 1\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("Snapshot not loaded: (" + file.getPath() + ")\n", SkipListTest.printed(() -> { data.load(file.getPath()); data.flush(); }));
+        // pairs out of order and rectangles insert would reject
+        pairs.add(0, pairs.remove(1));
+        Snapshot.write(pairs, 2, file);
+        assertEquals("Snapshot not loaded: (" + file.getPath() + ")\n", SkipListTest.printed(() -> { data.load(file.getPath()); data.flush(); }));
+        pairs.clear();
+        pairs.add(new KVPair<>("a", new Rectangle(1, 1, 0, 5)));
+        Snapshot.write(pairs, 1, file);
+        assertEquals("Snapshot not loaded: (" + file.getPath() + ")\n", SkipListTest.printed(() -> { data.load(file.getPath()); data.flush(); }));
+        assertEquals("Snapshot not loaded: (" + file.getPath() + ".missing)\n", SkipListTest.printed(() -> { data.load(file.getPath() + ".missing"); data.flush(); }));
+
+        assertEquals(before, SkipListTest.printed(() -> { data.regionsearch(0, 0, 1024, 1024); data.flush(); }));
+    }
+
+}
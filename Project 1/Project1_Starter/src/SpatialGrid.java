@@ -0,0 +1,245 @@
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class is a uniform grid over the 1024x1024 world that the Database
+ * keeps next to its SkipList. Every rectangle is stored in each cell it
+ * covers, so a region query only has to look at the rectangles stored in the
+ * cells that the region covers instead of at every rectangle in the list.
+ * The columns of cells can also be searched in parallel on a ForkJoinPool.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class SpatialGrid {
+
+    // the size of the world, rectangles are kept inside it by the Database
+    static final int WORLD = 1024;
+    // the side of one square cell, 16x16 cells cover the world
+    static final int CELL = 64;
+    // number of cells along one side of the world
+    private static final int CELLS = WORLD / CELL;
+
+    // cells[cx][cy] holds every pair whose rectangle covers that cell
+    private final ArrayList<KVPair<String, Rectangle>>[][] cells;
+
+    /**
+     * Initializes an empty grid.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SpatialGrid() {
+        cells = new ArrayList[CELLS][CELLS];
+        for (int cx = 0; cx < CELLS; cx++) {
+            for (int cy = 0; cy < CELLS; cy++) {
+                cells[cx][cy] = new ArrayList<>();
+            }
+        }
+    }
+
+
+    /**
+     * Adds the pair to every cell its rectangle covers.
+     *
+     * @param pair
+     *            the pair that was inserted into the SkipList
+     */
+    public void insert(KVPair<String, Rectangle> pair) {
+        Rectangle rect = pair.getValue();
+        for (int cx = low(rect.x); cx <= high(rect.x, rect.width); cx++) {
+            for (int cy = low(rect.y); cy <= high(rect.y, rect.height); cy++) {
+                cells[cx][cy].add(pair);
+            }
+        }
+    }
+
+
+    /**
+     * Removes exactly this pair (not just an equal one) from the grid.
+     *
+     * @param pair
+     *            the pair that was removed from the SkipList
+     */
+    public void remove(KVPair<String, Rectangle> pair) {
+        Rectangle rect = pair.getValue();
+        for (int cx = low(rect.x); cx <= high(rect.x, rect.width); cx++) {
+            for (int cy = low(rect.y); cy <= high(rect.y, rect.height); cy++) {
+                ArrayList<KVPair<String, Rectangle>> cell = cells[cx][cy];
+                for (int i = 0; i < cell.size(); i++) {
+                    if (cell.get(i) == pair) {
+                        // Order inside a cell does not matter, fill the gap
+                        // with the last pair instead of shifting
+                        cell.set(i, cell.get(cell.size() - 1));
+                        cell.remove(cell.size() - 1);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns every pair whose rectangle intersects the region, each one only
+     * once and in no particular order.
+     *
+     * @param region
+     *            the region to search
+     * @return the intersecting pairs
+     */
+    public ArrayList<KVPair<String, Rectangle>> search(Rectangle region) {
+        ArrayList<KVPair<String, Rectangle>> found = new ArrayList<>();
+        if (!isEmpty(region)) {
+            search(region, low(region.x), high(region.x, region.width), found);
+        }
+        return found;
+    }
+
+
+    /**
+     * Returns the same pairs as search(region), looking through the columns
+     * of cells that the region covers in parallel on the pool. A pair is only
+     * reported from the column holding the left edge of its overlap with the
+     * region, so no pair is found twice.
+     *
+     * @param region
+     *            the region to search
+     * @param pool
+     *            the pool to search on
+     * @return the intersecting pairs
+     */
+    public ArrayList<KVPair<String, Rectangle>> search(Rectangle region,
+        ForkJoinPool pool) {
+        if (isEmpty(region)) {
+            return new ArrayList<>();
+        }
+        return pool.invoke(new ColumnTask(region, low(region.x), high(region.x,
+            region.width)));
+    }
+
+
+    /**
+     * @param region
+     *            a region
+     * @return true if the region can not intersect any stored rectangle
+     */
+    private static boolean isEmpty(Rectangle region) {
+        return region.width <= 0 || region.height <= 0
+            || (long)region.x + region.width <= 0 || region.x >= WORLD
+            || (long)region.y + region.height <= 0 || region.y >= WORLD;
+    }
+
+
+    /**
+     * Adds the pairs intersecting the region that are reported from a range of
+     * cell columns.
+     *
+     * @param region
+     *            the region to search
+     * @param fromCx
+     *            the first column
+     * @param toCx
+     *            the last column (inclusive)
+     * @param found
+     *            where to add the pairs
+     */
+    private void search(Rectangle region, int fromCx, int toCx,
+        ArrayList<KVPair<String, Rectangle>> found) {
+        for (int cx = fromCx; cx <= toCx; cx++) {
+            for (int cy = low(region.y); cy <= high(region.y,
+                region.height); cy++) {
+                for (KVPair<String, Rectangle> pair : cells[cx][cy]) {
+                    Rectangle rect = pair.getValue();
+                    // A pair covering many cells is only reported from the
+                    // cell holding the top left corner of the overlap
+                    if (region.intersects(rect) && cell(Math.max(region.x,
+                        rect.x)) == cx && cell(Math.max(region.y,
+                            rect.y)) == cy) {
+                        found.add(pair);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @param coord
+     *            a coordinate
+     * @return the cell holding the coordinate, clamped to the world
+     */
+    private static int cell(long coord) {
+        return (int)Math.max(0, Math.min(CELLS - 1, coord / CELL));
+    }
+
+
+    /**
+     * @param start
+     *            the first coordinate of a side
+     * @return the first cell the side covers
+     */
+    private static int low(int start) {
+        return cell(start);
+    }
+
+
+    /**
+     * @param start
+     *            the first coordinate of a side
+     * @param length
+     *            the length of the side
+     * @return the last cell the side covers
+     */
+    private static int high(int start, int length) {
+        return cell((long)start + length - 1);
+    }
+
+
+
+    /**
+     * Searches a range of columns, splitting it in halves until one column is
+     * left.
+     */
+    private class ColumnTask
+        extends RecursiveTask<ArrayList<KVPair<String, Rectangle>>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Rectangle region;
+        private final int fromCx;
+        private final int toCx;
+
+        /**
+         * @param regionIn
+         *            the region to search
+         * @param fromCxIn
+         *            the first column
+         * @param toCxIn
+         *            the last column (inclusive)
+         */
+        ColumnTask(Rectangle regionIn, int fromCxIn, int toCxIn) {
+            region = regionIn;
+            fromCx = fromCxIn;
+            toCx = toCxIn;
+        }
+
+
+        @Override
+        protected ArrayList<KVPair<String, Rectangle>> compute() {
+            if (fromCx == toCx) {
+                ArrayList<KVPair<String, Rectangle>> found = new ArrayList<>();
+                search(region, fromCx, toCx, found);
+                return found;
+            }
+            int mid = (fromCx + toCx) >>> 1;
+            ColumnTask right = new ColumnTask(region, mid + 1, toCx);
+            right.fork();
+            ArrayList<KVPair<String, Rectangle>> found = new ColumnTask(region,
+                fromCx, mid).compute();
+            found.addAll(right.join());
+            return found;
+        }
+    }
+
+}
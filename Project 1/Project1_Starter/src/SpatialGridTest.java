@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridTest {
+    SpatialGrid grid;
+    @BeforeEach
+    public void setUp() {
+        grid = new SpatialGrid();
+    }
+
+    @Test
+    //a rectangle spanning many cells is found once, touching ones are not found
+    void testSearch() {
+        KVPair<String, Rectangle> big = new KVPair<>("big", new Rectangle(0, 0, 1024, 1024));
+        KVPair<String, Rectangle> small = new KVPair<>("small", new Rectangle(64, 64, 10, 10));
+        grid.insert(big);
+        grid.insert(small);
+        assertEquals(2, grid.search(new Rectangle(0, 0, 1024, 1024)).size());
+        assertEquals(1, grid.search(new Rectangle(74, 74, 5, 5)).size());
+        assertEquals(2, grid.search(new Rectangle(-100, -100, 5000, 5000)).size());
+        assertEquals(0, grid.search(new Rectangle(1024, 0, 10, 10)).size());
+        assertEquals(0, grid.search(new Rectangle(5, 5, 0, 0)).size());
+    }
+
+    @Test
+    //remove takes out exactly the given pair, not an equal one
+    void testRemoveExactPair() {
+        KVPair<String, Rectangle> first = new KVPair<>("a", new Rectangle(1, 1, 100, 100));
+        KVPair<String, Rectangle> second = new KVPair<>("a", new Rectangle(1, 1, 100, 100));
+        grid.insert(first);
+        grid.insert(second);
+        grid.remove(first);
+        ArrayList<KVPair<String, Rectangle>> found = grid.search(new Rectangle(0, 0, 1024, 1024));
+        assertEquals(1, found.size());
+        assertSame(second, found.get(0));
+    }
+
+    @Test
+    //the grid must find exactly what checking every rectangle finds
+    void testMatchesFullScan() {
+        Random random = new Random(7);
+        Rectangle[] rects = IntersectionSweep.randomRectangles(2000, 300, 11);
+        ArrayList<KVPair<String, Rectangle>> live = new ArrayList<>();
+        for (int i = 0; i < rects.length; i++) {
+            KVPair<String, Rectangle> pair = new KVPair<>("r" + i, rects[i]);
+            grid.insert(pair);
+            live.add(pair);
+        }
+        for (int i = 0; i < 500; i++) {
+            KVPair<String, Rectangle> pair = live.remove(random.nextInt(live.size()));
+            grid.remove(pair);
+        }
+        for (int q = 0; q < 200; q++) {
+            Rectangle region = new Rectangle(random.nextInt(1200) - 100, random.nextInt(1200) - 100,
+                1 + random.nextInt(400), 1 + random.nextInt(400));
+            IdentityHashMap<KVPair<String, Rectangle>, Boolean> expected = new IdentityHashMap<>();
+            for (KVPair<String, Rectangle> pair : live) {
+                if (region.intersects(pair.getValue())) {
+                    expected.put(pair, true);
+                }
+            }
+            ArrayList<KVPair<String, Rectangle>> found = grid.search(region);
+            assertEquals(expected.size(), found.size());
+            for (KVPair<String, Rectangle> pair : found) {
+                assertTrue(expected.containsKey(pair));
+            }
+        }
+    }
+
+    @Test
+    //searching the columns in parallel finds each pair once, the same ones as one thread
+    void testParallelSearch() {
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(3);
+        Rectangle[] rects = IntersectionSweep.randomRectangles(3000, 200, 23);
+        for (int i = 0; i < rects.length; i++) {
+            grid.insert(new KVPair<>("r" + i, rects[i]));
+        }
+        Random random = new Random(29);
+        for (int q = 0; q < 100; q++) {
+            Rectangle region = new Rectangle(random.nextInt(1200) - 100, random.nextInt(1200) - 100,
+                1 + random.nextInt(1200), 1 + random.nextInt(400));
+            IdentityHashMap<KVPair<String, Rectangle>, Boolean> expected = new IdentityHashMap<>();
+            for (KVPair<String, Rectangle> pair : grid.search(region)) {
+                expected.put(pair, true);
+            }
+            ArrayList<KVPair<String, Rectangle>> found = grid.search(region, pool);
+            assertEquals(expected.size(), found.size());
+            for (KVPair<String, Rectangle> pair : found) {
+                assertTrue(expected.containsKey(pair));
+            }
+        }
+        assertEquals(0, grid.search(new Rectangle(1024, 0, 10, 10), pool).size());
+        pool.shutdown();
+    }
+
+}
@@ -0,0 +1,505 @@
+import java.awt.Rectangle;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * This class is an append-only log of the changes made to a Database, so
+ * that the changes since the last snapshot survive a crash. Every accepted
+ * insert and remove is appended as one record, and recovery loads the last
+ * snapshot and then applies the records that came after it.
+ *
+ * The file starts with a header holding the magic number and the sequence
+ * number of the record before the first one in the file, which is the last
+ * record of the snapshot the log was started after. Every record then holds
+ * the length of its body as an int, the body and a CRC32C of the body. A body
+ * is a type byte followed by the name as an unsigned short length and UTF-8
+ * bytes and/or the x, y, width and height of a rectangle as ints. When the
+ * log is opened, it is cut off after the last record that is complete and has
+ * a correct checksum, which is what a crash in the middle of a write leaves.
+ *
+ * Records are collected in a buffer and written and forced to disk together
+ * (group commit), how often is chosen with a Sync policy. flush always
+ * writes the buffer, and forces it unless the policy is NEVER.
+ *
+ * @author {Abdallah Ali Hassan}
+ *
+ * @version 2026-10-17
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * When records are forced to disk.
+     */
+    public enum Sync {
+        /** after every record, nothing acknowledged is ever lost */
+        ALWAYS,
+        /** after a group of records and on every flush */
+        GROUP,
+        /** never, the operating system writes the file when it wants */
+        NEVER
+    }
+
+    // the type byte of an insert record: name and rectangle
+    static final byte INSERT = 1;
+    // the type byte of a remove by name record: name
+    static final byte REMOVE_NAME = 2;
+    // the type byte of a remove by coordinates record: rectangle
+    static final byte REMOVE_RECT = 3;
+
+    // the first int of every log, "RWAL" in ASCII
+    static final int MAGIC = 0x5257414C;
+    // the bytes of the header: the magic number and a long
+    private static final int HEADER = 12;
+    // the largest body a record can have, an insert with the longest name
+    private static final int MAX_BODY = 1 + 2 + 0xFFFF + 16;
+    // the default number of records forced together with Sync.GROUP
+    static final int DEFAULT_GROUP = 256;
+
+    private final FileChannel channel;
+    private final Sync sync;
+    private final int group;
+    private final ByteBuffer buffer;
+    private final CRC32C crc;
+    // the sequence number of the last record appended
+    private long sequence;
+    // the records appended since the last force
+    private int unforced;
+    // where the body of the record being appended starts in the buffer
+    private int bodyStart;
+
+    /**
+     * Opens the log, cuts it off after its last valid record and gives every
+     * record after the given sequence number to redo, oldest first. A new log
+     * is made if the file does not exist or is too short to hold a header.
+     *
+     * @param file
+     *            the log file
+     * @param syncIn
+     *            when records are forced to disk
+     * @param groupIn
+     *            the number of records forced together with Sync.GROUP
+     * @param after
+     *            the sequence number of the last record already applied, the
+     *            one the snapshot holds
+     * @param redo
+     *            what to do with each record after that one
+     * @throws IOException
+     *             if the file can not be read or written, is not a log, or
+     *             records between the snapshot and the log are missing
+     */
+    public WriteAheadLog(File file, Sync syncIn, int groupIn, long after,
+        Consumer<Record> redo) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        sync = syncIn;
+        group = Math.max(1, groupIn);
+        buffer = ByteBuffer.allocateDirect(1 << 17);
+        crc = new CRC32C();
+        try {
+            if (channel.size() < HEADER) {
+                // A new log, or a reset that did not get to the header
+                reset(after);
+            }
+            else {
+                replay(after, redo);
+            }
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * @return the sequence number of the last record appended
+     */
+    public synchronized long sequence() {
+        return sequence;
+    }
+
+
+    /**
+     * Appends an insert record.
+     *
+     * @param pair
+     *            the pair that was inserted
+     * @throws IOException
+     *             if the log can not be written
+     */
+    public synchronized void insert(KVPair<String, Rectangle> pair)
+        throws IOException {
+        byte[] name = pair.getKey().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = begin(1 + 2 + name.length + 16);
+        body.put(INSERT).putShort((short)name.length).put(name);
+        putRect(body, pair.getValue());
+        end();
+    }
+
+
+    /**
+     * Appends a remove by name record.
+     *
+     * @param name
+     *            the name that was removed
+     * @throws IOException
+     *             if the log can not be written
+     */
+    public synchronized void remove(String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = begin(1 + 2 + bytes.length);
+        body.put(REMOVE_NAME).putShort((short)bytes.length).put(bytes);
+        end();
+    }
+
+
+    /**
+     * Appends a remove by coordinates record.
+     *
+     * @param rect
+     *            the rectangle that was removed
+     * @throws IOException
+     *             if the log can not be written
+     */
+    public synchronized void remove(Rectangle rect) throws IOException {
+        ByteBuffer body = begin(1 + 16);
+        body.put(REMOVE_RECT);
+        putRect(body, rect);
+        end();
+    }
+
+
+    /**
+     * Writes all buffered records to the file and forces them to disk unless
+     * the policy is NEVER.
+     *
+     * @throws IOException
+     *             if the log can not be written
+     */
+    public synchronized void flush() throws IOException {
+        drain();
+        if (sync != Sync.NEVER && unforced > 0) {
+            channel.force(false);
+        }
+        unforced = 0;
+    }
+
+
+    /**
+     * Empties the log after a snapshot holding all its records was written.
+     * The file is cut first and the header written after, so a crash in
+     * between leaves a file that is read as a new log.
+     *
+     * @throws IOException
+     *             if the log can not be written
+     */
+    public synchronized void reset() throws IOException {
+        flush();
+        reset(sequence);
+    }
+
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+
+    /**
+     * Starts the log over with nothing in it.
+     *
+     * @param base
+     *            the sequence number of the record before the first one
+     * @throws IOException
+     *             if the log can not be written
+     */
+    private void reset(long base) throws IOException {
+        buffer.clear();
+        channel.truncate(0);
+        channel.force(false);
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putLong(base).flip();
+        channel.write(header, 0);
+        channel.force(false);
+        channel.position(HEADER);
+        sequence = base;
+        unforced = 0;
+    }
+
+
+    /**
+     * Reads the whole log, gives the records after the given one to redo
+     * and cuts the file after the last valid record.
+     *
+     * @param after
+     *            the last record already applied
+     * @param redo
+     *            what to do with the records after it
+     * @throws IOException
+     *             if the file can not be read or records are missing
+     */
+    private void replay(long after, Consumer<Record> redo) throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(HEADER);
+        channel.read(in, 0);
+        in.flip();
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a log file");
+        }
+        long base = in.getLong();
+        if (base > after) {
+            throw new IOException("Records " + (after + 1) + " to " + base
+                + " are missing");
+        }
+        sequence = base;
+
+        long size = channel.size();
+        long position = HEADER;
+        // Large enough for the longest record
+        in = ByteBuffer.allocate(1 << 17);
+        in.flip();
+        long inPosition = position;
+        while (true) {
+            // Refill so that a whole record is in the buffer if the file has it
+            if (in.remaining() < 4 + MAX_BODY + 4 && inPosition < size) {
+                in.compact();
+                while (in.hasRemaining() && inPosition < size) {
+                    inPosition += channel.read(in, inPosition);
+                }
+                in.flip();
+            }
+            Record record = next(in);
+            if (record == null) {
+                break;
+            }
+            position += 4 + record.length + 4;
+            sequence++;
+            if (sequence > after) {
+                redo.accept(record);
+            }
+        }
+        if (sequence < after) {
+            // The snapshot holds every record of the log, a crash came
+            // between writing the snapshot and emptying the log
+            reset(after);
+            return;
+        }
+        if (position < size) {
+            // Drop a torn or damaged tail
+            channel.truncate(position);
+            channel.force(false);
+        }
+        channel.position(position);
+    }
+
+
+    /**
+     * Decodes the record at the start of the buffer.
+     *
+     * @param in
+     *            the buffer, holding at least one whole record if the file
+     *            does
+     * @return the record, null if there is no complete valid record
+     */
+    private Record next(ByteBuffer in) {
+        if (in.remaining() < 4) {
+            return null;
+        }
+        int start = in.position();
+        int length = in.getInt(start);
+        if (length < 1 || length > MAX_BODY || in.remaining() < 4 + length
+            + 4) {
+            return null;
+        }
+        crc.reset();
+        ByteBuffer body = in.duplicate();
+        body.position(start + 4).limit(start + 4 + length);
+        crc.update(body);
+        if ((int)crc.getValue() != in.getInt(start + 4 + length)) {
+            return null;
+        }
+        body.position(start + 4);
+        Record record = Record.decode(body, length);
+        if (record != null) {
+            in.position(start + 4 + length + 4);
+        }
+        return record;
+    }
+
+
+    /**
+     * Makes room for a record and writes its length.
+     *
+     * @param length
+     *            the length of the body
+     * @return the buffer, positioned where the body goes
+     * @throws IOException
+     *             if the buffer had to be written and that failed
+     */
+    private ByteBuffer begin(int length) throws IOException {
+        if (length > MAX_BODY) {
+            throw new IOException("Record too long: " + length + " bytes");
+        }
+        if (buffer.remaining() < 4 + length + 4) {
+            drain();
+        }
+        buffer.putInt(length);
+        bodyStart = buffer.position();
+        return buffer;
+    }
+
+
+    /**
+     * Finishes the record that was just put in the buffer with its checksum
+     * and forces the log if the policy asks for it.
+     *
+     * @throws IOException
+     *             if the log can not be written
+     */
+    private void end() throws IOException {
+        ByteBuffer body = buffer.duplicate();
+        body.position(bodyStart).limit(buffer.position());
+        crc.reset();
+        crc.update(body);
+        buffer.putInt((int)crc.getValue());
+        sequence++;
+        unforced++;
+        if (sync == Sync.ALWAYS || (sync == Sync.GROUP && unforced >= group)) {
+            flush();
+        }
+    }
+
+
+    /**
+     * Writes the buffer to the file without forcing it.
+     *
+     * @throws IOException
+     *             if the log can not be written
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+
+    /**
+     * @param body
+     *            the buffer to put the rectangle into
+     * @param rect
+     *            the rectangle
+     */
+    private static void putRect(ByteBuffer body, Rectangle rect) {
+        body.putInt(rect.x).putInt(rect.y).putInt(rect.width).putInt(
+            rect.height);
+    }
+
+
+    /**
+     * One change read back from the log.
+     */
+    public static final class Record {
+        private final byte type;
+        private final String name;
+        private final Rectangle rect;
+        // the length of the body the record was read from
+        private final int length;
+
+        /**
+         * @param typeIn
+         *            the type byte
+         * @param nameIn
+         *            the name, null for REMOVE_RECT
+         * @param rectIn
+         *            the rectangle, null for REMOVE_NAME
+         * @param lengthIn
+         *            the length of the body
+         */
+        private Record(byte typeIn, String nameIn, Rectangle rectIn,
+            int lengthIn) {
+            type = typeIn;
+            name = nameIn;
+            rect = rectIn;
+            length = lengthIn;
+        }
+
+
+        /**
+         * @return INSERT, REMOVE_NAME or REMOVE_RECT
+         */
+        public byte type() {
+            return type;
+        }
+
+
+        /**
+         * @return the name, null for REMOVE_RECT
+         */
+        public String name() {
+            return name;
+        }
+
+
+        /**
+         * @return the rectangle, null for REMOVE_NAME
+         */
+        public Rectangle rect() {
+            return rect;
+        }
+
+
+        /**
+         * @param body
+         *            the body, positioned at the type byte
+         * @param length
+         *            the length of the body
+         * @return the record, null if the body does not hold one
+         */
+        static Record decode(ByteBuffer body, int length) {
+            byte type = body.get();
+            String name = null;
+            Rectangle rect = null;
+            int used = 1;
+            if (type == INSERT || type == REMOVE_NAME) {
+                if (length < used + 2) {
+                    return null;
+                }
+                int nameLength = body.getShort() & 0xFFFF;
+                used += 2 + nameLength;
+                if (length < used) {
+                    return null;
+                }
+                byte[] bytes = new byte[nameLength];
+                body.get(bytes);
+                name = new String(bytes, StandardCharsets.UTF_8);
+            }
+            else if (type != REMOVE_RECT) {
+                return null;
+            }
+            if (type == INSERT || type == REMOVE_RECT) {
+                used += 16;
+                if (length < used) {
+                    return null;
+                }
+                rect = new Rectangle(body.getInt(), body.getInt(), body
+                    .getInt(), body.getInt());
+            }
+            return used == length ? new Record(type, name, rect, length)
+                : null;
+        }
+    }
+
+}
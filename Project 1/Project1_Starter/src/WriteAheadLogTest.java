@@ -0,0 +1,238 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+    String prefix;
+    ByteArrayOutputStream output;
+    @BeforeEach
+    public void setUp() throws IOException {
+        File dir = Files.createTempDirectory("wal").toFile();
+        dir.deleteOnExit();
+        prefix = new File(dir, "db").getPath();
+        new File(prefix + ".snap").deleteOnExit();
+        new File(prefix + ".wal").deleteOnExit();
+        output = new ByteArrayOutputStream();
+    }
+
+    @Test
+    //a database recovered after a crash holds what was flushed, for every sync policy
+    void testRecoverAfterCrash() throws IOException {
+        for (WriteAheadLog.Sync sync : WriteAheadLog.Sync.values()) {
+            setUp();
+            Database crashed = open(sync);
+            Random random = new Random(43);
+            for (int i = 0; i < 2000; i++) {
+                change(crashed, random);
+                if (i == 700) {
+                    crashed.checkpoint();
+                }
+            }
+            crashed.flush();
+            // the crashed database is dropped without closing anything
+            assertEquals(state(crashed), state(open(sync)), sync.toString());
+        }
+    }
+
+    @Test
+    //a torn or damaged end of the log is cut off and the log goes on after it
+    void testTornTail() throws IOException {
+        Database data = open(WriteAheadLog.Sync.ALWAYS);
+        data.insert(new KVPair<>("a", new Rectangle(1, 1, 5, 5)));
+        data.insert(new KVPair<>("b", new Rectangle(2, 2, 5, 5)));
+        data.flush();
+        String expected = state(data);
+        File log = new File(prefix + ".wal");
+        long valid = log.length();
+
+        data.insert(new KVPair<>("c", new Rectangle(3, 3, 5, 5)));
+        data.flush();
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            // flip a bit in the last record, its checksum no longer matches
+            raf.seek(raf.length() - 6);
+            int b = raf.read();
+            raf.seek(raf.length() - 6);
+            raf.write(b ^ 1);
+        }
+        Database recovered = open(WriteAheadLog.Sync.ALWAYS);
+        assertEquals(expected, state(recovered));
+        assertEquals(valid, log.length());
+
+        // half a record, as a crash in the middle of a write leaves it
+        recovered.insert(new KVPair<>("d", new Rectangle(4, 4, 5, 5)));
+        recovered.flush();
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        recovered = open(WriteAheadLog.Sync.ALWAYS);
+        assertEquals(expected, state(recovered));
+        recovered.insert(new KVPair<>("e", new Rectangle(5, 5, 5, 5)));
+        recovered.flush();
+        expected = state(recovered);
+        assertEquals(expected, state(open(WriteAheadLog.Sync.ALWAYS)));
+    }
+
+    @Test
+    //a crash between writing the snapshot and emptying the log does not apply records twice
+    void testCrashDuringCheckpoint() throws IOException {
+        Database data = open(WriteAheadLog.Sync.GROUP);
+        Random random = new Random(47);
+        for (int i = 0; i < 500; i++) {
+            change(data, random);
+        }
+        data.flush();
+        File log = new File(prefix + ".wal");
+        File oldLog = new File(prefix + ".old");
+        oldLog.deleteOnExit();
+        Files.copy(log.toPath(), oldLog.toPath());
+        data.checkpoint();
+        String expected = state(data);
+
+        // the log as it was before it was emptied
+        Files.copy(oldLog.toPath(), log.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Database recovered = open(WriteAheadLog.Sync.GROUP);
+        assertEquals(expected, state(recovered));
+        for (int i = 0; i < 100; i++) {
+            change(recovered, random);
+        }
+        recovered.flush();
+        expected = state(recovered);
+
+        // the log was cut but its header not written yet
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.setLength(0);
+        }
+        recovered.checkpoint();
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.setLength(5);
+        }
+        assertEquals(expected, state(open(WriteAheadLog.Sync.GROUP)));
+    }
+
+    @Test
+    //a log that does not follow its snapshot is refused
+    void testMissingSnapshot() throws IOException {
+        Database data = open(WriteAheadLog.Sync.GROUP);
+        data.insert(new KVPair<>("a", new Rectangle(1, 1, 5, 5)));
+        data.checkpoint();
+        data.insert(new KVPair<>("b", new Rectangle(2, 2, 5, 5)));
+        data.flush();
+        assertTrue(new File(prefix + ".snap").delete());
+        assertThrows(IOException.class, () -> open(WriteAheadLog.Sync.GROUP));
+    }
+
+    @Test
+    //output that fills the sink is written only after the log holds the changes it reports
+    void testLogBeforeOutput() throws IOException {
+        Database data = open(WriteAheadLog.Sync.GROUP);
+        int[] reported = new int[1];
+        java.io.OutputStream checked = new java.io.OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte)b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                reported[0] += new String(bytes, offset, length).split("Rectangle inserted", -1).length - 1;
+                // a crash now must keep every insert reported so far
+                assertTrue(recovered() >= reported[0], recovered() + " < " + reported[0]);
+            }
+        };
+        data.redirect(new BufferedOutputSink(checked));
+        for (int i = 0; i < 3000; i++) {
+            data.insert(new KVPair<>("r" + i, new Rectangle(i % 1000, i % 900, 5, 5)));
+        }
+        assertTrue(reported[0] > 1000);
+        data.flush();
+        assertEquals(3000, reported[0]);
+    }
+
+    /**
+     * @return the number of rectangles a database recovered from a copy of
+     *         the log holds
+     */
+    int recovered() {
+        try {
+            File copy = new File(prefix + "-copy.wal");
+            copy.deleteOnExit();
+            Files.copy(new File(prefix + ".wal").toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Database data = new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink(bytes));
+            data.recover(prefix + "-copy", WriteAheadLog.Sync.NEVER);
+            data.flush();
+            return Integer.parseInt(bytes.toString().replaceAll("\\D", ""));
+        }
+        catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param sync
+     *            when the log is forced
+     * @return a database recovered from the files of the test
+     * @throws IOException
+     *             if it can not be recovered
+     */
+    Database open(WriteAheadLog.Sync sync) throws IOException {
+        Database data = new Database(new SkipList<String, Rectangle>(true), new BufferedOutputSink(output));
+        data.recover(prefix, sync);
+        data.flush();
+        return data;
+    }
+
+    /**
+     * Makes a random change, with names and rectangles that repeat often.
+     *
+     * @param data
+     *            the database to change
+     * @param random
+     *            the random generator
+     */
+    static void change(Database data, Random random) {
+        String name = "r" + random.nextInt(60);
+        Rectangle rect = new Rectangle(random.nextInt(40) * 20, random.nextInt(40) * 20, 1 + random.nextInt(3) * 20, 1 + random.nextInt(3) * 20);
+        int op = random.nextInt(10);
+        if (op < 5) {
+            data.insert(new KVPair<>(name, rect));
+        }
+        else if (op < 7) {
+            data.remove(name);
+        }
+        else if (op < 9) {
+            data.remove(rect.x, rect.y, rect.width, rect.height);
+        }
+        else {
+            ArrayList<KVPair<String, Rectangle>> batch = new ArrayList<>();
+            batch.add(new KVPair<>(name, rect));
+            batch.add(new KVPair<>(name, new Rectangle(-1, 0, 5, 5)));
+            batch.add(new KVPair<>("r" + random.nextInt(60), rect));
+            data.bulkLoad(batch);
+        }
+    }
+
+    /**
+     * @param data
+     *            a database writing to the output of the test
+     * @return what the database holds, in list order
+     */
+    String state(Database data) {
+        data.flush();
+        output.reset();
+        data.regionsearch(0, 0, 1024, 1024);
+        data.intersections();
+        data.flush();
+        return output.toString();
+    }
+
+}